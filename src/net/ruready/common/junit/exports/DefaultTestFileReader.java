@@ -14,6 +14,10 @@ import org.apache.commons.logging.LogFactory;
 /**
  * A default implementation of a test suite loaded from a data file.
  * <p>
+ * The hooks pass a test case's input and results through instance fields, so test
+ * cases cannot be run in parallel, and subclasses may not declare themselves
+ * thread-safe: {@link #setNumThreads(int)} refuses more than one thread.
+ * <p>
  * -------------------------------------------------------------------------<br>
  * (c) 2006-2007 Continuing Education, University of Utah<br>
  * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
@@ -131,6 +135,19 @@ public abstract class DefaultTestFileReader extends TestFileReader
 		return this.compareExpectedActual();
 	}
 
+	/**
+	 * Test cases share the <code>testInput</code>, <code>expectedTestOutput</code> and
+	 * <code>actualTestOutput</code> fields, so they must run one at a time.
+	 * 
+	 * @return false
+	 * @see net.ruready.common.junit.exports.TestFileReader#isThreadSafe()
+	 */
+	@Override
+	final protected boolean isThreadSafe()
+	{
+		return false;
+	}
+
 	// ========================= PUBLIC METHODS ============================
 
 	// ========================= PRIVATE METHODS ===========================
@@ -143,7 +160,7 @@ public abstract class DefaultTestFileReader extends TestFileReader
 	private boolean compareExpectedActual()
 	{
 		// Useful to insert new tests
-		logger.debug("line " + this.getNumLinesRead() + " result:"
+		logger.debug("line " + this.getTestLineNumber() + " result:"
 				+ CommonNames.MISC.NEW_LINE_CHAR + "expected "
 				+ this.encodeTestOutput(expectedTestOutput)
 				+ CommonNames.MISC.NEW_LINE_CHAR + "actual   "
@@ -152,7 +169,7 @@ public abstract class DefaultTestFileReader extends TestFileReader
 		// Negative checks
 		if (!expectedTestOutput.equals(actualTestOutput))
 		{
-			logger.error("line " + this.getNumLinesRead() + " failure; result:"
+			logger.error("line " + this.getTestLineNumber() + " failure; result:"
 					+ CommonNames.MISC.NEW_LINE_CHAR + "expected "
 					+ this.encodeTestOutput(expectedTestOutput)
 					+ CommonNames.MISC.NEW_LINE_CHAR + "actual   "
@@ -7,11 +7,20 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 import net.ruready.common.exception.ApplicationException;
+import net.ruready.common.exception.SystemException;
 import net.ruready.common.junit.entity.LineID;
 import net.ruready.common.junit.entity.LineReaderTarget;
+import net.ruready.common.junit.manager.CompiledTestSuite;
 import net.ruready.common.junit.manager.LineReaderMatcher;
 import net.ruready.common.rl.CommonNames;
 
@@ -20,6 +29,21 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * A template for reading and processing test strings from a text file.
+ * <p>
+ * By default, test cases are run one at a time on the calling thread. If the number of
+ * threads is set to more than one, the file is first read and its lines classified on
+ * the calling thread (so that parameter settings apply to the test cases that follow
+ * them), and the test cases are then run by a pool of threads. Errors are reported in
+ * file order, as in sequential mode; when a test case fails while
+ * <code>stopOnFirstError</code> is set, the test cases that follow it are cancelled.
+ * In this mode, <code>assertEquals()</code> is called concurrently and must be
+ * thread-safe; only readers that declare so by overriding {@link #isThreadSafe()} may use
+ * more than one thread. While a test case runs, {@link #getTestLineNumber()} returns its
+ * line number in either mode.
+ * <p>
+ * If precompiled mode is on, the lines are not parsed: they are read from a
+ * {@link CompiledTestSuite} saved next to the file, which is compiled on first use and
+ * whenever the file changes.
  * 
  * @author Nava L. Livne <i>&lt;nlivne@aoce.utah.edu&gt;</i> Academic Outreach and
  *         Continuing Education (AOCE) 1901 East South Campus Dr., Room 2197-E
@@ -53,10 +77,32 @@ public abstract class TestFileReader
 
 	private int numErrors;
 
+	private int numTests;
+
+	private long elapsedTime;
+
+	// Number of threads that run test cases; 1 = run them on the calling thread
+	private int numThreads = 1;
+
+	// Line number of the test case being run by the current thread
+	private final ThreadLocal<Integer> testLineNumber = new ThreadLocal<Integer>();
+
+	// Read classified lines from a compiled suite instead of parsing the file
+	private boolean precompiled = false;
+
+	// Compiled suite being read, if any, and the index of its next line
+	private CompiledTestSuite suite;
+
+	private int nextCompiledLine;
+
 	// target object; holds parameters nad the evaluated string of each
 	// processed line in the test data file
 	private LineReaderTarget target = new LineReaderTarget();
 
+	// Matches the lines of the test data file; shares a pre-compiled grammar with all
+	// other readers
+	private final LineReaderMatcher matcher = new LineReaderMatcher(target);
+
 	// ========================= CONSTRUCTORS ==============================
 
 	/**
@@ -118,6 +164,18 @@ public abstract class TestFileReader
 
 	}
 
+	/**
+	 * Returns true if <code>assertEquals()</code> may be called by several threads at
+	 * once, so that test cases may be run in parallel. False by default; readers that
+	 * keep no per-test state in shared fields may override this method to return true.
+	 * 
+	 * @return true if this reader may run test cases on more than one thread
+	 */
+	protected boolean isThreadSafe()
+	{
+		return false;
+	}
+
 	/**
 	 * Process a comment.
 	 * 
@@ -144,7 +202,54 @@ public abstract class TestFileReader
 		// reset counteres
 		numLinesRead = 0;
 		numErrors = 0;
+		numTests = 0;
+		long startTime = System.currentTimeMillis();
+		suite = null;
+		if (precompiled) {
+			try {
+				suite = CompiledTestSuite.load(new File(fileName), new File(fileName
+						+ CompiledTestSuite.SUFFIX));
+				nextCompiledLine = 0;
+			}
+			catch (IOException e) {
+				logger.warn("Could not load compiled test suite of " + fileName
+						+ ", parsing it instead: " + e.getMessage());
+			}
+		}
+
+		if (numThreads > 1) {
+			testInParallel();
+		}
+		else {
+			testSequentially();
+		}
+		elapsedTime = System.currentTimeMillis() - startTime;
+
+		// tear down
+		this.tearDown();
+
+		// Closing remarks
+		String throughput = numTests + " test(s) run in " + elapsedTime + " ms ("
+				+ ((elapsedTime > 0) ? (1000L * numTests / elapsedTime) : numTests)
+				+ " tests/s).";
+		if (numErrors == 0) {
+			logger.info(numLinesRead + " line(s) processed. " + numErrors
+					+ " error(s) found. " + throughput);
+		}
+		else {
+			logger.error(numLinesRead + " line(s) processed. " + numErrors
+					+ " error(s) found. " + throughput);
+
+		}
+	}
 
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Read pairs of lines and compare them, one pair at a time.
+	 */
+	private void testSequentially()
+	{
 		// Loop through the expressions in pairs
 		logger.debug("Reading and comparing expressions...");
 		while (true) {
@@ -164,6 +269,8 @@ public abstract class TestFileReader
 				}
 
 				// compare the results
+				numTests++;
+				testLineNumber.set(numLinesRead);
 				if (!assertEquals(inputStr, outputStr)) {
 					hasError = true;
 				}
@@ -173,6 +280,9 @@ public abstract class TestFileReader
 				logger.error(e.getMessage());
 				e.printStackTrace(System.err);
 			}
+			finally {
+				testLineNumber.remove();
+			}
 			if (hasError) {
 				numErrors++;
 				logger.error("Line " + (numLinesRead - 2) + ": input " + inputStr
@@ -182,24 +292,100 @@ public abstract class TestFileReader
 				}
 			}
 		}
+	}
 
-		// tear down
-		this.tearDown();
+	/**
+	 * Read all pairs of lines, then compare them on a pool of threads.
+	 */
+	private void testInParallel()
+	{
+		// Read and classify all lines in file order
+		logger.debug("Reading expressions...");
+		final List<TestPair> tests = new ArrayList<TestPair>();
+		try {
+			while (true) {
+				String inputStr = getNextLine();
+				String outputStr = getNextLine();
+				if ((inputStr == null) || (outputStr == null)) {
+					break;
+				}
+				tests.add(new TestPair(inputStr, outputStr, numLinesRead,
+						isStopOnFirstError()));
+			}
+		}
+		catch (IOException e) {
+			numErrors++;
+			logger.error(e.getMessage());
+			e.printStackTrace(System.err);
+		}
 
-		// Closing remarks
-		if (numErrors == 0) {
-			logger.info(numLinesRead + " line(s) processed. " + numErrors
-					+ " error(s) found.");
+		// Compare them; a worker stops as soon as all test cases up to the first one
+		// that stops the run have been claimed
+		logger.debug("Comparing " + tests.size() + " expressions on " + numThreads
+				+ " threads...");
+		final AtomicInteger next = new AtomicInteger(0);
+		final AtomicInteger stop = new AtomicInteger(tests.size());
+		Runnable worker = new Runnable()
+		{
+			public void run()
+			{
+				int i;
+				while ((i = next.getAndIncrement()) < stop.get()) {
+					TestPair test = tests.get(i);
+					test.run();
+					if (test.hasError && test.stopOnFirstError) {
+						// Lower the stop index to i
+						int current = stop.get();
+						while ((i < current) && !stop.compareAndSet(current, i)) {
+							current = stop.get();
+						}
+					}
+				}
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int t = 0; t < numThreads; t++) {
+				workers.add(executor.submit(worker));
+			}
+			for (Future<?> future : workers) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SystemException("Interrupted while running tests from "
+					+ fileName);
+		}
+		catch (ExecutionException e) {
+			throw new SystemException("Test runner failed: " + e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
 		}
-		else {
-			logger.error(numLinesRead + " line(s) processed. " + numErrors
-					+ " error(s) found.");
 
+		// Report the results in file order, up to and including the test case that
+		// stopped the run
+		int last = Math.min(stop.get(), tests.size() - 1);
+		for (int i = 0; i <= last; i++) {
+			TestPair test = tests.get(i);
+			numTests++;
+			if (test.exception != null) {
+				logger.error(test.exception.getMessage());
+				test.exception.printStackTrace(System.err);
+			}
+			if (test.hasError) {
+				numErrors++;
+				logger.error("Line " + (test.numLinesRead - 2) + ": input "
+						+ test.inputStr + " output " + test.outputStr);
+			}
+		}
+		if (stop.get() < tests.size()) {
+			numLinesRead = tests.get(last).numLinesRead;
 		}
 	}
 
-	// ========================= PRIVATE METHODS ===========================
-
 	/**
 	 * Parses a single line from the reader and trim it.
 	 * 
@@ -211,6 +397,9 @@ public abstract class TestFileReader
 	 */
 	private String getNextLine() throws IOException
 	{
+		if (suite != null) {
+			return getNextCompiledLine();
+		}
 		String line;
 
 		// Cycle till a valid line is found
@@ -225,7 +414,6 @@ public abstract class TestFileReader
 			numLinesRead++;
 
 			// Parse the line
-			LineReaderMatcher matcher = new LineReaderMatcher(target);
 			matcher.match(line);
 			// Target might have been cloned so need to update the reference
 			target = matcher.getTarget();
@@ -248,6 +436,91 @@ public abstract class TestFileReader
 		return line;
 	}
 
+	/**
+	 * A pair of test file lines to compare in parallel mode.
+	 */
+	private class TestPair
+	{
+		// Test input line
+		final String inputStr;
+
+		// Expected output line
+		final String outputStr;
+
+		// Number of lines read after reading this pair
+		final int numLinesRead;
+
+		// Value of the stop-on-first-error parameter when this pair was read
+		final boolean stopOnFirstError;
+
+		// Comparison outputs
+		boolean hasError;
+
+		Exception exception;
+
+		/**
+		 * @param inputStr
+		 *            test input line
+		 * @param outputStr
+		 *            expected output line
+		 * @param numLinesRead
+		 *            number of lines read after reading this pair
+		 * @param stopOnFirstError
+		 *            value of the stop-on-first-error parameter when this pair was read
+		 */
+		TestPair(String inputStr, String outputStr, int numLinesRead,
+				boolean stopOnFirstError)
+		{
+			super();
+			this.inputStr = inputStr;
+			this.outputStr = outputStr;
+			this.numLinesRead = numLinesRead;
+			this.stopOnFirstError = stopOnFirstError;
+		}
+
+		/**
+		 * Compare the lines.
+		 */
+		void run()
+		{
+			testLineNumber.set(numLinesRead);
+			try {
+				hasError = !assertEquals(inputStr, outputStr);
+			}
+			catch (Exception e) {
+				hasError = true;
+				exception = e;
+			}
+			finally {
+				testLineNumber.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the next data line of the compiled suite, applying the parameter settings
+	 * that precede it.
+	 * 
+	 * @return line string representation. Returns <code>null</code> when the
+	 *         end of the suite is reached.
+	 */
+	private String getNextCompiledLine()
+	{
+		List<CompiledTestSuite.Line> lines = suite.getLines();
+		while (nextCompiledLine < lines.size()) {
+			CompiledTestSuite.Line line = lines.get(nextCompiledLine++);
+			numLinesRead = line.getLineNumber();
+			if (line.getLineID() == LineID.PARAM_SET) {
+				target.setParameter(line.getText(), line.getValue());
+			}
+			else {
+				return line.getText();
+			}
+		}
+		numLinesRead = suite.getNumLines();
+		return null;
+	}
+
 	// ========================= GETTERS & SETTERS =========================
 
 	/**
@@ -267,6 +540,10 @@ public abstract class TestFileReader
 	}
 
 	/**
+	 * Returns the number of lines read. Only meaningful after <code>test()</code>
+	 * returns: in parallel mode, all lines are read before any test case runs. Use
+	 * {@link #getTestLineNumber()} to identify the test case being run.
+	 * 
 	 * @return the numLinesRead
 	 */
 	public int getNumLinesRead()
@@ -274,6 +551,79 @@ public abstract class TestFileReader
 		return numLinesRead;
 	}
 
+	/**
+	 * Returns the line number of the test case that the calling thread is running: the
+	 * number of lines read up to and including the test case's expected output line.
+	 * Outside a test case, returns <code>getNumLinesRead()</code>.
+	 * 
+	 * @return the line number of the current test case
+	 */
+	public int getTestLineNumber()
+	{
+		Integer line = testLineNumber.get();
+		return (line == null) ? numLinesRead : line;
+	}
+
+	/**
+	 * @return the number of test cases run by the last call to <code>test()</code>
+	 */
+	public int getNumTests()
+	{
+		return numTests;
+	}
+
+	/**
+	 * @return the time the last call to <code>test()</code> took to read and run the
+	 *         test cases, in milliseconds
+	 */
+	public long getElapsedTime()
+	{
+		return elapsedTime;
+	}
+
+	/**
+	 * @return the number of threads that run test cases
+	 */
+	public int getNumThreads()
+	{
+		return numThreads;
+	}
+
+	/**
+	 * @param numThreads
+	 *            the number of threads that run test cases; 1 runs them on the
+	 *            calling thread
+	 * @throws SystemException
+	 *             if <code>numThreads</code> is more than one and this reader is not
+	 *             thread-safe
+	 */
+	public void setNumThreads(int numThreads)
+	{
+		if ((numThreads > 1) && !isThreadSafe()) {
+			throw new SystemException(getClass().getName()
+					+ " is not thread-safe and cannot run test cases on " + numThreads
+					+ " threads");
+		}
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * @return true if lines are read from a compiled suite instead of being parsed
+	 */
+	public boolean isPrecompiled()
+	{
+		return precompiled;
+	}
+
+	/**
+	 * @param precompiled
+	 *            read lines from a compiled suite instead of parsing them
+	 */
+	public void setPrecompiled(boolean precompiled)
+	{
+		this.precompiled = precompiled;
+	}
+
 	/**
 	 * @return
 	 * @see net.ruready.common.junit.entity.LineReaderTarget#isStopOnFirstError()
@@ -0,0 +1,590 @@
+/*****************************************************************************************
+ * Source File: CompiledTestSuite.java
+ ****************************************************************************************/
+package net.ruready.common.junit.manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import net.ruready.common.junit.entity.LineID;
+import net.ruready.common.junit.entity.LineReaderTarget;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A test data file whose lines have been classified once by {@link LineReaderMatcher},
+ * so that the test cases can be run again without tokenizing and parsing the file. A
+ * compiled suite holds the data lines and the parameter settings of the file, in file
+ * order, each with its line number; empty lines and lines that do not parse are left
+ * out.
+ * <p>
+ * A suite is saved in a compact binary file together with the length and checksum of
+ * the source file it was compiled from; {@link #load(File, File)} recompiles the source
+ * if the binary file is missing or stale. Also the command-line entry point that
+ * compiles a test data file:
+ *
+ * <pre>
+ * java CompiledTestSuite &lt;test data file&gt; [&lt;compiled file&gt;]
+ * </pre>
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without permission
+ * from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class CompiledTestSuite
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	private static final Log logger = LogFactory.getLog(CompiledTestSuite.class);
+
+	/**
+	 * Suffix appended to a test data file's name to obtain the default name of its
+	 * compiled file.
+	 */
+	public static final String SUFFIX = ".compiled";
+
+	/**
+	 * Identifies compiled test suite files.
+	 */
+	private static final int MAGIC = 0x52555453;
+
+	/**
+	 * Version of the compiled file format; files of other versions are stale.
+	 */
+	private static final short VERSION = 1;
+
+	/**
+	 * Encoding of the strings of a compiled file.
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// ========================= FIELDS ====================================
+
+	// Length of the source file
+	private final long sourceLength;
+
+	// Checksum of the source file
+	private final long sourceChecksum;
+
+	// Number of lines of the source file
+	private final int numLines;
+
+	// Data lines and parameter settings, in file order
+	private final List<Line> lines;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a compiled suite.
+	 *
+	 * @param sourceLength
+	 *            length of the source file
+	 * @param sourceChecksum
+	 *            checksum of the source file
+	 * @param numLines
+	 *            number of lines of the source file
+	 * @param lines
+	 *            data lines and parameter settings, in file order
+	 */
+	private CompiledTestSuite(long sourceLength, long sourceChecksum, int numLines,
+			List<Line> lines)
+	{
+		super();
+		this.sourceLength = sourceLength;
+		this.sourceChecksum = sourceChecksum;
+		this.numLines = numLines;
+		this.lines = Collections.unmodifiableList(lines);
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Compile a test data file.
+	 *
+	 * @param source
+	 *            test data file
+	 * @return compiled suite
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public static CompiledTestSuite compile(File source) throws IOException
+	{
+		return compile(readFully(source));
+	}
+
+	/**
+	 * Load the compiled suite of a test data file from a compiled file. If the compiled
+	 * file is missing, of another format version, or was compiled from a different
+	 * version of the test data file, the test data file is compiled and the compiled
+	 * file is rewritten; a failure to rewrite it is logged and ignored.
+	 *
+	 * @param source
+	 *            test data file
+	 * @param compiled
+	 *            compiled file
+	 * @return compiled suite
+	 * @throws IOException
+	 *             if the test data file could not be read
+	 */
+	public static CompiledTestSuite load(File source, File compiled) throws IOException
+	{
+		byte[] bytes = readFully(source);
+		long checksum = checksum(bytes);
+		if (compiled.isFile())
+		{
+			try
+			{
+				CompiledTestSuite suite = read(compiled);
+				if ((suite.sourceLength == bytes.length)
+						&& (suite.sourceChecksum == checksum))
+				{
+					return suite;
+				}
+				logger.info("Compiled test suite " + compiled + " is stale");
+			}
+			catch (IOException e)
+			{
+				logger.info("Could not read compiled test suite " + compiled + ": "
+						+ e.getMessage());
+			}
+		}
+
+		CompiledTestSuite suite = compile(bytes);
+		try
+		{
+			suite.write(compiled);
+			logger.info("Compiled " + source + " into " + compiled);
+		}
+		catch (IOException e)
+		{
+			logger.warn("Could not write compiled test suite " + compiled + ": "
+					+ e.getMessage());
+		}
+		return suite;
+	}
+
+	/**
+	 * Read a compiled suite from a compiled file.
+	 *
+	 * @param compiled
+	 *            compiled file
+	 * @return compiled suite
+	 * @throws IOException
+	 *             if the file could not be read or is not a compiled suite of the current
+	 *             format version
+	 */
+	public static CompiledTestSuite read(File compiled) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(compiled)));
+		try
+		{
+			if ((in.readInt() != MAGIC) || (in.readShort() != VERSION))
+			{
+				throw new IOException("Not a compiled test suite of version " + VERSION);
+			}
+			long sourceLength = in.readLong();
+			long sourceChecksum = in.readLong();
+			int numLines = in.readInt();
+			int size = in.readInt();
+			List<Line> lines = new ArrayList<Line>(size);
+			int lineNumber = 0;
+			for (int i = 0; i < size; i++)
+			{
+				int header = readVarInt(in);
+				lineNumber += header >>> 1;
+				if ((header & 1) == 0)
+				{
+					lines.add(new Line(LineID.DATA, lineNumber, readString(in), null));
+				}
+				else
+				{
+					lines.add(new Line(LineID.PARAM_SET, lineNumber, readString(in),
+							readString(in)));
+				}
+			}
+			return new CompiledTestSuite(sourceLength, sourceChecksum, numLines, lines);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Write this suite to a compiled file.
+	 *
+	 * @param compiled
+	 *            compiled file
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	public void write(File compiled) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(compiled)));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeLong(sourceLength);
+			out.writeLong(sourceChecksum);
+			out.writeInt(numLines);
+			out.writeInt(lines.size());
+			// Each line: (line number gap << 1 | is parameter setting), then its strings
+			int lineNumber = 0;
+			for (Line line : lines)
+			{
+				boolean paramSet = (line.lineID == LineID.PARAM_SET);
+				writeVarInt(out, ((line.lineNumber - lineNumber) << 1) | (paramSet ? 1 : 0));
+				lineNumber = line.lineNumber;
+				writeString(out, line.text);
+				if (paramSet)
+				{
+					writeString(out, line.value);
+				}
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Compile a test data file into a compiled file.
+	 *
+	 * @param args
+	 *            test data file, and optionally the compiled file (defaults to the test
+	 *            data file's name followed by {@link #SUFFIX})
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if ((args.length < 1) || (args.length > 2))
+		{
+			System.err.println("Usage: CompiledTestSuite <test data file> [<compiled file>]");
+			System.exit(1);
+		}
+		File source = new File(args[0]);
+		File compiled = new File((args.length > 1) ? args[1] : args[0] + SUFFIX);
+		compile(source).write(compiled);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Compile the contents of a test data file: classify each trimmed line, as
+	 * <code>TestFileReader</code> does, and keep the data lines and the parameters set by
+	 * parameter lines.
+	 *
+	 * @param bytes
+	 *            contents of the file
+	 * @return compiled suite
+	 * @throws IOException
+	 *             if the contents could not be decoded
+	 */
+	private static CompiledTestSuite compile(byte[] bytes) throws IOException
+	{
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new ByteArrayInputStream(bytes)));
+		LineReaderMatcher matcher = new LineReaderMatcher(new LineReaderTarget());
+		List<Line> lines = new ArrayList<Line>();
+		int numLines = 0;
+		String s;
+		while ((s = reader.readLine()) != null)
+		{
+			s = s.trim();
+			numLines++;
+			Map<String, String> before = parameters(matcher.getTarget());
+			matcher.match(s);
+			if (!matcher.isCompleteMatch())
+			{
+				continue;
+			}
+			LineReaderTarget target = matcher.getTarget();
+			if (target.getLineID() == LineID.DATA)
+			{
+				lines.add(new Line(LineID.DATA, numLines, s, null));
+			}
+			else if (target.getLineID() == LineID.PARAM_SET)
+			{
+				for (Map.Entry<String, String> entry : parameters(target).entrySet())
+				{
+					if (!entry.getValue().equals(before.get(entry.getKey())))
+					{
+						lines.add(new Line(LineID.PARAM_SET, numLines, entry.getKey(),
+								entry.getValue()));
+					}
+				}
+			}
+		}
+		return new CompiledTestSuite(bytes.length, checksum(bytes), numLines, lines);
+	}
+
+	/**
+	 * Return a copy of the parameters of a target.
+	 *
+	 * @param target
+	 *            line reader target
+	 * @return parameter name -> value
+	 */
+	private static Map<String, String> parameters(LineReaderTarget target)
+	{
+		Map<String, String> parameters = new HashMap<String, String>();
+		for (String name : target.getParameterNames())
+		{
+			parameters.put(name, target.getParameter(name));
+		}
+		return parameters;
+	}
+
+	/**
+	 * Read the contents of a file.
+	 *
+	 * @param file
+	 *            file
+	 * @return contents of the file
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	private static byte[] readFully(File file) throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] bytes = new byte[(int) file.length()];
+			int n = 0;
+			int count;
+			while ((n < bytes.length) && ((count = in.read(bytes, n, bytes.length - n)) > 0))
+			{
+				n += count;
+			}
+			if (n < bytes.length)
+			{
+				throw new IOException("File " + file + " was truncated while reading it");
+			}
+			return bytes;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Write a non-negative integer in as few bytes as possible: seven bits per byte, low
+	 * bits first, with the high bit set on all but the last byte.
+	 *
+	 * @param out
+	 *            stream to write to
+	 * @param value
+	 *            non-negative integer
+	 * @throws IOException
+	 *             if the stream fails
+	 */
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException
+	{
+		while ((value & ~0x7f) != 0)
+		{
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Read an integer written by {@link #writeVarInt(DataOutputStream, int)}.
+	 *
+	 * @param in
+	 *            stream to read from
+	 * @return non-negative integer
+	 * @throws IOException
+	 *             if the stream fails or ends
+	 */
+	private static int readVarInt(DataInputStream in) throws IOException
+	{
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new IOException("Malformed compiled test suite");
+	}
+
+	/**
+	 * Write a string as its UTF-8 length and bytes.
+	 *
+	 * @param out
+	 *            stream to write to
+	 * @param s
+	 *            string
+	 * @throws IOException
+	 *             if the stream fails
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		byte[] bytes = s.getBytes(UTF8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read a string written by {@link #writeString(DataOutputStream, String)}.
+	 *
+	 * @param in
+	 *            stream to read from
+	 * @return string
+	 * @throws IOException
+	 *             if the stream fails or ends
+	 */
+	private static String readString(DataInputStream in) throws IOException
+	{
+		byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Return the CRC-32 checksum of a file's contents.
+	 *
+	 * @param bytes
+	 *            contents of the file
+	 * @return checksum
+	 */
+	private static long checksum(byte[] bytes)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return crc.getValue();
+	}
+
+	/**
+	 * A data line or a parameter setting of a compiled suite.
+	 */
+	public static final class Line
+	{
+		// Type of line; DATA or PARAM_SET
+		private final LineID lineID;
+
+		// Number of the line in the test data file, starting at 1
+		private final int lineNumber;
+
+		// Trimmed data line, or parameter name
+		private final String text;
+
+		// Parameter value
+		private final String value;
+
+		/**
+		 * @param lineID
+		 *            type of line; DATA or PARAM_SET
+		 * @param lineNumber
+		 *            number of the line in the test data file, starting at 1
+		 * @param text
+		 *            trimmed data line, or parameter name
+		 * @param value
+		 *            parameter value
+		 */
+		Line(LineID lineID, int lineNumber, String text, String value)
+		{
+			super();
+			this.lineID = lineID;
+			this.lineNumber = lineNumber;
+			this.text = text;
+			this.value = value;
+		}
+
+		/**
+		 * @return the type of line; DATA or PARAM_SET
+		 */
+		public LineID getLineID()
+		{
+			return lineID;
+		}
+
+		/**
+		 * @return the number of the line in the test data file, starting at 1
+		 */
+		public int getLineNumber()
+		{
+			return lineNumber;
+		}
+
+		/**
+		 * @return the trimmed data line, or the parameter name
+		 */
+		public String getText()
+		{
+			return text;
+		}
+
+		/**
+		 * @return the parameter value; <code>null</code> for a data line
+		 */
+		public String getValue()
+		{
+			return value;
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the number of lines of the test data file
+	 */
+	public int getNumLines()
+	{
+		return numLines;
+	}
+
+	/**
+	 * @return the data lines and parameter settings, in file order
+	 */
+	public List<Line> getLines()
+	{
+		return lines;
+	}
+}
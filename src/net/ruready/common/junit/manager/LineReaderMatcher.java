@@ -46,15 +46,33 @@ public class LineReaderMatcher implements AbstractMatcher
 	@SuppressWarnings("unused")
 	private static final Log logger = LogFactory.getLog(LineReaderMatcher.class);
 
+	/**
+	 * The parser generated from the test data line compiler's grammar. Compiled once when
+	 * this class is loaded; its grammar is frozen and its assemblers keep no state, so it
+	 * is shared by all matchers of all threads.
+	 */
+	private static final Parser PARSER = new LineReaderParser(new LineReaderCompiler()
+			.parser());
+
+	/**
+	 * Per-thread tokenizers, configured once by {@link LineReaderCompiler#tokenizer()}
+	 * and reset to each line matched by the thread.
+	 */
+	private static final ThreadLocal<Tokenizer> TOKENIZERS = new ThreadLocal<Tokenizer>()
+	{
+		@Override
+		protected Tokenizer initialValue()
+		{
+			return LineReaderCompiler.tokenizer();
+		}
+	};
+
 	// ========================= FIELDS ====================================
 
 	// -------------------------------------------------
 	// Required input
 	// -------------------------------------------------
 
-	// the parser generated by the parametric evaluation compiler
-	private final Parser parser = new LineReaderCompiler().parser();
-
 	// target object; is also an output variable
 	private LineReaderTarget target;
 
@@ -68,7 +86,8 @@ public class LineReaderMatcher implements AbstractMatcher
 	// ========================= CONSTRUCTORS ==============================
 
 	/**
-	 * Initialize an arithmetic parser from options.
+	 * Initialize a line matcher. A matcher may match any number of lines; the target
+	 * carries parameters from one line to the next.
 	 * 
 	 * @param target
 	 *            current target; may be updated after matching
@@ -86,9 +105,9 @@ public class LineReaderMatcher implements AbstractMatcher
 	 */
 	public void match(String s)
 	{
-		// Initialize and customize the tokenizer
-		Tokenizer t = LineReaderCompiler.tokenizer();
-		t.setString(s);
+		// Reset this thread's tokenizer to the line
+		Tokenizer t = TOKENIZERS.get();
+		t.setSource(s);
 		TokenAssembly in = new TokenAssembly(t);
 
 		// TokenAssembly copy = (TokenAssembly)in.clone();
@@ -115,7 +134,7 @@ public class LineReaderMatcher implements AbstractMatcher
 		// logger.debug("-------------- PARAM EVAL begin -----------");
 		// logger.debug("Original string: " + s);
 		// logger.debug("in: " + in);
-		Match out = parser.completeMatch(in);
+		Match out = PARSER.completeMatch(in);
 		// logger.debug("out: " + out);
 		// logger.debug("best Match: " + parser.bestMatch(in));
 
@@ -0,0 +1,829 @@
+/*****************************************************************************************
+ * Source File: LineReaderParser.java
+ ****************************************************************************************/
+package net.ruready.common.junit.manager;
+
+import net.ruready.common.parser.core.assembler.Assembler;
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.manager.GeneratedParser;
+import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.tokens.Token;
+
+/**
+ * Recursive-descent parser of the grammar <code>line</code>, generated by
+ * <code>TokenParserSourceGenerator</code>.
+ * <p>
+ * Do not edit; regenerate it when the grammar changes.
+ */
+public class LineReaderParser extends GeneratedParser
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * Signature of the grammar this parser was generated from.
+	 */
+	private static final long SIGNATURE = 0xf4372aad72895df7L;
+
+	// ========================= FIELDS ====================================
+
+	// Empty
+	private final Assembler asm1 = assembler(1);
+
+	// dataLine
+	private final Assembler asm2 = assembler(2);
+
+	// nonReserved
+	private final Assembler asm3 = assembler(3);
+
+	// Word
+	private final Parser node4 = node(4);
+
+	// /
+	private final Object elem5 = element(5);
+	private final Parser node5 = node(5);
+
+	// *
+	private final Object elem6 = element(6);
+	private final Parser node6 = node(6);
+
+	// token
+	private final Assembler asm8 = assembler(8);
+
+	// Word
+	private final Parser node10 = node(10);
+
+	// /
+	private final Object elem11 = element(11);
+	private final Parser node11 = node(11);
+
+	// *
+	private final Object elem12 = element(12);
+	private final Parser node12 = node(12);
+
+	// " "
+	private final Object elem14 = element(14);
+	private final Parser node14 = node(14);
+
+	// $
+	private final Object elem15 = element(15);
+	private final Parser node15 = node(15);
+
+	// =
+	private final Object elem16 = element(16);
+	private final Parser node16 = node(16);
+
+	// paramSetLine
+	private final Assembler asm17 = assembler(17);
+
+	// $
+	private final Object elem18 = element(18);
+	private final Parser node18 = node(18);
+
+	// " "
+	private final Object elem20 = element(20);
+	private final Parser node20 = node(20);
+
+	// Word
+	private final Parser node21 = node(21);
+
+	// =
+	private final Object elem22 = element(22);
+	private final Parser node22 = node(22);
+
+	// Word
+	private final Parser node23 = node(23);
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * @param grammar
+	 *            the grammar this parser was generated from
+	 */
+	public LineReaderParser(Parser grammar)
+	{
+		super(grammar, SIGNATURE);
+	}
+
+	// ========================= IMPLEMENTATION: GeneratedParser ===========
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.GeneratedParser#parse(net.ruready.common.parser.core.entity.Matches)
+	 */
+	@Override
+	protected Matches parse(Matches in)
+	{
+		return parseLine(in);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Match line.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseLine(Matches in)
+	{
+		// line
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = new Matches();
+			// Empty
+			Matches m2;
+			if (stop(in))
+			{
+				m2 = none(in);
+			}
+			else
+			{
+				Matches m3 = in.clone();
+				assemble(asm1, m3);
+				m2 = done(in, m3);
+			}
+			m1.addAll(m2);
+			Matches m4 = parseDataLine(in);
+			m1.addAll(m4);
+			Matches m5 = parseParamSetLine(in);
+			m1.addAll(m5);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match dataLine.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseDataLine(Matches in)
+	{
+		// dataLine
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = in;
+			seq2:
+			{
+				Matches m3 = parseNonReserved(m1);
+				m1 = m3;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				// Repetition
+				Matches m4;
+				if (stop(m1))
+				{
+					m4 = none(m1);
+				}
+				else
+				{
+					Matches m5 = m1.clone();
+					Matches w6 = m1;
+					while (!w6.isEmpty())
+					{
+						Matches m7 = parseToken(w6);
+						w6 = m7;
+						m5.addAll(w6);
+					}
+					m4 = done(m1, m5);
+				}
+				m1 = m4;
+			}
+			assemble(asm2, m1);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match nonReserved.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseNonReserved(Matches in)
+	{
+		// nonReserved
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = new Matches();
+			// Word
+			Matches m2;
+			if (stop(in))
+			{
+				m2 = none(in);
+			}
+			else
+			{
+				Matches m3 = new Matches();
+				for (Assembly a4 : in.getAssemblies())
+				{
+					if (!a4.hasMoreElements())
+					{
+						fail(in, node4, a4);
+						continue;
+					}
+					Object o4 = a4.peek();
+					if (((Token) o4).isWord())
+					{
+						Assembly b4 = a4.clone();
+						b4.push(b4.nextElement());
+						m3.addAssembly(b4);
+					}
+					else
+					{
+						fail(in, node4, a4);
+					}
+				}
+				m2 = done(in, m3);
+			}
+			m1.addAll(m2);
+			// /
+			Matches m4;
+			if (stop(in))
+			{
+				m4 = none(in);
+			}
+			else
+			{
+				Matches m5 = new Matches();
+				for (Assembly a5 : in.getAssemblies())
+				{
+					if (!a5.hasMoreElements())
+					{
+						fail(in, node5, a5);
+						continue;
+					}
+					Object o5 = a5.peek();
+					if ((o5 == elem5) || elem5.equals(o5))
+					{
+						Assembly b5 = a5.clone();
+						b5.push(b5.nextElement());
+						m5.addAssembly(b5);
+					}
+					else
+					{
+						fail(in, node5, a5);
+					}
+				}
+				m4 = done(in, m5);
+			}
+			m1.addAll(m4);
+			// *
+			Matches m6;
+			if (stop(in))
+			{
+				m6 = none(in);
+			}
+			else
+			{
+				Matches m7 = new Matches();
+				for (Assembly a6 : in.getAssemblies())
+				{
+					if (!a6.hasMoreElements())
+					{
+						fail(in, node6, a6);
+						continue;
+					}
+					Object o6 = a6.peek();
+					if ((o6 == elem6) || elem6.equals(o6))
+					{
+						Assembly b6 = a6.clone();
+						b6.push(b6.nextElement());
+						m7.addAssembly(b6);
+					}
+					else
+					{
+						fail(in, node6, a6);
+					}
+				}
+				m6 = done(in, m7);
+			}
+			m1.addAll(m6);
+			assemble(asm3, m1);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match token.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseToken(Matches in)
+	{
+		// token
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = new Matches();
+			Matches m2 = parseNonReserved_9(in);
+			m1.addAll(m2);
+			Matches m3 = parseReservedSymbol(in);
+			m1.addAll(m3);
+			assemble(asm8, m1);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match nonReserved.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseNonReserved_9(Matches in)
+	{
+		// nonReserved
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = new Matches();
+			// Word
+			Matches m2;
+			if (stop(in))
+			{
+				m2 = none(in);
+			}
+			else
+			{
+				Matches m3 = new Matches();
+				for (Assembly a10 : in.getAssemblies())
+				{
+					if (!a10.hasMoreElements())
+					{
+						fail(in, node10, a10);
+						continue;
+					}
+					Object o10 = a10.peek();
+					if (((Token) o10).isWord())
+					{
+						Assembly b10 = a10.clone();
+						b10.push(b10.nextElement());
+						m3.addAssembly(b10);
+					}
+					else
+					{
+						fail(in, node10, a10);
+					}
+				}
+				m2 = done(in, m3);
+			}
+			m1.addAll(m2);
+			// /
+			Matches m4;
+			if (stop(in))
+			{
+				m4 = none(in);
+			}
+			else
+			{
+				Matches m5 = new Matches();
+				for (Assembly a11 : in.getAssemblies())
+				{
+					if (!a11.hasMoreElements())
+					{
+						fail(in, node11, a11);
+						continue;
+					}
+					Object o11 = a11.peek();
+					if ((o11 == elem11) || elem11.equals(o11))
+					{
+						Assembly b11 = a11.clone();
+						b11.push(b11.nextElement());
+						m5.addAssembly(b11);
+					}
+					else
+					{
+						fail(in, node11, a11);
+					}
+				}
+				m4 = done(in, m5);
+			}
+			m1.addAll(m4);
+			// *
+			Matches m6;
+			if (stop(in))
+			{
+				m6 = none(in);
+			}
+			else
+			{
+				Matches m7 = new Matches();
+				for (Assembly a12 : in.getAssemblies())
+				{
+					if (!a12.hasMoreElements())
+					{
+						fail(in, node12, a12);
+						continue;
+					}
+					Object o12 = a12.peek();
+					if ((o12 == elem12) || elem12.equals(o12))
+					{
+						Assembly b12 = a12.clone();
+						b12.push(b12.nextElement());
+						m7.addAssembly(b12);
+					}
+					else
+					{
+						fail(in, node12, a12);
+					}
+				}
+				m6 = done(in, m7);
+			}
+			m1.addAll(m6);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match reservedSymbol.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseReservedSymbol(Matches in)
+	{
+		// reservedSymbol
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = new Matches();
+			// " "
+			Matches m2;
+			if (stop(in))
+			{
+				m2 = none(in);
+			}
+			else
+			{
+				Matches m3 = new Matches();
+				for (Assembly a14 : in.getAssemblies())
+				{
+					if (!a14.hasMoreElements())
+					{
+						fail(in, node14, a14);
+						continue;
+					}
+					Object o14 = a14.peek();
+					if ((o14 == elem14) || elem14.equals(o14))
+					{
+						Assembly b14 = a14.clone();
+						b14.push(b14.nextElement());
+						m3.addAssembly(b14);
+					}
+					else
+					{
+						fail(in, node14, a14);
+					}
+				}
+				m2 = done(in, m3);
+			}
+			m1.addAll(m2);
+			// $
+			Matches m4;
+			if (stop(in))
+			{
+				m4 = none(in);
+			}
+			else
+			{
+				Matches m5 = new Matches();
+				for (Assembly a15 : in.getAssemblies())
+				{
+					if (!a15.hasMoreElements())
+					{
+						fail(in, node15, a15);
+						continue;
+					}
+					Object o15 = a15.peek();
+					if ((o15 == elem15) || elem15.equals(o15))
+					{
+						Assembly b15 = a15.clone();
+						b15.push(b15.nextElement());
+						m5.addAssembly(b15);
+					}
+					else
+					{
+						fail(in, node15, a15);
+					}
+				}
+				m4 = done(in, m5);
+			}
+			m1.addAll(m4);
+			// =
+			Matches m6;
+			if (stop(in))
+			{
+				m6 = none(in);
+			}
+			else
+			{
+				Matches m7 = new Matches();
+				for (Assembly a16 : in.getAssemblies())
+				{
+					if (!a16.hasMoreElements())
+					{
+						fail(in, node16, a16);
+						continue;
+					}
+					Object o16 = a16.peek();
+					if ((o16 == elem16) || elem16.equals(o16))
+					{
+						Assembly b16 = a16.clone();
+						b16.push(b16.nextElement());
+						m7.addAssembly(b16);
+					}
+					else
+					{
+						fail(in, node16, a16);
+					}
+				}
+				m6 = done(in, m7);
+			}
+			m1.addAll(m6);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match paramSetLine.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseParamSetLine(Matches in)
+	{
+		// paramSetLine
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = in;
+			seq2:
+			{
+				// $
+				Matches m3;
+				if (stop(m1))
+				{
+					m3 = none(m1);
+				}
+				else
+				{
+					Matches m4 = new Matches();
+					for (Assembly a18 : m1.getAssemblies())
+					{
+						if (!a18.hasMoreElements())
+						{
+							fail(m1, node18, a18);
+							continue;
+						}
+						Object o18 = a18.peek();
+						if ((o18 == elem18) || elem18.equals(o18))
+						{
+							Assembly b18 = a18.clone();
+							b18.nextElement();
+							m4.addAssembly(b18);
+						}
+						else
+						{
+							fail(m1, node18, a18);
+						}
+					}
+					m3 = done(m1, m4);
+				}
+				m1 = m3;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				Matches m5 = parseNode19(m1);
+				m1 = m5;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				// Word
+				Matches m6;
+				if (stop(m1))
+				{
+					m6 = none(m1);
+				}
+				else
+				{
+					Matches m7 = new Matches();
+					for (Assembly a21 : m1.getAssemblies())
+					{
+						if (!a21.hasMoreElements())
+						{
+							fail(m1, node21, a21);
+							continue;
+						}
+						Object o21 = a21.peek();
+						if (((Token) o21).isWord())
+						{
+							Assembly b21 = a21.clone();
+							b21.push(b21.nextElement());
+							m7.addAssembly(b21);
+						}
+						else
+						{
+							fail(m1, node21, a21);
+						}
+					}
+					m6 = done(m1, m7);
+				}
+				m1 = m6;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				Matches m8 = parseNode19(m1);
+				m1 = m8;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				// =
+				Matches m9;
+				if (stop(m1))
+				{
+					m9 = none(m1);
+				}
+				else
+				{
+					Matches m10 = new Matches();
+					for (Assembly a22 : m1.getAssemblies())
+					{
+						if (!a22.hasMoreElements())
+						{
+							fail(m1, node22, a22);
+							continue;
+						}
+						Object o22 = a22.peek();
+						if ((o22 == elem22) || elem22.equals(o22))
+						{
+							Assembly b22 = a22.clone();
+							b22.nextElement();
+							m10.addAssembly(b22);
+						}
+						else
+						{
+							fail(m1, node22, a22);
+						}
+					}
+					m9 = done(m1, m10);
+				}
+				m1 = m9;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				Matches m11 = parseNode19(m1);
+				m1 = m11;
+				if (m1.isEmpty())
+				{
+					break seq2;
+				}
+				// Word
+				Matches m12;
+				if (stop(m1))
+				{
+					m12 = none(m1);
+				}
+				else
+				{
+					Matches m13 = new Matches();
+					for (Assembly a23 : m1.getAssemblies())
+					{
+						if (!a23.hasMoreElements())
+						{
+							fail(m1, node23, a23);
+							continue;
+						}
+						Object o23 = a23.peek();
+						if (((Token) o23).isWord())
+						{
+							Assembly b23 = a23.clone();
+							b23.push(b23.nextElement());
+							m13.addAssembly(b23);
+						}
+						else
+						{
+							fail(m1, node23, a23);
+						}
+					}
+					m12 = done(m1, m13);
+				}
+				m1 = m12;
+			}
+			assemble(asm17, m1);
+			out = done(in, m1);
+		}
+		return out;
+	}
+
+	/**
+	 * Match Repetition.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from the match
+	 */
+	private Matches parseNode19(Matches in)
+	{
+		// Repetition
+		Matches out;
+		if (stop(in))
+		{
+			out = none(in);
+		}
+		else
+		{
+			Matches m1 = in.clone();
+			Matches w2 = in;
+			while (!w2.isEmpty())
+			{
+				// " "
+				Matches m3;
+				if (stop(w2))
+				{
+					m3 = none(w2);
+				}
+				else
+				{
+					Matches m4 = new Matches();
+					for (Assembly a20 : w2.getAssemblies())
+					{
+						if (!a20.hasMoreElements())
+						{
+							fail(w2, node20, a20);
+							continue;
+						}
+						Object o20 = a20.peek();
+						if ((o20 == elem20) || elem20.equals(o20))
+						{
+							Assembly b20 = a20.clone();
+							b20.nextElement();
+							m4.addAssembly(b20);
+						}
+						else
+						{
+							fail(w2, node20, a20);
+						}
+					}
+					m3 = done(w2, m4);
+				}
+				w2 = m3;
+				m1.addAll(w2);
+			}
+			out = done(in, m1);
+		}
+		return out;
+	}
+}
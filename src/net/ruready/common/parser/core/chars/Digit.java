@@ -3,10 +3,10 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.chars;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.manager.RandomInputGenerator;
 import net.ruready.common.parser.core.manager.Terminal;
 
 /**
@@ -32,23 +32,21 @@ public class Digit extends Terminal
 	}
 
 	/**
-	 * Create a set with one random digit.
+	 * Emit one random digit.
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	public List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		char c = (char) (10 * Math.random() + '0');
-		List<String> v = new ArrayList<String>();
-		v.add(new String(new char[]
+		char c = (char) (generator.getRandom().nextInt(10) + '0');
+		generator.emit(new String(new char[]
 		{
 			c
 		}));
-		return v;
 	}
 
 	/**
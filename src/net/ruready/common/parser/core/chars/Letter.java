@@ -3,10 +3,10 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.chars;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.manager.RandomInputGenerator;
 import net.ruready.common.parser.core.manager.Terminal;
 
 /*
@@ -39,23 +39,21 @@ public class Letter extends Terminal
 	}
 
 	/**
-	 * Create a set with one random letter.
+	 * Emit one random letter.
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	public List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		char c = (char) (26.0 * Math.random() + 'a');
-		List<String> v = new ArrayList<String>();
-		v.add(new String(new char[]
+		char c = (char) (generator.getRandom().nextInt(26) + 'a');
+		generator.emit(new String(new char[]
 		{
 			c
 		}));
-		return v;
 	}
 
 	/**
@@ -8,6 +8,8 @@ import java.util.Enumeration;
 
 import net.ruready.common.pointer.PubliclyCloneable;
 import net.ruready.common.stack.GenericStack;
+import net.ruready.common.stack.PersistentStack;
+import net.ruready.common.stack.UnmodifiableGenericStack;
 
 /**
  * An assembly maintains a stream of language elements along with stack and target
@@ -47,8 +49,9 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 
 	// ========================= FIELDS ====================================
 
-	// a place to keep track of consumption progress
-	protected GenericStack<Object> stack = new GenericStack<Object>();
+	// a place to keep track of consumption progress. The stack is immutable and is
+	// shared between an assembly and its clones; push() and pop() replace it.
+	protected PersistentStack<Object> stack = PersistentStack.empty();
 
 	/*
 	 * Another place to record progress; this is just an object. If a parser were
@@ -59,9 +62,19 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	 */
 	private PubliclyCloneable target;
 
+	/*
+	 * Is the target shared with other assemblies (copy-on-write). A shared target is
+	 * cloned the first time it is requested through getTarget(), so that the returned
+	 * object may be modified without affecting other assemblies.
+	 */
+	private boolean targetShared = false;
+
 	// which element is next
 	protected int index = 0;
 
+	// Profile that counts the clones of this assembly; shared with its clones
+	private ParserProfile profile;
+
 	// ========================= IMPLEMENTATION: Object ====================
 
 	/**
@@ -79,7 +92,9 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	// ========================= IMPLEMENTATION: PubliclyCloneable =========
 
 	/**
-	 * Return a copy of this object.
+	 * Return a copy of this object. This is an O(1) operation: the copy shares the
+	 * (immutable) stack with this object, and the target is shared copy-on-write, i.e. it
+	 * is only cloned when either assembly's <code>getTarget()</code> is called.
 	 * 
 	 * @return a copy of this object
 	 */
@@ -89,10 +104,14 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 		try
 		{
 			Assembly a = (Assembly) super.clone();
-			a.stack = stack.clone();
+			if (profile != null)
+			{
+				profile.cloned();
+			}
 			if (target != null)
 			{
-				a.target = (PubliclyCloneable) target.clone();
+				this.targetShared = true;
+				a.targetShared = true;
 			}
 			return a;
 		}
@@ -187,7 +206,9 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	 */
 	public Object pop()
 	{
-		return stack.pop();
+		Object top = stack.peek();
+		stack = stack.pop();
+		return top;
 	}
 
 	/**
@@ -198,7 +219,7 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	 */
 	public void push(Object o)
 	{
-		stack.push(o);
+		stack = stack.push(o);
 	}
 
 	/**
@@ -211,6 +232,7 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	public void setTarget(PubliclyCloneable target)
 	{
 		this.target = target;
+		this.targetShared = false;
 	}
 
 	/**
@@ -238,11 +260,30 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	// ========================= GETTERS & SETTERS =========================
 
 	/**
-	 * Returns this assembly's stack.
+	 * Returns a read-only snapshot of this assembly's stack. The stack is shared with
+	 * this assembly's clones and can no longer be changed through the returned object:
+	 * every method that would change it throws an
+	 * <code>UnsupportedOperationException</code>. Use <code>push()</code> and
+	 * <code>pop()</code> to change the stack, and <code>getPersistentStack()</code> to
+	 * read it without copying.
 	 * 
-	 * @return this assembly's stack
+	 * @return a read-only copy of this assembly's stack
+	 * @deprecated the returned stack is no longer live; use <code>push()</code>,
+	 *             <code>pop()</code> and <code>getPersistentStack()</code> instead
 	 */
+	@Deprecated
 	public GenericStack<Object> getStack()
+	{
+		return new UnmodifiableGenericStack<Object>(stack.toArray());
+	}
+
+	/**
+	 * Returns this assembly's stack as an immutable object that is shared with its
+	 * clones. This does not copy the stack.
+	 * 
+	 * @return this assembly's stack
+	 */
+	public PersistentStack<Object> getPersistentStack()
 	{
 		return stack;
 	}
@@ -254,11 +295,43 @@ public abstract class Assembly implements Enumeration<Object>, PubliclyCloneable
 	 * a web page object as its "target". As the parser recognizes markup commands like
 	 * <head>, it could apply its findings to the target.
 	 * 
+	 * <p>
+	 * If the target is shared with other assemblies, it is cloned first, so the returned
+	 * object may be freely modified. Do not hold on to the returned reference across a
+	 * call to <code>clone()</code>.
+	 * 
 	 * @return the target of this assembly
 	 */
 	public PubliclyCloneable getTarget()
 	{
+		if (targetShared)
+		{
+			target = (PubliclyCloneable) target.clone();
+			targetShared = false;
+		}
 		return target;
 	}
 
+	/**
+	 * Returns the target without taking ownership of it: a shared target is not cloned.
+	 * The returned object must not be modified. Useful for comparing assembly states.
+	 * 
+	 * @return the (possibly shared) target of this assembly
+	 */
+	public PubliclyCloneable peekTarget()
+	{
+		return target;
+	}
+
+	/**
+	 * Set the profile that counts the clones of this assembly and of its future clones.
+	 * 
+	 * @param profile
+	 *            profile; <code>null</code> to stop counting
+	 */
+	public void setProfile(ParserProfile profile)
+	{
+		this.profile = profile;
+	}
+
 }
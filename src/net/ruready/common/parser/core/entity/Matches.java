@@ -4,7 +4,11 @@
 package net.ruready.common.parser.core.entity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.ruready.common.exception.InternationalizableErrorMessage;
 import net.ruready.common.pointer.PubliclyCloneable;
@@ -47,6 +51,10 @@ public class Matches implements PubliclyCloneable
 	// Extraneous tokens removed from the syntax tree
 	private final List<InternationalizableErrorMessage> syntaxErrors;
 
+	// Optional per-parse state (packrat memo table, etc.) shared by all matches
+	// derived from the same top-level match call
+	private ParseContext context;
+
 	// ========================= CONSTRUCTORS ==============================
 
 	/**
@@ -122,6 +130,7 @@ public class Matches implements PubliclyCloneable
 		List<Assembly> copyAssemblies = Matches.elementClone(assemblies);
 		Matches copy = new Matches(copyAssemblies, new ArrayList<InternationalizableErrorMessage>(
 				syntaxErrors));
+		copy.context = context;
 		return copy;
 		// }
 		//
@@ -225,6 +234,99 @@ public class Matches implements PubliclyCloneable
 		return assemblies.isEmpty();
 	}
 
+	/**
+	 * Remove assemblies that are equivalent to an earlier assembly in this object: of the
+	 * same class, with the same number of elements consumed, equal stacks and equal
+	 * targets. The order of the remaining assemblies is preserved.
+	 * 
+	 * @return the number of assemblies removed
+	 */
+	public int deduplicate()
+	{
+		int n = assemblies.size();
+		if (n < 2)
+		{
+			return 0;
+		}
+		Set<ParseContext.MemoKey> seen = new HashSet<ParseContext.MemoKey>();
+		List<Assembly> unique = new ArrayList<Assembly>(n);
+		for (Assembly a : assemblies)
+		{
+			if (seen.add(new ParseContext.MemoKey(null, a)))
+			{
+				unique.add(a);
+			}
+		}
+		return replaceAssemblies(unique);
+	}
+
+	/**
+	 * Keep only the <code>n</code> assemblies that have consumed the most elements. Of
+	 * assemblies that have consumed equally many elements, the earlier ones are kept. The
+	 * order of the remaining assemblies is preserved.
+	 * 
+	 * @param n
+	 *            maximum number of assemblies to keep
+	 * @return the number of assemblies removed
+	 */
+	public int retainFurthest(int n)
+	{
+		final int size = assemblies.size();
+		if (size <= n)
+		{
+			return 0;
+		}
+		final int[] consumed = new int[size];
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+		{
+			consumed[i] = assemblies.get(i).elementsConsumed();
+			order[i] = i;
+		}
+		// Stable sort: furthest first, ties in original order
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				return consumed[b] - consumed[a];
+			}
+		});
+		boolean[] keep = new boolean[size];
+		for (int i = 0; i < n; i++)
+		{
+			keep[order[i]] = true;
+		}
+		List<Assembly> retained = new ArrayList<Assembly>(n);
+		for (int i = 0; i < size; i++)
+		{
+			if (keep[i])
+			{
+				retained.add(assemblies.get(i));
+			}
+		}
+		return replaceAssemblies(retained);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Replace the assemblies of this object by a subset of them.
+	 * 
+	 * @param subset
+	 *            assemblies to keep
+	 * @return the number of assemblies removed
+	 */
+	private int replaceAssemblies(List<Assembly> subset)
+	{
+		int removed = assemblies.size() - subset.size();
+		if (removed > 0)
+		{
+			assemblies.clear();
+			assemblies.addAll(subset);
+		}
+		return removed;
+	}
+
 	// ========================= STATIC METHODS ============================
 
 	/**
@@ -262,4 +364,21 @@ public class Matches implements PubliclyCloneable
 		return syntaxErrors;
 	}
 
+	/**
+	 * @return the per-parse context, or <code>null</code> if none was set
+	 */
+	public ParseContext getContext()
+	{
+		return context;
+	}
+
+	/**
+	 * @param context
+	 *            the per-parse context to set
+	 */
+	public void setContext(ParseContext context)
+	{
+		this.context = context;
+	}
+
 }
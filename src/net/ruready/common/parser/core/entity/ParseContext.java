@@ -0,0 +1,1178 @@
+/*****************************************************************************************
+ * Source File: ParseContext.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ruready.common.exception.InternationalizableErrorMessage;
+import net.ruready.common.rl.CommonNames;
+import net.ruready.common.stack.PersistentStack;
+import net.ruready.common.text.TextUtil;
+import net.ruready.common.util.HashCodeUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Per-parse state that travels with a <code>Matches</code> object through the parser
+ * graph. A context is created by the caller, handed to
+ * <code>Parser.bestMatch(Assembly, ParseContext)</code> or
+ * <code>Parser.completeMatch(Assembly, ParseContext)</code>, and may be inspected after
+ * the call returns.
+ * <p>
+ * When packrat mode is turned on, the context holds a bounded memo table that maps
+ * <code>(parser node, input assemblies)</code> to the <code>Matches</code> that the node
+ * produced for that input. Parsers consult the table before re-matching a sub-parser
+ * against a set of assemblies they have already visited, which bounds the work done by
+ * backtracking alternations and repetitions. The whole input set is memoized as a unit,
+ * so a memoized result lists its assemblies in the same order as an unmemoized match,
+ * and packrat mode does not change which of several equally good matches
+ * <code>Parser.bestMatch()</code> returns. The table is cleared at
+ * the beginning and end of each top-level match call; the hit/miss/eviction counters
+ * accumulate until <code>resetStatistics()</code> is called.
+ * <p>
+ * Two sets of assemblies are considered equivalent for memoization purposes if they
+ * hold equivalent assemblies in the same order. Two assemblies are equivalent if they are of the
+ * same class, have consumed the same number of elements, hold equal stack elements and
+ * equal targets (targets that do not override <code>equals()</code> are compared by
+ * identity; since clones share their target until it is modified, this still identifies
+ * most equivalent assemblies). Assembly subclasses that carry additional matching state should not be
+ * matched in packrat mode unless that state is reflected in the above.
+ * <p>
+ * Every memo entry also records the highest element index that its parser examined.
+ * When the memo table is retained, it is not cleared between top-level match calls;
+ * after the input is edited from some element index on, <code>invalidateMemo()</code>
+ * removes the entries that examined (or whose input starts at) that index or later, and the entries
+ * that remain are reused by the next parse of the edited input. Only terminals and
+ * predictive alternations are known to examine elements; grammars with parsers that
+ * examine elements in other ways should not be parsed with a retained memo table, and
+ * failure tracking (see below) does not report terminal failures inside reused entries.
+ * <p>
+ * A context also carries the ambiguity policy of a parse. When deduplication is turned on,
+ * every parser's output is stripped of assemblies that are equivalent (in the above
+ * sense) to an earlier assembly of the same output. When a beam width <i>N</i> is set,
+ * every parser's output is cut down to the <i>N</i> assemblies that have consumed the
+ * most elements. Both bound the number of assemblies that ambiguous grammars and
+ * repetitions accumulate; a beam may also discard the assembly that would have led to a
+ * complete match. The number of assemblies removed by each is counted.
+ * <p>
+ * A context may also bound the work of a parse. Every input assembly that a parser
+ * invocation processes is a step (and an invocation with no input assemblies is one
+ * step); a parse stops when it exceeds its step budget or its time limit, or when
+ * <code>cancel()</code> is called (possibly from another thread). Parsers that loop
+ * over many assemblies also <code>poll()</code> the context inside the loop, so a large
+ * set of assemblies cannot overrun the time limit or a cancellation by much. A stopped
+ * parse matches nothing further, and <code>Parser.bestMatch()</code> returns the furthest-consuming
+ * assembly produced before it stopped, with a "budget exceeded" or "cancelled" syntax
+ * error.
+ * <p>
+ * When failure tracking is turned on, the context follows the furthest element index
+ * at which a terminal failed to match and the set of terminals that were expected
+ * there, updating both as terminals fail. A top-level match call that does not
+ * completely match its input then gets a single syntax error that names the expected
+ * terminals and the element found instead, which is also available from
+ * <code>getFailure()</code> after the call returns.
+ * <p>
+ * A {@link ParserProfile} may be attached to a context to record per-parser-node
+ * statistics of (a sample of) the parses that use the context.
+ * <p>
+ * A context is not thread-safe, except for <code>cancel()</code>; use one context per
+ * parse.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without permission
+ * from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class ParseContext
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParseContext.class);
+
+	/**
+	 * Default maximum number of entries in the memo table.
+	 */
+	public static final int DEFAULT_MEMO_CAPACITY = 10000;
+
+	/**
+	 * The clock is read every <code>TIME_CHECK_INTERVAL</code> steps or polls. Must be a
+	 * power of two.
+	 */
+	private static final int TIME_CHECK_INTERVAL = 64;
+
+	/**
+	 * Describes the end of the input in failure reports.
+	 */
+	private static final String END_OF_INPUT = "end of input";
+
+	// ========================= FIELDS ====================================
+
+	// Is packrat memoization turned on
+	private boolean packrat = false;
+
+	// Maximum number of memo table entries before the least-recently used one is evicted
+	private int memoCapacity = DEFAULT_MEMO_CAPACITY;
+
+	// (parser, input assemblies fingerprint) -> matches produced by the parser
+	private final Map<MatchesKey, MemoEntry> memo = new LinkedHashMap<MatchesKey, MemoEntry>(
+			16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<MatchesKey, MemoEntry> eldest)
+		{
+			if (size() > memoCapacity)
+			{
+				memoEvictions++;
+				return true;
+			}
+			return false;
+		}
+	};
+
+	// Number of memo table look-ups that found an entry
+	private long memoHits = 0;
+
+	// Number of memo table look-ups that did not find an entry
+	private long memoMisses = 0;
+
+	// Number of entries evicted from the memo table due to its capacity bound
+	private long memoEvictions = 0;
+
+	// Keep the memo table between top-level match calls
+	private boolean retainMemo = false;
+
+	// Highest element index examined since the innermost memoized match began
+	private int examined = -1;
+
+	// Remove equivalent assemblies from every parser's output
+	private boolean deduplicate = false;
+
+	// Maximum number of assemblies kept in every parser's output; 0 = unbounded
+	private int beamWidth = 0;
+
+	// Number of assemblies removed as duplicates
+	private long duplicatesRemoved = 0;
+
+	// Number of assemblies removed by the beam
+	private long beamPruned = 0;
+
+	// Maximum number of steps (assemblies processed by parsers) per parse;
+	// 0 = unlimited
+	private long maxSteps = 0;
+
+	// Maximum duration of a parse in milliseconds; 0 = unlimited
+	private long timeLimit = 0;
+
+	// Set by cancel(), possibly from another thread
+	private volatile boolean cancelled = false;
+
+	// Number of steps taken in the current parse
+	private long steps = 0;
+
+	// Number of polls in the current parse
+	private long polls = 0;
+
+	// System.nanoTime() deadline of the current parse; used if timeLimit > 0
+	private long deadline = 0;
+
+	// Error key of the reason the current parse stopped; null if it did not stop
+	private String stopKey = null;
+
+	// A copy of the furthest-consuming assembly produced in the current parse
+	private Assembly furthest = null;
+
+	// Is furthest-failure tracking turned on
+	private boolean trackFailures = false;
+
+	// Furthest element index at which a terminal failed in the current parse; -1 if none
+	private int failureIndex = -1;
+
+	// Terminals that failed at failureIndex, in order of failure
+	private final Set<Object> expected = new LinkedHashSet<Object>();
+
+	// Element found at failureIndex; END_OF_INPUT if the input ended there
+	private Object found = null;
+
+	// Syntax error reported for the current parse; null if none
+	private InternationalizableErrorMessage failure = null;
+
+	// Optional per-node statistics
+	private ParserProfile profile = null;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a default context. Packrat mode is off.
+	 */
+	public ParseContext()
+	{
+		super();
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append("ParseContext[");
+		s.append("packrat=");
+		s.append(packrat);
+		s.append(" memo=");
+		s.append(memo.size());
+		s.append("/");
+		s.append(memoCapacity);
+		s.append(" hits=");
+		s.append(memoHits);
+		s.append(" misses=");
+		s.append(memoMisses);
+		s.append(" evictions=");
+		s.append(memoEvictions);
+		s.append(" deduplicate=");
+		s.append(deduplicate);
+		s.append(" beamWidth=");
+		s.append(beamWidth);
+		s.append(" duplicates=");
+		s.append(duplicatesRemoved);
+		s.append(" pruned=");
+		s.append(beamPruned);
+		s.append(" steps=");
+		s.append(steps);
+		if (trackFailures)
+		{
+			s.append(" failureIndex=");
+			s.append(failureIndex);
+		}
+		if (stopKey != null)
+		{
+			s.append(" stopped=");
+			s.append(stopKey);
+		}
+		s.append("]");
+		return s.toString();
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Prepare this context for a new top-level match call. Clears the memo table unless
+	 * it is retained, and starts the step budget and the clock.
+	 */
+	public void beginParse()
+	{
+		if (!retainMemo)
+		{
+			memo.clear();
+		}
+		examined = -1;
+		steps = 0;
+		polls = 0;
+		stopKey = null;
+		furthest = null;
+		failureIndex = -1;
+		expected.clear();
+		found = null;
+		failure = null;
+		if (timeLimit > 0)
+		{
+			deadline = System.nanoTime() + timeLimit * 1000000L;
+		}
+		if (profile != null)
+		{
+			profile.beginParse();
+		}
+	}
+
+	/**
+	 * Release per-call resources after a top-level match call. Clears the memo table
+	 * unless it is retained; a retained table is cleared if the parse stopped, since its
+	 * entries may be incomplete.
+	 */
+	public void endParse()
+	{
+		if (!retainMemo || (stopKey != null))
+		{
+			memo.clear();
+		}
+		if (profile != null)
+		{
+			profile.endParse();
+		}
+	}
+
+	/**
+	 * Return an opaque memo key of a parser and the current state of a set of input
+	 * assemblies. The key must be computed before the parser has had a chance to modify
+	 * the assemblies.
+	 *
+	 * @param parser
+	 *            parser node
+	 * @param in
+	 *            non-empty set of input assemblies
+	 * @return memo key
+	 */
+	public Object fingerprint(Object parser, Matches in)
+	{
+		return new MatchesKey(parser, in);
+	}
+
+	/**
+	 * Look up the matches that were memoized under a key earlier in this parse. Updates
+	 * the hit/miss counters.
+	 *
+	 * @param key
+	 *            memo key obtained from <code>fingerprint()</code>
+	 * @return a copy of the memoized matches, or <code>null</code> if not found
+	 */
+	public Matches lookup(Object key)
+	{
+		MemoEntry entry = memo.get(key);
+		if (entry == null)
+		{
+			memoMisses++;
+			return null;
+		}
+		memoHits++;
+		examine(entry.extent);
+		return entry.result.clone();
+	}
+
+	/**
+	 * Memoize the matches that a parser produced for a key obtained from
+	 * <code>fingerprint()</code>. A copy of <code>result</code> is stored, so the
+	 * caller may go on modifying it. The entry's extent is the highest element index
+	 * examined since the matching <code>beginExtent()</code> call.
+	 *
+	 * @param key
+	 *            memo key
+	 * @param result
+	 *            matches produced by the parser
+	 */
+	public void store(Object key, Matches result)
+	{
+		Matches copy = result.clone();
+		copy.setContext(null);
+		memo.put((MatchesKey) key, new MemoEntry(copy, examined));
+	}
+
+	/**
+	 * Start tracking the elements examined by a memoized match.
+	 *
+	 * @return the enclosing match's extent, to be passed to <code>endExtent()</code>
+	 */
+	public int beginExtent()
+	{
+		int outer = examined;
+		examined = -1;
+		return outer;
+	}
+
+	/**
+	 * Stop tracking the elements examined by a memoized match, and add them to the
+	 * enclosing match's extent.
+	 *
+	 * @param outer
+	 *            value returned by the matching <code>beginExtent()</code>
+	 */
+	public void endExtent(int outer)
+	{
+		examine(outer);
+	}
+
+	/**
+	 * Record that a parser examined an element (or the end of the input) of an assembly.
+	 *
+	 * @param index
+	 *            element index
+	 */
+	public void examine(int index)
+	{
+		if (index > examined)
+		{
+			examined = index;
+		}
+	}
+
+	/**
+	 * Remove the memo entries that start at, or examined, an element index or later.
+	 * Called when the input has changed from that index on.
+	 *
+	 * @param index
+	 *            index of the first changed element
+	 * @return the number of entries removed
+	 */
+	public int invalidateMemo(int index)
+	{
+		int removed = 0;
+		for (Iterator<Map.Entry<MatchesKey, MemoEntry>> i = memo.entrySet().iterator(); i
+				.hasNext();)
+		{
+			Map.Entry<MatchesKey, MemoEntry> entry = i.next();
+			if ((entry.getKey().index >= index) || (entry.getValue().extent >= index))
+			{
+				i.remove();
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove all memo entries.
+	 */
+	public void clearMemo()
+	{
+		memo.clear();
+	}
+
+	/**
+	 * Apply this context's ambiguity policy to a parser's output: remove duplicate
+	 * assemblies if deduplication is on, then keep only the furthest-consuming assemblies
+	 * if a beam width is set. Does nothing if neither is.
+	 *
+	 * @param out
+	 *            matches produced by a parser
+	 */
+	public void prune(Matches out)
+	{
+		if (deduplicate)
+		{
+			duplicatesRemoved += out.deduplicate();
+		}
+		if (beamWidth > 0)
+		{
+			beamPruned += out.retainFurthest(beamWidth);
+		}
+	}
+
+	/**
+	 * Returns true if this context's ambiguity policy may remove assemblies.
+	 *
+	 * @return true if deduplication is on or a beam width is set
+	 */
+	public boolean isPruning()
+	{
+		return deduplicate || (beamWidth > 0);
+	}
+
+	/**
+	 * Count a step of the current parse, and decide whether the parse must stop. Once a
+	 * parse has stopped, every subsequent call returns true.
+	 *
+	 * @return true if the parse has been cancelled or exceeded its budget
+	 */
+	public boolean step()
+	{
+		return step(1);
+	}
+
+	/**
+	 * Count the steps of a parser invocation that processes a set of input assemblies:
+	 * one step per assembly, and at least one. Decide whether the parse must stop. Once
+	 * a parse has stopped, every subsequent call returns true.
+	 *
+	 * @param in
+	 *            input of the parser
+	 * @return true if the parse has been cancelled or exceeded its budget
+	 */
+	public boolean step(Matches in)
+	{
+		return step(Math.max(1, in.numAssemblies()));
+	}
+
+	/**
+	 * Count steps of the current parse, and decide whether the parse must stop. The
+	 * clock is read whenever the step count crosses a multiple of
+	 * <code>TIME_CHECK_INTERVAL</code>. Once a parse has stopped, every subsequent call
+	 * returns true.
+	 *
+	 * @param n
+	 *            number of steps to count
+	 * @return true if the parse has been cancelled or exceeded its budget
+	 */
+	public boolean step(int n)
+	{
+		if (stopKey != null)
+		{
+			return true;
+		}
+		long before = steps;
+		steps += n;
+		if (cancelled)
+		{
+			stopKey = CommonNames.KEY.PARSER_EXCEPTION.CANCELLED;
+		}
+		else if ((maxSteps > 0) && (steps > maxSteps))
+		{
+			stopKey = CommonNames.KEY.PARSER_EXCEPTION.BUDGET_EXCEEDED;
+		}
+		else if ((timeLimit > 0)
+				&& ((before / TIME_CHECK_INTERVAL) != (steps / TIME_CHECK_INTERVAL))
+				&& (System.nanoTime() - deadline > 0))
+		{
+			stopKey = CommonNames.KEY.PARSER_EXCEPTION.BUDGET_EXCEEDED;
+		}
+		return stopKey != null;
+	}
+
+	/**
+	 * Decide whether the current parse must stop, without counting a step. Called by
+	 * parsers once per assembly inside loops over a set of assemblies whose steps have
+	 * already been counted, so that a single large set does not overrun the time limit
+	 * or a cancellation. The clock is read every <code>TIME_CHECK_INTERVAL</code> polls.
+	 *
+	 * @return true if the parse has been cancelled or exceeded its time limit
+	 */
+	public boolean poll()
+	{
+		if (stopKey != null)
+		{
+			return true;
+		}
+		polls++;
+		if (cancelled)
+		{
+			stopKey = CommonNames.KEY.PARSER_EXCEPTION.CANCELLED;
+		}
+		else if ((timeLimit > 0) && ((polls & (TIME_CHECK_INTERVAL - 1)) == 0)
+				&& (System.nanoTime() - deadline > 0))
+		{
+			stopKey = CommonNames.KEY.PARSER_EXCEPTION.BUDGET_EXCEEDED;
+		}
+		return stopKey != null;
+	}
+
+	/**
+	 * Remember the furthest-consuming assembly of a parser's output, to be returned if
+	 * the parse stops.
+	 *
+	 * @param out
+	 *            matches produced by a parser
+	 */
+	public void recordProgress(Matches out)
+	{
+		for (Assembly a : out.getAssemblies())
+		{
+			if ((furthest == null) || (a.elementsConsumed() > furthest.elementsConsumed()))
+			{
+				furthest = a.clone();
+			}
+		}
+	}
+
+	/**
+	 * If the current parse stopped, add the furthest-consuming assembly produced before it
+	 * stopped and a syntax error describing why it stopped to a top-level result.
+	 *
+	 * @param out
+	 *            matches produced by the root parser
+	 */
+	public void addPartialMatch(Matches out)
+	{
+		if (stopKey == null)
+		{
+			return;
+		}
+		if (furthest != null)
+		{
+			out.addAssembly(furthest);
+		}
+		String message = (stopKey == CommonNames.KEY.PARSER_EXCEPTION.CANCELLED)
+				? "Parse cancelled" : "Parse budget exceeded";
+		message += " after " + steps + " steps";
+		out.addSyntaxError(new InternationalizableErrorMessage(message, stopKey, steps));
+	}
+
+	/**
+	 * Record that a terminal failed to match an assembly. Only the failures at the
+	 * furthest element index reached so far are kept. Does nothing unless failure
+	 * tracking is on.
+	 *
+	 * @param terminal
+	 *            the terminal that failed
+	 * @param a
+	 *            the assembly it failed to match
+	 */
+	public void recordFailure(Object terminal, Assembly a)
+	{
+		if (!trackFailures)
+		{
+			return;
+		}
+		int index = a.elementsConsumed();
+		if (index < failureIndex)
+		{
+			return;
+		}
+		if (index > failureIndex)
+		{
+			failureIndex = index;
+			expected.clear();
+			found = a.hasMoreElements() ? a.peek() : END_OF_INPUT;
+		}
+		expected.add(terminal);
+	}
+
+	/**
+	 * If failure tracking is on and a top-level result has no complete assembly, add a
+	 * syntax error describing the furthest failure to it. The end of the input counts as
+	 * expected after every incomplete assembly of the result. Does nothing if the
+	 * current parse stopped; <code>addPartialMatch()</code> reports why.
+	 *
+	 * @param out
+	 *            matches produced by the root parser
+	 */
+	public void addFailure(Matches out)
+	{
+		if (!trackFailures || (stopKey != null))
+		{
+			return;
+		}
+		for (Assembly a : out.getAssemblies())
+		{
+			if (!a.hasMoreElements())
+			{
+				return;
+			}
+		}
+		for (Assembly a : out.getAssemblies())
+		{
+			recordFailure(END_OF_INPUT, a);
+		}
+		if (failureIndex < 0)
+		{
+			return;
+		}
+		Set<String> descriptions = new LinkedHashSet<String>();
+		for (Object terminal : expected)
+		{
+			descriptions.add(terminal.toString());
+		}
+		StringBuffer message = TextUtil.emptyStringBuffer();
+		message.append("Expected ");
+		message.append((descriptions.size() == 1) ? descriptions.iterator().next()
+				: ("one of " + descriptions));
+		message.append(" at element ");
+		message.append(failureIndex);
+		message.append(", found ");
+		message.append(found);
+		failure = new InternationalizableErrorMessage(message.toString(),
+				CommonNames.KEY.PARSER_EXCEPTION.UNEXPECTED_ELEMENT, failureIndex, found);
+		out.addSyntaxError(failure);
+	}
+
+	/**
+	 * Cancel the current parse. May be called from any thread; the parse stops at its
+	 * next step. A cancelled context stays cancelled.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	/**
+	 * Reset the memo table and pruning counters.
+	 */
+	public void resetStatistics()
+	{
+		memoHits = 0;
+		memoMisses = 0;
+		memoEvictions = 0;
+		duplicatesRemoved = 0;
+		beamPruned = 0;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Memo table entry: the matches a parser produced and the highest element index it
+	 * examined.
+	 */
+	private static final class MemoEntry
+	{
+		// Matches produced by the parser
+		private final Matches result;
+
+		// Highest element index examined; -1 if none
+		private final int extent;
+
+		/**
+		 * @param result
+		 *            matches produced by the parser
+		 * @param extent
+		 *            highest element index examined
+		 */
+		public MemoEntry(Matches result, int extent)
+		{
+			this.result = result;
+			this.extent = extent;
+		}
+	}
+
+	/**
+	 * Memo table key: a parser node and snapshots of the matching states of its input
+	 * assemblies, in order.
+	 */
+	private static final class MatchesKey
+	{
+		// Parser node; compared by identity
+		private final Object parser;
+
+		// Input assembly snapshots, taken with a null parser
+		private final MemoKey[] states;
+
+		// Lowest number of elements consumed by an input assembly
+		private final int index;
+
+		// Cached hash code
+		private final int hashCode;
+
+		/**
+		 * @param parser
+		 *            parser node
+		 * @param in
+		 *            non-empty set of assemblies to take a snapshot of
+		 */
+		public MatchesKey(Object parser, Matches in)
+		{
+			this.parser = parser;
+			List<Assembly> assemblies = in.getAssemblies();
+			this.states = new MemoKey[assemblies.size()];
+			int lowest = Integer.MAX_VALUE;
+			int result = HashCodeUtil.hash(HashCodeUtil.SEED, System.identityHashCode(parser));
+			for (int i = 0; i < states.length; i++)
+			{
+				states[i] = new MemoKey(null, assemblies.get(i));
+				lowest = Math.min(lowest, states[i].index);
+				result = HashCodeUtil.hash(result, states[i].hashCode);
+			}
+			this.index = lowest;
+			this.hashCode = result;
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if ((obj == null) || (obj.getClass() != this.getClass()))
+			{
+				return false;
+			}
+			MatchesKey other = (MatchesKey) obj;
+			return (parser == other.parser) && (hashCode == other.hashCode)
+					&& Arrays.equals(states, other.states);
+		}
+	}
+
+	/**
+	 * Snapshot of a parser node and an assembly's matching state. Used with a
+	 * <code>null</code> parser to detect equivalent assemblies.
+	 */
+	static final class MemoKey
+	{
+		// Parser node; compared by identity
+		private final Object parser;
+
+		// Assembly type
+		private final Class<?> assemblyClass;
+
+		// Number of elements consumed
+		private final int index;
+
+		// The assembly's stack; immutable, so it need not be copied
+		private final PersistentStack<Object> stack;
+
+		// Assembly target
+		private final Object target;
+
+		// Cached hash code
+		private final int hashCode;
+
+		/**
+		 * @param parser
+		 *            parser node
+		 * @param a
+		 *            assembly to take a snapshot of
+		 */
+		public MemoKey(Object parser, Assembly a)
+		{
+			this.parser = parser;
+			this.assemblyClass = a.getClass();
+			this.index = a.elementsConsumed();
+			this.stack = a.getPersistentStack();
+			this.target = a.peekTarget();
+
+			int result = HashCodeUtil.SEED;
+			result = HashCodeUtil.hash(result, System.identityHashCode(parser));
+			result = HashCodeUtil.hash(result, index);
+			result = HashCodeUtil.hash(result, stack);
+			result = HashCodeUtil.hash(result, target);
+			this.hashCode = result;
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if ((obj == null) || (obj.getClass() != this.getClass()))
+			{
+				return false;
+			}
+			MemoKey other = (MemoKey) obj;
+			return (parser == other.parser) && (index == other.index)
+					&& (assemblyClass == other.assemblyClass)
+					&& ((target == null) ? (other.target == null) : target.equals(other.target))
+					&& stack.equals(other.stack);
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return is packrat memoization turned on
+	 */
+	public boolean isPackrat()
+	{
+		return packrat;
+	}
+
+	/**
+	 * @param packrat
+	 *            turn packrat memoization on or off
+	 * @return this object, for chaining
+	 */
+	public ParseContext setPackrat(boolean packrat)
+	{
+		this.packrat = packrat;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of memo table entries
+	 */
+	public int getMemoCapacity()
+	{
+		return memoCapacity;
+	}
+
+	/**
+	 * @param memoCapacity
+	 *            the maximum number of memo table entries
+	 * @return this object, for chaining
+	 */
+	public ParseContext setMemoCapacity(int memoCapacity)
+	{
+		this.memoCapacity = memoCapacity;
+		return this;
+	}
+
+	/**
+	 * @return is the memo table kept between top-level match calls
+	 */
+	public boolean isRetainMemo()
+	{
+		return retainMemo;
+	}
+
+	/**
+	 * @param retainMemo
+	 *            keep the memo table between top-level match calls, to reuse it after an
+	 *            edit of the input (see <code>invalidateMemo()</code>)
+	 * @return this object, for chaining
+	 */
+	public ParseContext setRetainMemo(boolean retainMemo)
+	{
+		this.retainMemo = retainMemo;
+		return this;
+	}
+
+	/**
+	 * @return the current number of memo table entries
+	 */
+	public int getMemoSize()
+	{
+		return memo.size();
+	}
+
+	/**
+	 * @return the number of memo table look-ups that found an entry
+	 */
+	public long getMemoHits()
+	{
+		return memoHits;
+	}
+
+	/**
+	 * @return the number of memo table look-ups that did not find an entry
+	 */
+	public long getMemoMisses()
+	{
+		return memoMisses;
+	}
+
+	/**
+	 * @return the number of entries evicted due to the memo capacity bound
+	 */
+	public long getMemoEvictions()
+	{
+		return memoEvictions;
+	}
+
+	/**
+	 * @return are equivalent assemblies removed from every parser's output
+	 */
+	public boolean isDeduplicate()
+	{
+		return deduplicate;
+	}
+
+	/**
+	 * @param deduplicate
+	 *            remove equivalent assemblies from every parser's output
+	 * @return this object, for chaining
+	 */
+	public ParseContext setDeduplicate(boolean deduplicate)
+	{
+		this.deduplicate = deduplicate;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of assemblies kept in every parser's output; 0 if
+	 *         unbounded
+	 */
+	public int getBeamWidth()
+	{
+		return beamWidth;
+	}
+
+	/**
+	 * @param beamWidth
+	 *            the maximum number of assemblies kept in every parser's output; 0 for
+	 *            unbounded
+	 * @return this object, for chaining
+	 */
+	public ParseContext setBeamWidth(int beamWidth)
+	{
+		this.beamWidth = beamWidth;
+		return this;
+	}
+
+	/**
+	 * @return the number of assemblies removed as duplicates
+	 */
+	public long getDuplicatesRemoved()
+	{
+		return duplicatesRemoved;
+	}
+
+	/**
+	 * @return the number of assemblies removed by the beam
+	 */
+	public long getBeamPruned()
+	{
+		return beamPruned;
+	}
+
+	/**
+	 * @return the maximum number of steps (assemblies processed by parsers) per parse; 0
+	 *         if unlimited
+	 */
+	public long getMaxSteps()
+	{
+		return maxSteps;
+	}
+
+	/**
+	 * @param maxSteps
+	 *            the maximum number of steps (assemblies processed by parsers) per
+	 *            parse; 0 for unlimited
+	 * @return this object, for chaining
+	 */
+	public ParseContext setMaxSteps(long maxSteps)
+	{
+		this.maxSteps = maxSteps;
+		return this;
+	}
+
+	/**
+	 * @return the maximum duration of a parse in milliseconds; 0 if unlimited
+	 */
+	public long getTimeLimit()
+	{
+		return timeLimit;
+	}
+
+	/**
+	 * @param timeLimit
+	 *            the maximum duration of a parse in milliseconds; 0 for unlimited
+	 * @return this object, for chaining
+	 */
+	public ParseContext setTimeLimit(long timeLimit)
+	{
+		this.timeLimit = timeLimit;
+		return this;
+	}
+
+	/**
+	 * @return is furthest-failure tracking turned on
+	 */
+	public boolean isTrackFailures()
+	{
+		return trackFailures;
+	}
+
+	/**
+	 * @param trackFailures
+	 *            turn furthest-failure tracking on or off
+	 * @return this object, for chaining
+	 */
+	public ParseContext setTrackFailures(boolean trackFailures)
+	{
+		this.trackFailures = trackFailures;
+		return this;
+	}
+
+	/**
+	 * @return the furthest element index at which a terminal failed in the current (or
+	 *         last) parse; -1 if none did or failure tracking is off
+	 */
+	public int getFailureIndex()
+	{
+		return failureIndex;
+	}
+
+	/**
+	 * @return the terminals that failed at the furthest failure index, in order of
+	 *         failure; the end of the input is represented by a string
+	 */
+	public List<Object> getExpected()
+	{
+		return new ArrayList<Object>(expected);
+	}
+
+	/**
+	 * @return the syntax error reported for the last parse if it did not completely
+	 *         match its input, otherwise <code>null</code>
+	 */
+	public InternationalizableErrorMessage getFailure()
+	{
+		return failure;
+	}
+
+	/**
+	 * @return the attached profile, or <code>null</code> if none
+	 */
+	public ParserProfile getProfile()
+	{
+		return profile;
+	}
+
+	/**
+	 * @param profile
+	 *            profile to record per-node statistics in; <code>null</code> to turn
+	 *            profiling off
+	 * @return this object, for chaining
+	 */
+	public ParseContext setProfile(ParserProfile profile)
+	{
+		this.profile = profile;
+		return this;
+	}
+
+	/**
+	 * @return the attached profile if it is recording the current parse, otherwise
+	 *         <code>null</code>
+	 */
+	public ParserProfile getActiveProfile()
+	{
+		return ((profile != null) && profile.isActive()) ? profile : null;
+	}
+
+	/**
+	 * @return has <code>cancel()</code> been called
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * @return the number of steps taken in the current (or last) parse
+	 */
+	public long getSteps()
+	{
+		return steps;
+	}
+
+	/**
+	 * @return did the current (or last) parse stop because it was cancelled or exceeded
+	 *         its budget
+	 */
+	public boolean isStopped()
+	{
+		return stopKey != null;
+	}
+}
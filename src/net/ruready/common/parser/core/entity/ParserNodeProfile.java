@@ -0,0 +1,173 @@
+/*****************************************************************************************
+ * Source File: ParserNodeProfile.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.entity;
+
+import net.ruready.common.text.TextUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The statistics of a single parser node in a {@link ParserProfile}.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public final class ParserNodeProfile
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParserNodeProfile.class);
+
+	// ========================= FIELDS ====================================
+
+	// Number of invocations
+	long calls;
+
+	// Total number of input assemblies
+	long assembliesIn;
+
+	// Total number of output assemblies
+	long assembliesOut;
+
+	// Assemblies cloned by the node itself
+	long selfClones;
+
+	// Assemblies cloned by the node and its sub-parsers
+	long totalClones;
+
+	// Number of assembler invocations
+	long assemblerCalls;
+
+	// Nanoseconds spent in the node itself
+	long selfNanos;
+
+	// Nanoseconds spent in the node and its sub-parsers
+	long totalNanos;
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append("calls=");
+		s.append(calls);
+		s.append(" in=");
+		s.append(assembliesIn);
+		s.append(" out=");
+		s.append(assembliesOut);
+		s.append(String.format(" fanout=%.2f", getFanOut()));
+		s.append(" clones=");
+		s.append(selfClones);
+		s.append("/");
+		s.append(totalClones);
+		s.append(" assembler=");
+		s.append(assemblerCalls);
+		s.append(String.format(" self=%.3fms total=%.3fms", selfNanos / 1.0e6,
+				totalNanos / 1.0e6));
+		return s.toString();
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Add another node's statistics to this one.
+	 *
+	 * @param other
+	 *            statistics to add
+	 */
+	void add(ParserNodeProfile other)
+	{
+		calls += other.calls;
+		assembliesIn += other.assembliesIn;
+		assembliesOut += other.assembliesOut;
+		selfClones += other.selfClones;
+		totalClones += other.totalClones;
+		assemblerCalls += other.assemblerCalls;
+		selfNanos += other.selfNanos;
+		totalNanos += other.totalNanos;
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the number of invocations
+	 */
+	public long getCalls()
+	{
+		return calls;
+	}
+
+	/**
+	 * @return the total number of input assemblies
+	 */
+	public long getAssembliesIn()
+	{
+		return assembliesIn;
+	}
+
+	/**
+	 * @return the total number of output assemblies
+	 */
+	public long getAssembliesOut()
+	{
+		return assembliesOut;
+	}
+
+	/**
+	 * @return output assemblies per input assembly
+	 */
+	public double getFanOut()
+	{
+		return (assembliesIn == 0) ? 0.0 : ((double) assembliesOut) / assembliesIn;
+	}
+
+	/**
+	 * @return the number of assemblies cloned by the node itself
+	 */
+	public long getSelfClones()
+	{
+		return selfClones;
+	}
+
+	/**
+	 * @return the number of assemblies cloned by the node and its sub-parsers
+	 */
+	public long getTotalClones()
+	{
+		return totalClones;
+	}
+
+	/**
+	 * @return the number of assembler invocations
+	 */
+	public long getAssemblerCalls()
+	{
+		return assemblerCalls;
+	}
+
+	/**
+	 * @return nanoseconds spent in the node itself
+	 */
+	public long getSelfNanos()
+	{
+		return selfNanos;
+	}
+
+	/**
+	 * @return nanoseconds spent in the node and its sub-parsers
+	 */
+	public long getTotalNanos()
+	{
+		return totalNanos;
+	}
+}
@@ -0,0 +1,336 @@
+/*****************************************************************************************
+ * Source File: ParserProfile.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.entity;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.ruready.common.text.TextUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Per-parser-node statistics collected while parsing: invocation counts, input and output
+ * <code>Matches</code> sizes, assemblies cloned, assembler invocations and elapsed time.
+ * A profile is attached to a {@link ParseContext}; every parser invocation of a sampled
+ * parse is recorded under the parser node (compared by identity).
+ * <p>
+ * Time and clones are recorded both inclusively (including the node's sub-parsers) and
+ * exclusively ("self"). The inclusive figures of a recursive node count nested
+ * invocations of the node more than once; the self figures add up to the total.
+ * <p>
+ * Only one out of every <code>sampleInterval</code> parses is recorded, so that a
+ * profile can be left attached in production. A profile accumulates the statistics of
+ * all sampled parses until <code>clear()</code> is called. A profile is not thread-safe;
+ * use one profile per thread and <code>merge()</code> them to aggregate.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without permission
+ * from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class ParserProfile
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParserProfile.class);
+
+	// ========================= FIELDS ====================================
+
+	// Record one out of every sampleInterval parses
+	private final int sampleInterval;
+
+	// Number of parses begun
+	private long parses = 0;
+
+	// Number of parses recorded
+	private long sampledParses = 0;
+
+	// Is the current parse being recorded
+	private boolean active = false;
+
+	// Parser node -> statistics
+	private final Map<Object, ParserNodeProfile> nodes =
+			new IdentityHashMap<Object, ParserNodeProfile>();
+
+	// Assemblies cloned so far in sampled parses
+	private long clones = 0;
+
+	// Invocation stack: start time of each invocation in progress
+	private long[] startNanos = new long[32];
+
+	// Invocation stack: clone count at the start of each invocation in progress
+	private long[] startClones = new long[32];
+
+	// Invocation stack: time spent in sub-parsers of each invocation in progress
+	private long[] childNanos = new long[32];
+
+	// Invocation stack: clones made by sub-parsers of each invocation in progress
+	private long[] childClones = new long[32];
+
+	// Invocation stack: assembler invocations of each invocation in progress
+	private long[] assembled = new long[32];
+
+	// Invocation stack pointer
+	private int depth = 0;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a profile that records every parse.
+	 */
+	public ParserProfile()
+	{
+		this(1);
+	}
+
+	/**
+	 * Create a profile that records one out of every <code>sampleInterval</code> parses.
+	 *
+	 * @param sampleInterval
+	 *            sampling interval; 1 records every parse
+	 */
+	public ParserProfile(int sampleInterval)
+	{
+		super();
+		this.sampleInterval = Math.max(1, sampleInterval);
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append("ParserProfile[");
+		s.append("parses=");
+		s.append(parses);
+		s.append(" sampled=");
+		s.append(sampledParses);
+		s.append(" nodes=");
+		s.append(nodes.size());
+		s.append("]");
+		return s.toString();
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Called at the beginning of a top-level parse: decide whether to record it.
+	 */
+	public void beginParse()
+	{
+		active = (parses % sampleInterval) == 0;
+		parses++;
+		if (active)
+		{
+			sampledParses++;
+		}
+		depth = 0;
+	}
+
+	/**
+	 * Called at the end of a top-level parse.
+	 */
+	public void endParse()
+	{
+		active = false;
+		depth = 0;
+	}
+
+	/**
+	 * Record the start of a parser invocation. Must be matched by a call to
+	 * <code>exit()</code>.
+	 */
+	public void enter()
+	{
+		if (depth == startNanos.length)
+		{
+			int size = 2 * depth;
+			startNanos = Arrays.copyOf(startNanos, size);
+			startClones = Arrays.copyOf(startClones, size);
+			childNanos = Arrays.copyOf(childNanos, size);
+			childClones = Arrays.copyOf(childClones, size);
+			assembled = Arrays.copyOf(assembled, size);
+		}
+		startNanos[depth] = System.nanoTime();
+		startClones[depth] = clones;
+		childNanos[depth] = 0;
+		childClones[depth] = 0;
+		assembled[depth] = 0;
+		depth++;
+	}
+
+	/**
+	 * Record the end of a parser invocation.
+	 *
+	 * @param node
+	 *            parser node
+	 * @param in
+	 *            number of input assemblies
+	 * @param out
+	 *            number of output assemblies
+	 */
+	public void exit(Object node, int in, int out)
+	{
+		depth--;
+		long nanos = System.nanoTime() - startNanos[depth];
+		long cloned = clones - startClones[depth];
+		if (depth > 0)
+		{
+			childNanos[depth - 1] += nanos;
+			childClones[depth - 1] += cloned;
+		}
+
+		ParserNodeProfile p = nodes.get(node);
+		if (p == null)
+		{
+			p = new ParserNodeProfile();
+			nodes.put(node, p);
+		}
+		p.calls++;
+		p.assembliesIn += in;
+		p.assembliesOut += out;
+		p.totalNanos += nanos;
+		p.selfNanos += nanos - childNanos[depth];
+		p.totalClones += cloned;
+		p.selfClones += cloned - childClones[depth];
+		p.assemblerCalls += assembled[depth];
+	}
+
+	/**
+	 * Record assembler invocations of the current parser invocation.
+	 *
+	 * @param n
+	 *            number of assembler invocations
+	 */
+	public void assembled(int n)
+	{
+		if (depth > 0)
+		{
+			assembled[depth - 1] += n;
+		}
+	}
+
+	/**
+	 * Record an assembly clone. Called by <code>Assembly.clone()</code>.
+	 */
+	public void cloned()
+	{
+		if (active)
+		{
+			clones++;
+		}
+	}
+
+	/**
+	 * Add the statistics of another profile to this one.
+	 *
+	 * @param other
+	 *            profile to add
+	 */
+	public void merge(ParserProfile other)
+	{
+		parses += other.parses;
+		sampledParses += other.sampledParses;
+		for (Map.Entry<Object, ParserNodeProfile> entry : other.nodes.entrySet())
+		{
+			ParserNodeProfile p = nodes.get(entry.getKey());
+			if (p == null)
+			{
+				p = new ParserNodeProfile();
+				nodes.put(entry.getKey(), p);
+			}
+			p.add(entry.getValue());
+		}
+	}
+
+	/**
+	 * Discard all statistics.
+	 */
+	public void clear()
+	{
+		nodes.clear();
+		parses = 0;
+		sampledParses = 0;
+		clones = 0;
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return is the current parse being recorded
+	 */
+	public boolean isActive()
+	{
+		return active;
+	}
+
+	/**
+	 * @param node
+	 *            parser node
+	 * @return the statistics of a node, or <code>null</code> if it was never invoked in a
+	 *         sampled parse
+	 */
+	public ParserNodeProfile getParserNodeProfile(Object node)
+	{
+		return nodes.get(node);
+	}
+
+	/**
+	 * @return parser node -> statistics. Must not be modified
+	 */
+	public Map<Object, ParserNodeProfile> getParserNodeProfiles()
+	{
+		return Collections.unmodifiableMap(nodes);
+	}
+
+	/**
+	 * @return the sampling interval
+	 */
+	public int getSampleInterval()
+	{
+		return sampleInterval;
+	}
+
+	/**
+	 * @return the number of parses begun
+	 */
+	public long getParses()
+	{
+		return parses;
+	}
+
+	/**
+	 * @return the number of parses recorded
+	 */
+	public long getSampledParses()
+	{
+		return sampledParses;
+	}
+}
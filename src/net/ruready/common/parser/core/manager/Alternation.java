@@ -6,7 +6,10 @@ package net.ruready.common.parser.core.manager;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.ruready.common.exception.InternationalizableErrorMessage;
+import net.ruready.common.parser.core.entity.Assembly;
 import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.entity.ParseContext;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,6 +53,9 @@ public class Alternation extends CollectionParser
 
 	// ========================= FIELDS ====================================
 
+	// Predictive dispatch table; null if predictive dispatch is off
+	private AlternationDispatch dispatch;
+
 	// ========================= CONSTRUCTORS ==============================
 
 	/**
@@ -93,6 +99,11 @@ public class Alternation extends CollectionParser
 	@Override
 	public Matches match(Matches in)
 	{
+		// Fall back to trying all branches if the subparser list was modified directly
+		if ((dispatch != null) && (dispatch.size() == subparsers.size()))
+		{
+			return predictiveMatch(in);
+		}
 		Matches out = new Matches();
 		for (Parser p : subparsers)
 		{
@@ -103,48 +114,182 @@ public class Alternation extends CollectionParser
 	}
 
 	/**
-	 * Create a random collection of elements that correspond to this alternation.
+	 * Adds a parser to the collection. Turns predictive dispatch off.
+	 * 
+	 * @param Parser
+	 *            the parser to add
+	 * @return this
+	 * @see net.ruready.common.parser.core.manager.CollectionParser#add(net.ruready.common.parser.core.manager.Parser)
+	 */
+	@Override
+	public CollectionParser add(Parser e)
+	{
+		dispatch = null;
+		return super.add(e);
+	}
+
+	/**
+	 * Create a random expansion of one of the alternatives, chosen according to the
+	 * generator's weights.
 	 */
 	@Override
-	protected List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		if (depth >= maxDepth)
+		if (generator.isSettling(depth))
 		{
-			return randomSettle(maxDepth, depth);
+			randomSettle(generator, depth);
+			return;
 		}
-		int i = (int) (subparsers.size() * Math.random());
-		Parser j = subparsers.get(i);
-		return j.randomExpansion(maxDepth, depth + 1);
+		int[] all = new int[subparsers.size()];
+		for (int i = 0; i < all.length; i++)
+		{
+			all[i] = i;
+		}
+		Parser j = subparsers.get(generator.choose(this, all));
+		j.randomExpansion(generator, depth + 1);
 	}
 
 	/**
 	 * This method is similar to randomExpansion, but it will pick a terminal if one is
 	 * available.
 	 */
-	protected List<?> randomSettle(int maxDepth, int depth)
+	protected void randomSettle(RandomInputGenerator generator, int depth)
 	{
 		// which alternatives are terminals?
-		List<Parser> terms = new ArrayList<Parser>();
-		for (Parser j : subparsers)
+		List<Integer> terms = new ArrayList<Integer>();
+		for (int i = 0; i < subparsers.size(); i++)
 		{
-			if (IsTerminalParserVisitor.isTerminal(j))
+			if (IsTerminalParserVisitor.isTerminal(subparsers.get(i)))
 			{
-				terms.add(j);
+				terms.add(i);
 			}
 		}
 
 		// pick one of the terminals or, if there are no
 		// terminals, pick any subparser
 
-		List<?> which = terms;
-		if (terms.isEmpty())
+		int[] which = new int[terms.isEmpty() ? subparsers.size() : terms.size()];
+		for (int i = 0; i < which.length; i++)
+		{
+			which[i] = terms.isEmpty() ? i : terms.get(i);
+		}
+
+		Parser p = subparsers.get(generator.choose(this, which));
+		p.randomExpansion(generator, depth + 1);
+	}
+
+	/**
+	 * Turn predictive dispatch on or off. When on, each branch is only matched against
+	 * the input assemblies whose next element is in the branch's FIRST set, or if the
+	 * branch is nullable. The results are identical to those of trying every branch,
+	 * because a branch cannot match an assembly whose next element it cannot start with.
+	 * Assemblies whose next element is viable for several branches are still matched
+	 * against each of them.
+	 * <p>
+	 * The analysis must be up-to-date with the grammar; see
+	 * {@link FirstSetParserVisitor#enablePredictiveDispatch(Parser)}.
+	 * 
+	 * @param analysis
+	 *            FIRST set analysis of a grammar that includes this alternation, or
+	 *            <code>null</code> to turn predictive dispatch off
+	 * @return this
+	 */
+	public Alternation setPredictive(FirstSetParserVisitor analysis)
+	{
+		checkNotFrozen();
+		this.dispatch = (analysis == null) ? null : new AlternationDispatch(subparsers,
+				analysis);
+		return this;
+	}
+
+	/**
+	 * Is predictive dispatch on.
+	 * 
+	 * @return <code>true</code> if and only if predictive dispatch is on
+	 */
+	public boolean isPredictive()
+	{
+		return (dispatch != null);
+	}
+
+	/**
+	 * Return the branches that can match an assembly according to the predictive dispatch
+	 * table.
+	 *
+	 * @param a
+	 *            assembly
+	 * @return viable branch flags, or <code>null</code> if predictive dispatch is off and
+	 *         every branch must be tried. The array must not be modified
+	 */
+	boolean[] viableBranches(Assembly a)
+	{
+		return ((dispatch != null) && (dispatch.size() == subparsers.size())) ? dispatch
+				.viableBranches(a) : null;
+	}
+
+	/**
+	 * Predictive version of <code>match()</code>: match each branch only against the
+	 * input assemblies it can possibly match.
+	 * 
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from matching against a beginning set of
+	 *         assemblies
+	 */
+	private Matches predictiveMatch(Matches in)
+	{
+		List<Assembly> assemblies = in.getAssemblies();
+		int numAssemblies = assemblies.size();
+		boolean[][] viable = new boolean[numAssemblies][];
+		ParseContext context = in.getContext();
+		for (int j = 0; j < numAssemblies; j++)
 		{
-			which = subparsers;
+			if (context != null)
+			{
+				context.examine(assemblies.get(j).elementsConsumed());
+			}
+			viable[j] = dispatch.viableBranches(assemblies.get(j));
 		}
 
-		int i = (int) (which.size() * Math.random());
-		Parser p = (Parser) which.get(i);
-		return p.randomExpansion(maxDepth, depth + 1);
+		Matches out = new Matches();
+		for (int i = 0; i < subparsers.size(); i++)
+		{
+			// Select the assemblies this branch can match
+			int count = 0;
+			for (int j = 0; j < numAssemblies; j++)
+			{
+				if (viable[j][i])
+				{
+					count++;
+				}
+			}
+			Matches branchIn;
+			if (count == numAssemblies)
+			{
+				branchIn = in;
+			}
+			else if (count == 0)
+			{
+				continue;
+			}
+			else
+			{
+				List<Assembly> selected = new ArrayList<Assembly>(count);
+				for (int j = 0; j < numAssemblies; j++)
+				{
+					if (viable[j][i])
+					{
+						selected.add(assemblies.get(j));
+					}
+				}
+				branchIn = new Matches(selected,
+						new ArrayList<InternationalizableErrorMessage>(in.getSyntaxErrors()));
+				branchIn.setContext(in.getContext());
+			}
+			Matches alternativeOut = subparsers.get(i).matchAndAssemble(branchIn);
+			out.addAll(alternativeOut);
+		}
+		return out;
 	}
 
 	/**
@@ -0,0 +1,148 @@
+/*****************************************************************************************
+ * Source File: AlternationDispatch.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ruready.common.parser.core.entity.Assembly;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A predictive dispatch table of an {@link Alternation}. Decides which branches of the
+ * alternation can possibly match an assembly, based on the branches' FIRST sets and
+ * nullability and the next element of the assembly. Branches that are nullable or whose
+ * first element is unrestricted are always viable.
+ * <p>
+ * The viable branches of each distinct next element are cached, so that subsequent
+ * look-ups of an equal element (e.g. a token of the same type and value) cost a single
+ * hash table access. The cache is bounded and thread-safe.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+class AlternationDispatch
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(AlternationDispatch.class);
+
+	/**
+	 * Maximum number of distinct elements whose viable branches are cached.
+	 */
+	private static final int CACHE_CAPACITY = 256;
+
+	// ========================= FIELDS ====================================
+
+	// FIRST set of each branch
+	private final Terminal[][] firstSets;
+
+	// Branches that must always be tried (nullable or unrestricted)
+	private final boolean[] alwaysViable;
+
+	// Cache of element -> viable branches
+	private final Map<Object, boolean[]> cache = new ConcurrentHashMap<Object, boolean[]>();
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Build the dispatch table of a list of branches.
+	 *
+	 * @param branches
+	 *            alternation's subparsers
+	 * @param analysis
+	 *            FIRST set analysis of a grammar that includes the branches
+	 */
+	public AlternationDispatch(List<Parser> branches, FirstSetParserVisitor analysis)
+	{
+		super();
+		int n = branches.size();
+		this.firstSets = new Terminal[n][];
+		this.alwaysViable = new boolean[n];
+		for (int i = 0; i < n; i++)
+		{
+			Parser branch = branches.get(i);
+			Set<Terminal> first = analysis.getFirstSet(branch);
+			firstSets[i] = first.toArray(new Terminal[first.size()]);
+			alwaysViable[i] = analysis.isNullable(branch)
+					|| analysis.isUnrestricted(branch);
+		}
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Return the number of branches in this table.
+	 *
+	 * @return the number of branches
+	 */
+	public int size()
+	{
+		return alwaysViable.length;
+	}
+
+	/**
+	 * Return the branches that can possibly match an assembly.
+	 *
+	 * @param a
+	 *            assembly
+	 * @return viable branch flags. The array must not be modified
+	 */
+	public boolean[] viableBranches(Assembly a)
+	{
+		if (!a.hasMoreElements())
+		{
+			return alwaysViable;
+		}
+		Object element = a.peek();
+		if (element == null)
+		{
+			return computeViableBranches(element);
+		}
+		boolean[] viable = cache.get(element);
+		if (viable == null)
+		{
+			viable = computeViableBranches(element);
+			if (cache.size() < CACHE_CAPACITY)
+			{
+				cache.put(element, viable);
+			}
+		}
+		return viable;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Return the branches that can possibly match an assembly whose next element is
+	 * <code>element</code>.
+	 *
+	 * @param element
+	 *            next element
+	 * @return viable branch flags
+	 */
+	private boolean[] computeViableBranches(Object element)
+	{
+		boolean[] viable = alwaysViable.clone();
+		for (int i = 0; i < viable.length; i++)
+		{
+			for (int j = 0; !viable[i] && (j < firstSets[i].length); j++)
+			{
+				viable[i] = firstSets[i][j].qualifies(element);
+			}
+		}
+		return viable;
+	}
+}
@@ -0,0 +1,298 @@
+/*****************************************************************************************
+ * Source File: BatchParser.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.entity.Match;
+import net.ruready.common.parser.core.entity.ParseContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Parses batches of inputs in parallel with a single grammar. The inputs are split into
+ * chunks that are parsed by the threads of a fork-join pool; the results are returned
+ * in input order.
+ * <p>
+ * The grammar is frozen (see {@link Parser#freeze()}) when the batch parser is created,
+ * so that it cannot be changed while it is shared by the pool's threads. Its assemblers
+ * must be thread-safe; assemblers that only work on the assembly they are given are.
+ * Each thread creates its own assemblies (see {@link #createAssembly(String)}) and
+ * parse context (see {@link #createContext()}) and reuses them for all the inputs it
+ * parses, so subclasses may keep per-thread resources such as tokenizers.
+ * <p>
+ * An exception thrown while parsing any input is rethrown by the batch method.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public abstract class BatchParser
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(BatchParser.class);
+
+	/**
+	 * Default maximum number of inputs parsed by a single task.
+	 */
+	public static final int DEFAULT_THRESHOLD = 64;
+
+	/**
+	 * Pool used by batch parsers that are not given one. Its threads are daemons.
+	 */
+	private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+	// ========================= FIELDS ====================================
+
+	// Frozen grammar
+	private final Parser parser;
+
+	// Threads to parse with
+	private final ForkJoinPool pool;
+
+	// Maximum number of inputs parsed by a single task
+	private int threshold = DEFAULT_THRESHOLD;
+
+	// Return complete matches (true) or best matches (false)
+	private boolean complete = false;
+
+	// Per-thread parse contexts
+	private final ThreadLocal<ParseContext> contexts = new ThreadLocal<ParseContext>()
+	{
+		@Override
+		protected ParseContext initialValue()
+		{
+			return createContext();
+		}
+	};
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a batch parser that uses a shared default pool with one thread per
+	 * processor.
+	 *
+	 * @param parser
+	 *            grammar; frozen by this constructor
+	 */
+	public BatchParser(Parser parser)
+	{
+		this(parser, DEFAULT_POOL);
+	}
+
+	/**
+	 * Create a batch parser.
+	 *
+	 * @param parser
+	 *            grammar; frozen by this constructor
+	 * @param pool
+	 *            threads to parse with
+	 */
+	public BatchParser(Parser parser, ForkJoinPool pool)
+	{
+		super();
+		this.parser = parser.freeze();
+		this.pool = pool;
+	}
+
+	// ========================= ABSTRACT METHODS ==========================
+
+	/**
+	 * Create the assembly to parse for an input. Called by the thread that parses the
+	 * input.
+	 *
+	 * @param input
+	 *            input string
+	 * @return assembly to match the grammar against
+	 */
+	protected abstract Assembly createAssembly(String input);
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Parse an input on the calling thread.
+	 *
+	 * @param input
+	 *            input string
+	 * @return the best (or complete) match of the input, as determined by
+	 *         <code>isComplete()</code>
+	 */
+	public Match parse(String input)
+	{
+		Assembly a = createAssembly(input);
+		ParseContext context = contexts.get();
+		return complete ? parser.completeMatch(a, context) : parser.bestMatch(a, context);
+	}
+
+	/**
+	 * Parse a batch of inputs in parallel.
+	 *
+	 * @param inputs
+	 *            input strings
+	 * @return the match of each input, in input order. An element is <code>null</code>
+	 *         if complete matches are requested and the input did not match completely
+	 */
+	public List<Match> parse(List<String> inputs)
+	{
+		Match[] results = new Match[inputs.size()];
+		pool.invoke(new ParseTask(inputs, results, 0, results.length));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Parse each line of a reader in parallel. The lines are read before parsing starts.
+	 *
+	 * @param reader
+	 *            reader of the inputs, one per line
+	 * @return the match of each line, in input order
+	 * @throws IOException
+	 *             if the reader fails
+	 */
+	public List<Match> parseLines(BufferedReader reader) throws IOException
+	{
+		List<String> lines = new ArrayList<String>();
+		String line;
+		while ((line = reader.readLine()) != null)
+		{
+			lines.add(line);
+		}
+		return parse(lines);
+	}
+
+	/**
+	 * Create the parse context of a thread. Called once by each thread that parses
+	 * inputs. The default implementation returns <code>null</code> (no context).
+	 * Contexts must not share objects that are not thread-safe, e.g. a
+	 * <code>ParserProfile</code>.
+	 *
+	 * @return a new parse context, or <code>null</code>
+	 */
+	protected ParseContext createContext()
+	{
+		return null;
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the frozen grammar
+	 */
+	public Parser getParser()
+	{
+		return parser;
+	}
+
+	/**
+	 * @return the maximum number of inputs parsed by a single task
+	 */
+	public int getThreshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * @param threshold
+	 *            the maximum number of inputs parsed by a single task
+	 * @return this, for chaining
+	 */
+	public BatchParser setThreshold(int threshold)
+	{
+		this.threshold = Math.max(1, threshold);
+		return this;
+	}
+
+	/**
+	 * @return true if complete matches are returned, false if best matches are
+	 */
+	public boolean isComplete()
+	{
+		return complete;
+	}
+
+	/**
+	 * @param complete
+	 *            return complete matches (true) or best matches (false)
+	 * @return this, for chaining
+	 */
+	public BatchParser setComplete(boolean complete)
+	{
+		this.complete = complete;
+		return this;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Parses a range of a batch, splitting it in halves until it is small enough.
+	 */
+	private class ParseTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		// Batch inputs
+		private final List<String> inputs;
+
+		// Batch results
+		private final Match[] results;
+
+		// Index of the first input of the range
+		private final int from;
+
+		// Index after the last input of the range
+		private final int to;
+
+		/**
+		 * @param inputs
+		 *            batch inputs
+		 * @param results
+		 *            batch results
+		 * @param from
+		 *            index of the first input of the range
+		 * @param to
+		 *            index after the last input of the range
+		 */
+		ParseTask(List<String> inputs, Match[] results, int from, int to)
+		{
+			super();
+			this.inputs = inputs;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute()
+		{
+			if (to - from <= threshold)
+			{
+				for (int i = from; i < to; i++)
+				{
+					results[i] = parse(inputs.get(i));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ParseTask(inputs, results, from, middle), new ParseTask(inputs,
+					results, middle, to));
+		}
+	}
+}
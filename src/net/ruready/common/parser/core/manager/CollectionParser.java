@@ -4,6 +4,7 @@
 package net.ruready.common.parser.core.manager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -56,6 +57,7 @@ public abstract class CollectionParser extends Parser
 	 */
 	public CollectionParser add(Parser e)
 	{
+		checkNotFrozen();
 		subparsers.add(e);
 		return this;
 	}
@@ -63,11 +65,11 @@ public abstract class CollectionParser extends Parser
 	/**
 	 * Return this parser's subparsers.
 	 * 
-	 * @return List this parser's subparsers
+	 * @return List this parser's subparsers; unmodifiable if this parser is frozen
 	 */
 	public List<Parser> getSubparsers()
 	{
-		return subparsers;
+		return isFrozen() ? Collections.unmodifiableList(subparsers) : subparsers;
 	}
 
 	/**
@@ -3,7 +3,6 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.manager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.ruready.common.parser.core.entity.Matches;
@@ -49,17 +48,17 @@ public class Empty extends Parser
 	}
 
 	/**
-	 * There really is no way to expand an empty parser, so return an empty vector.
+	 * There really is no way to expand an empty parser, so emit nothing.
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Parser#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Parser#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	protected List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		return new ArrayList<Object>();
+
 	}
 
 	/**
@@ -0,0 +1,374 @@
+/*****************************************************************************************
+ * Source File: FirstSetParserVisitor.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A grammar analysis pass that computes, for every parser reachable from a root parser,
+ * its FIRST set (the terminals that can match the first element consumed by the parser)
+ * and its nullability (whether the parser can succeed without consuming any element).
+ * <p>
+ * Parser graphs may be recursive, so the analysis first collects all reachable parsers
+ * and then iterates the FIRST/nullable equations to a fixed point. Parsers of unknown
+ * types (visited through <code>visit(Parser)</code>) are conservatively treated as
+ * nullable and able to start with any element.
+ * <p>
+ * The results are used by {@link Alternation#setPredictive(FirstSetParserVisitor)} to
+ * skip branches that cannot match the next element of an assembly.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class FirstSetParserVisitor implements ParserVisitor
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(FirstSetParserVisitor.class);
+
+	// ========================= FIELDS ====================================
+
+	/**
+	 * Keeps track of the list of parsers visited so far.
+	 */
+	private List<Parser> visited = new ArrayList<Parser>();
+
+	// Are we collecting reachable parsers (true) or solving the equations (false)
+	private boolean collecting = true;
+
+	// Set to true whenever an equation update changes a FIRST set or nullability
+	private boolean changed;
+
+	// Parser -> FIRST set
+	private final Map<Parser, Set<Terminal>> first = new IdentityHashMap<Parser, Set<Terminal>>();
+
+	// Nullable parsers
+	private final Set<Parser> nullable = Collections
+			.newSetFromMap(new IdentityHashMap<Parser, Boolean>());
+
+	// Parsers that may start with any element
+	private final Set<Parser> unrestricted = Collections
+			.newSetFromMap(new IdentityHashMap<Parser, Boolean>());
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Analyze a parser graph.
+	 *
+	 * @param origin
+	 *            root parser
+	 */
+	private FirstSetParserVisitor(Parser origin)
+	{
+		super();
+		origin.accept(this);
+		collecting = false;
+		do
+		{
+			changed = false;
+			for (Parser p : new ArrayList<Parser>(visited))
+			{
+				p.accept(this);
+			}
+		}
+		while (changed);
+	}
+
+	/**
+	 * Compute the FIRST sets and nullability of all parsers reachable from a root parser.
+	 *
+	 * @param origin
+	 *            root parser
+	 * @return analysis results
+	 */
+	public static FirstSetParserVisitor analyze(Parser origin)
+	{
+		return new FirstSetParserVisitor(origin);
+	}
+
+	/**
+	 * Analyze a parser graph and turn on predictive dispatch in all of its alternations.
+	 * Must be called after the grammar has been completely built; adding a subparser to
+	 * an alternation turns predictive dispatch off for that alternation.
+	 *
+	 * @param origin
+	 *            root parser
+	 * @return analysis results
+	 */
+	public static FirstSetParserVisitor enablePredictiveDispatch(Parser origin)
+	{
+		FirstSetParserVisitor analysis = new FirstSetParserVisitor(origin);
+		for (Parser p : analysis.visited)
+		{
+			if (p instanceof Alternation)
+			{
+				((Alternation) p).setPredictive(analysis);
+			}
+		}
+		return analysis;
+	}
+
+	// ========================= IMPLEMENTATION: ParserVisitor ================
+
+	/**
+	 * @param visited
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#setVisited(java.util.List)
+	 */
+	public void setVisited(List<Parser> visited)
+	{
+		this.visited = visited;
+	}
+
+	/**
+	 * A parser of an unknown type: may start with anything and may match nothing.
+	 *
+	 * @param visitable
+	 * @see net.ruready.common.visitor.Visitor#visit(net.ruready.common.visitor.Visitable)
+	 */
+	public void visit(Parser visitable)
+	{
+		if (collecting)
+		{
+			collect(visitable);
+			return;
+		}
+		setNullable(visitable);
+		if (unrestricted.add(visitable))
+		{
+			changed = true;
+		}
+	}
+
+	/**
+	 * FIRST(a) is the union of its alternatives' FIRST sets. It is nullable if any
+	 * alternative is.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Alternation)
+	 */
+	public void visit(Alternation a)
+	{
+		if (collecting)
+		{
+			if (collect(a))
+			{
+				for (Parser child : a.getSubparsers())
+				{
+					child.accept(this);
+				}
+			}
+			return;
+		}
+		for (Parser child : a.getSubparsers())
+		{
+			addFirst(a, child);
+			if (nullable.contains(child))
+			{
+				setNullable(a);
+			}
+		}
+	}
+
+	/**
+	 * An empty parser has an empty FIRST set and is nullable.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Empty)
+	 */
+	public void visit(Empty e)
+	{
+		if (collecting)
+		{
+			collect(e);
+			return;
+		}
+		setNullable(e);
+	}
+
+	/**
+	 * FIRST(r) is FIRST(subparser). A repetition is nullable if its minimum count is
+	 * zero or its subparser is nullable.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Repetition)
+	 */
+	public void visit(Repetition r)
+	{
+		if (collecting)
+		{
+			if (collect(r))
+			{
+				r.getSubparser().accept(this);
+			}
+			return;
+		}
+		addFirst(r, r.getSubparser());
+		if ((r.getMin() == 0) || nullable.contains(r.getSubparser()))
+		{
+			setNullable(r);
+		}
+	}
+
+	/**
+	 * FIRST(s) is the union of the FIRST sets of the leading subparsers, up to and
+	 * including the first non-nullable one. It is nullable if all subparsers are.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Sequence)
+	 */
+	public void visit(Sequence s)
+	{
+		if (collecting)
+		{
+			if (collect(s))
+			{
+				for (Parser child : s.getSubparsers())
+				{
+					child.accept(this);
+				}
+			}
+			return;
+		}
+		for (Parser child : s.getSubparsers())
+		{
+			addFirst(s, child);
+			if (!nullable.contains(child))
+			{
+				return;
+			}
+		}
+		setNullable(s);
+	}
+
+	/**
+	 * FIRST(t) = {t}. A terminal is not nullable.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	public void visit(Terminal t)
+	{
+		if (collecting && collect(t))
+		{
+			first.get(t).add(t);
+		}
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Is a parser nullable, i.e. can it succeed without consuming any element.
+	 *
+	 * @param p
+	 *            a parser reachable from the root of this analysis
+	 * @return <code>true</code> if and only if <code>p</code> is nullable
+	 */
+	public boolean isNullable(Parser p)
+	{
+		return nullable.contains(p);
+	}
+
+	/**
+	 * Can a parser start with any element, i.e. does it contain a parser of an unknown
+	 * type in a leading position. If so, its FIRST set is not meaningful.
+	 *
+	 * @param p
+	 *            a parser reachable from the root of this analysis
+	 * @return <code>true</code> if and only if <code>p</code>'s first element is not
+	 *         restricted
+	 */
+	public boolean isUnrestricted(Parser p)
+	{
+		return unrestricted.contains(p);
+	}
+
+	/**
+	 * Return the FIRST set of a parser.
+	 *
+	 * @param p
+	 *            a parser reachable from the root of this analysis
+	 * @return the terminals that can match the first element consumed by <code>p</code>
+	 */
+	public Set<Terminal> getFirstSet(Parser p)
+	{
+		Set<Terminal> set = first.get(p);
+		return (set == null) ? Collections.<Terminal> emptySet() : Collections
+				.unmodifiableSet(set);
+	}
+
+	/**
+	 * Return all parsers reachable from the root of this analysis, in depth-first order.
+	 *
+	 * @return list of reachable parsers
+	 */
+	public List<Parser> getParsers()
+	{
+		return Collections.unmodifiableList(visited);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Add a parser to the list of reachable parsers.
+	 *
+	 * @param p
+	 *            parser
+	 * @return <code>true</code> if and only if the parser has not been visited yet
+	 */
+	private boolean collect(Parser p)
+	{
+		if (first.containsKey(p))
+		{
+			return false;
+		}
+		visited.add(p);
+		first.put(p, new LinkedHashSet<Terminal>());
+		return true;
+	}
+
+	/**
+	 * Add FIRST(from) to FIRST(to), and propagate the unrestricted flag.
+	 *
+	 * @param to
+	 *            parser whose set is updated
+	 * @param from
+	 *            source parser
+	 */
+	private void addFirst(Parser to, Parser from)
+	{
+		if (first.get(to).addAll(first.get(from)))
+		{
+			changed = true;
+		}
+		if (unrestricted.contains(from) && unrestricted.add(to))
+		{
+			changed = true;
+		}
+	}
+
+	/**
+	 * Mark a parser as nullable.
+	 *
+	 * @param p
+	 *            parser
+	 */
+	private void setNullable(Parser p)
+	{
+		if (nullable.add(p))
+		{
+			changed = true;
+		}
+	}
+}
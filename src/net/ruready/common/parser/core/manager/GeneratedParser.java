@@ -0,0 +1,456 @@
+/*****************************************************************************************
+ * Source File: GeneratedParser.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ruready.common.exception.InternationalizableErrorMessage;
+import net.ruready.common.exception.SystemException;
+import net.ruready.common.parser.core.assembler.Assembler;
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.entity.ParseContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Base class of the recursive-descent parsers generated by
+ * {@link ParserSourceGenerator}. A generated parser is constructed from the grammar it
+ * was generated from, and uses that grammar's assemblers, pre-assemblers, terminal
+ * elements and (for parsers it could not generate code for) the parsers themselves. It
+ * produces the same matches, and runs the same assemblers in the same order, as the
+ * grammar's root parser, and may be used wherever the root parser is.
+ * <p>
+ * The generated code does not consult a context's packrat memo table, and does not
+ * record profiles; it applies a context's budget and ambiguity policy at every node, as
+ * <code>matchAndAssemble()</code> does, and reports terminal failures to it.
+ * <p>
+ * The constructor freezes the grammar and checks that it still has the structure the
+ * code was generated from; if not, the parser must be regenerated.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public abstract class GeneratedParser extends Parser
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(GeneratedParser.class);
+
+	// ========================= FIELDS ====================================
+
+	// Grammar this parser was generated from
+	private final Parser grammar;
+
+	// Parsers of the grammar, in generation order
+	private final List<Parser> nodes;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Wire a generated parser to its grammar.
+	 *
+	 * @param grammar
+	 *            root parser of the grammar the code was generated from; frozen by this
+	 *            constructor
+	 * @param signature
+	 *            signature of the grammar at generation time
+	 * @throws SystemException
+	 *             if the grammar's structure has changed since the code was generated
+	 */
+	protected GeneratedParser(Parser grammar, long signature)
+	{
+		super(grammar.getName());
+		this.grammar = grammar.freeze();
+		this.nodes = nodes(grammar);
+		if (signature(nodes) != signature)
+		{
+			throw new SystemException("Grammar " + grammar
+					+ " has changed since it was generated into " + getClass().getName()
+					+ "; regenerate it");
+		}
+	}
+
+	// ========================= ABSTRACT METHODS ==========================
+
+	/**
+	 * Match the grammar's root parser against a set of assemblies and apply its
+	 * assembler. Implemented by generated code.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from matching against a beginning set of
+	 *         assemblies
+	 */
+	protected abstract Matches parse(Matches in);
+
+	// ========================= IMPLEMENTATION: Visitable<ParserVisitor> ==
+
+	/**
+	 * A generated parser is opaque to visitors.
+	 *
+	 * @see net.ruready.common.visitor.Visitable#accept(net.ruready.common.visitor.Visitor)
+	 */
+	public <B extends ParserVisitor> void accept(B visitor)
+	{
+		visitor.visit(this);
+	}
+
+	// ========================= IMPLEMENTATION: Parser ====================
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.Parser#match(net.ruready.common.parser.core.entity.Matches)
+	 */
+	@Override
+	public Matches match(Matches in)
+	{
+		return parse(in);
+	}
+
+	/**
+	 * The generated code applies the root parser's assembler and the context's policies
+	 * itself.
+	 *
+	 * @see net.ruready.common.parser.core.manager.Parser#matchAndAssemble(net.ruready.common.parser.core.entity.Matches)
+	 */
+	@Override
+	public Matches matchAndAssemble(Matches in)
+	{
+		return parse(in);
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.Parser#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
+	 */
+	@Override
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
+	{
+		grammar.randomExpansion(generator, depth);
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.Parser#unvisitedString(java.util.List)
+	 */
+	@Override
+	protected String unvisitedString(List<Parser> visited)
+	{
+		return grammar.unvisitedString(visited);
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Return the parsers of a grammar in generation order: depth-first, children in
+	 * order, each parser once.
+	 *
+	 * @param root
+	 *            root parser
+	 * @return parsers reachable from <code>root</code>
+	 */
+	static List<Parser> nodes(Parser root)
+	{
+		List<Parser> nodes = new ArrayList<Parser>();
+		addNodes(root, nodes, new IdentityHashMap<Parser, Boolean>());
+		return nodes;
+	}
+
+	/**
+	 * Return the children of a parser in a grammar graph.
+	 *
+	 * @param p
+	 *            parser
+	 * @return sub-parsers of <code>p</code>
+	 */
+	static List<Parser> children(Parser p)
+	{
+		if (p instanceof CollectionParser)
+		{
+			return ((CollectionParser) p).getSubparsers();
+		}
+		if (p instanceof Repetition)
+		{
+			return Collections.singletonList(((Repetition) p).getSubparser());
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Return a hash of the structure of a grammar: the classes, names and connections
+	 * of its parsers, and whatever settings the generated code depends on.
+	 *
+	 * @param nodes
+	 *            parsers of the grammar, in generation order
+	 * @return grammar signature
+	 */
+	static long signature(List<Parser> nodes)
+	{
+		Map<Parser, Integer> index = new IdentityHashMap<Parser, Integer>();
+		for (Parser p : nodes)
+		{
+			index.put(p, index.size());
+		}
+		StringBuffer s = new StringBuffer();
+		for (Parser p : nodes)
+		{
+			s.append(p.getClass().getName());
+			s.append('"').append(p.getName()).append('"');
+			s.append((p.getAssembler() == null) ? '-' : 'A');
+			if (p instanceof Terminal)
+			{
+				s.append(((Terminal) p).discard ? 'D' : '-');
+			}
+			if (p instanceof Repetition)
+			{
+				Repetition r = (Repetition) p;
+				s.append((r.preAssembler == null) ? '-' : 'P');
+				s.append(r.getMode()).append('{').append(r.getMin()).append(',').append(
+						r.getMax()).append('}');
+			}
+			s.append('(');
+			for (Parser child : children(p))
+			{
+				s.append(index.get(child)).append(',');
+			}
+			s.append(')');
+		}
+		// 64-bit FNV-1a
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < s.length(); i++)
+		{
+			hash ^= s.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Return a parser of the grammar.
+	 *
+	 * @param index
+	 *            generation-order index
+	 * @return parser
+	 */
+	protected final Parser node(int index)
+	{
+		return nodes.get(index);
+	}
+
+	/**
+	 * Return the assembler of a parser of the grammar.
+	 *
+	 * @param index
+	 *            generation-order index
+	 * @return assembler
+	 */
+	protected final Assembler assembler(int index)
+	{
+		return nodes.get(index).getAssembler();
+	}
+
+	/**
+	 * Return the pre-assembler of a repetition of the grammar.
+	 *
+	 * @param index
+	 *            generation-order index
+	 * @return pre-assembler
+	 */
+	protected final Assembler preAssembler(int index)
+	{
+		return ((Repetition) nodes.get(index)).preAssembler;
+	}
+
+	/**
+	 * Return the single element accepted by a terminal of the grammar.
+	 *
+	 * @param index
+	 *            generation-order index
+	 * @return element
+	 */
+	protected final Object element(int index)
+	{
+		return ((Terminal) nodes.get(index)).getSingleElement();
+	}
+
+	/**
+	 * Charge the parse steps of matching a parser against its input, as
+	 * <code>matchAndAssemble()</code> does.
+	 *
+	 * @param in
+	 *            input of the parser
+	 * @return true if the parse was cancelled or ran out of budget
+	 */
+	protected static final boolean stop(Matches in)
+	{
+		ParseContext context = in.getContext();
+		return (context != null) && context.step(in);
+	}
+
+	/**
+	 * Return the result of a parser that was not matched because the parse stopped.
+	 *
+	 * @param in
+	 *            input of the parser
+	 * @return an empty result
+	 */
+	protected static final Matches none(Matches in)
+	{
+		Matches out = new Matches();
+		out.setContext(in.getContext());
+		return out;
+	}
+
+	/**
+	 * Return an empty result that keeps the syntax errors of a parser's input.
+	 *
+	 * @param in
+	 *            input of the parser
+	 * @return an empty result
+	 */
+	protected static final Matches emptyResult(Matches in)
+	{
+		Matches out = new Matches(new ArrayList<Assembly>(),
+				new ArrayList<InternationalizableErrorMessage>(in.getSyntaxErrors()));
+		out.setContext(in.getContext());
+		return out;
+	}
+
+	/**
+	 * Return a set of one assembly of a parser's input.
+	 *
+	 * @param in
+	 *            input of the parser
+	 * @param a
+	 *            an assembly of <code>in</code>
+	 * @return a set containing <code>a</code>
+	 */
+	protected static final Matches single(Matches in, Assembly a)
+	{
+		Matches out = new Matches();
+		out.addAssembly(a);
+		out.setContext(in.getContext());
+		return out;
+	}
+
+	/**
+	 * Report that a terminal failed to match an assembly to the context, as
+	 * <code>Terminal.match()</code> does.
+	 *
+	 * @param in
+	 *            input of the terminal
+	 * @param terminal
+	 *            the terminal
+	 * @param a
+	 *            an assembly of <code>in</code> that the terminal did not match
+	 */
+	protected static final void fail(Matches in, Parser terminal, Assembly a)
+	{
+		ParseContext context = in.getContext();
+		if (context != null)
+		{
+			context.recordFailure(terminal, a);
+		}
+	}
+
+	/**
+	 * Apply a pre-assembler to every assembly of a repetition's input.
+	 *
+	 * @param preAssembler
+	 *            pre-assembler
+	 * @param in
+	 *            input of the repetition
+	 */
+	protected static final void preAssemble(Assembler preAssembler, Matches in)
+	{
+		for (Assembly a : in.getAssemblies())
+		{
+			preAssembler.workOn(a);
+		}
+	}
+
+	/**
+	 * Apply an assembler to every assembly of a parser's result.
+	 *
+	 * @param assembler
+	 *            assembler
+	 * @param out
+	 *            result of the parser
+	 */
+	protected static final void assemble(Assembler assembler, Matches out)
+	{
+		for (Assembly a : out.getAssemblies())
+		{
+			assembler.workOn(a);
+		}
+	}
+
+	/**
+	 * Finish matching a parser: apply the context's ambiguity policy to its result and
+	 * record the parse's progress, as <code>matchAndAssemble()</code> does.
+	 *
+	 * @param in
+	 *            input of the parser
+	 * @param out
+	 *            assembled result of the parser
+	 * @return <code>out</code>
+	 */
+	protected static final Matches done(Matches in, Matches out)
+	{
+		ParseContext context = in.getContext();
+		if (context != null)
+		{
+			context.prune(out);
+			context.recordProgress(out);
+		}
+		out.setContext(context);
+		return out;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Add a parser and its descendants to a list, depth-first.
+	 *
+	 * @param p
+	 *            parser
+	 * @param nodes
+	 *            list of parsers
+	 * @param visited
+	 *            parsers already added
+	 */
+	private static void addNodes(Parser p, List<Parser> nodes, Map<Parser, Boolean> visited)
+	{
+		if (visited.put(p, Boolean.TRUE) != null)
+		{
+			return;
+		}
+		nodes.add(p);
+		for (Parser child : children(p))
+		{
+			addNodes(child, nodes, visited);
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the grammar this parser was generated from
+	 */
+	public Parser getGrammar()
+	{
+		return grammar;
+	}
+}
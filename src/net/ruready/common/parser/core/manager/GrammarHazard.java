@@ -0,0 +1,102 @@
+/*****************************************************************************************
+ * Source File: GrammarHazard.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import net.ruready.common.text.TextUtil;
+
+/**
+ * A performance hazard found in a grammar: its type, the parser it was found at and a
+ * description.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without permission
+ * from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ * 
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class GrammarHazard
+{
+	// ========================= FIELDS ====================================
+
+	// Type of hazard
+	private final HazardType type;
+
+	// Parser the hazard was found at
+	private final Parser parser;
+
+	// Description
+	private final String description;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * @param type
+	 *            type of hazard
+	 * @param parser
+	 *            parser the hazard was found at
+	 * @param description
+	 *            description
+	 */
+	public GrammarHazard(HazardType type, Parser parser, String description)
+	{
+		super();
+		this.type = type;
+		this.parser = parser;
+		this.description = description;
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append(type);
+		s.append(": ");
+		s.append(description);
+		return s.toString();
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the type of hazard
+	 */
+	public HazardType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return the parser the hazard was found at
+	 */
+	public Parser getParser()
+	{
+		return parser;
+	}
+
+	/**
+	 * @return the description
+	 */
+	public String getDescription()
+	{
+		return description;
+	}
+}
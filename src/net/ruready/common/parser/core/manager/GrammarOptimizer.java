@@ -0,0 +1,517 @@
+/*****************************************************************************************
+ * Source File: GrammarOptimizer.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Rewrites a parser graph into an equivalent graph that does less work:
+ * <ul>
+ * <li>Flattening: a sequence nested in a sequence, or an alternation nested in an
+ * alternation, is replaced by its sub-parsers.</li>
+ * <li>Left-factoring: consecutive alternation branches that start with the same parsers
+ * (the same objects, or interchangeable terminals, see
+ * {@link Terminal#isEquivalent(Terminal)}) are merged into a sequence of the common
+ * prefix followed by an alternation of the remainders, so that the prefix is matched
+ * once instead of once per branch.</li>
+ * <li>Collapsing: a sequence or an alternation with a single sub-parser is replaced by
+ * the sub-parser; an <code>Empty</code> is removed from a sequence in which it follows
+ * a terminal; a repetition of <code>Empty</code> (which never terminates) is
+ * replaced by <code>Empty</code>.</li>
+ * </ul>
+ * Only nodes that have no assembler of their own are flattened, collapsed or split, and
+ * only the children of the exact classes <code>Sequence</code>,
+ * <code>Alternation</code> and <code>Repetition</code> are rewritten; subclasses
+ * (e.g. sequences that report syntax errors) and frozen parsers are left intact, although
+ * their sub-parsers are optimized. Branches are never reordered, so the optimized graph produces the same
+ * assemblies in the same order, and every result assembly is worked on by the same
+ * assemblers in the same order. An assembler of a factored prefix runs once per input
+ * assembly instead of once per branch, so assemblers must not depend on how many times
+ * they are called.
+ * <p>
+ * The graph is rewritten in place, and the optimized root is returned; it differs from
+ * the original root if the root itself was collapsed. Parsers that were replaced remain
+ * valid. Node names are ignored. Predictive dispatch is turned off on rewritten
+ * alternations and should be set up again after optimizing. Because nested nodes are
+ * removed, beam pruning (see <code>ParseContext</code>) is applied at fewer points of
+ * the optimized graph.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class GrammarOptimizer implements ParserVisitor
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(GrammarOptimizer.class);
+
+	// ========================= FIELDS ====================================
+
+	// Parser -> its optimized replacement
+	private final Map<Parser, Parser> replacements = new IdentityHashMap<Parser, Parser>();
+
+	// Parsers whose optimization is in progress (reached again through recursion)
+	private final Map<Parser, Boolean> inProgress = new IdentityHashMap<Parser, Boolean>();
+
+	// Replacement of the parser visited last
+	private Parser result;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Use <code>optimize()</code>.
+	 */
+	private GrammarOptimizer()
+	{
+		super();
+	}
+
+	/**
+	 * Optimize a parser graph in place.
+	 *
+	 * @param origin
+	 *            root parser
+	 * @return optimized root parser
+	 */
+	public static Parser optimize(Parser origin)
+	{
+		return new GrammarOptimizer().optimizeNode(origin);
+	}
+
+	// ========================= IMPLEMENTATION: ParserVisitor ================
+
+	/**
+	 * The optimizer keeps track of visited parsers itself.
+	 *
+	 * @param visited
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#setVisited(java.util.List)
+	 */
+	public void setVisited(List<Parser> visited)
+	{
+
+	}
+
+	/**
+	 * A parser of an unknown type: keep it.
+	 *
+	 * @param visitable
+	 * @see net.ruready.common.visitor.Visitor#visit(net.ruready.common.visitor.Visitable)
+	 */
+	public void visit(Parser visitable)
+	{
+		result = visitable;
+	}
+
+	/**
+	 * Flatten nested alternations, left-factor the branches, and collapse a single
+	 * branch.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Alternation)
+	 */
+	public void visit(Alternation a)
+	{
+		if ((a.getClass() != Alternation.class) || a.isFrozen())
+		{
+			optimizeChildren(a);
+			result = a;
+			return;
+		}
+		List<Parser> branches = new ArrayList<Parser>();
+		for (Parser child : new ArrayList<Parser>(a.getSubparsers()))
+		{
+			Parser p = optimizeNode(child);
+			if ((p.getClass() == Alternation.class) && isTransparent(p))
+			{
+				branches.addAll(((Alternation) p).getSubparsers());
+			}
+			else
+			{
+				branches.add(p);
+			}
+		}
+		setSubparsers(a, leftFactor(branches));
+		result = collapse(a);
+	}
+
+	/**
+	 * Keep an empty parser.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Empty)
+	 */
+	public void visit(Empty e)
+	{
+		result = e;
+	}
+
+	/**
+	 * Optimize the repeated parser; replace a repetition of <code>Empty</code> by
+	 * <code>Empty</code>, unless it is a bounded repetition that keeps every iteration
+	 * (and so matches its input several times).
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Repetition)
+	 */
+	public void visit(Repetition r)
+	{
+		Parser p = optimizeNode(r.getSubparser());
+		result = r;
+		if ((r.getClass() != Repetition.class) || r.isFrozen())
+		{
+			return;
+		}
+		r.subparser = p;
+		boolean single = (r.getMode() != RepetitionMode.ALL)
+				|| (r.getMax() == Repetition.UNBOUNDED) || (r.getMin() == r.getMax());
+		if (isNoOp(p) && (r.preAssembler == null) && single)
+		{
+			result = new Empty().setAssembler(r.getAssembler());
+		}
+	}
+
+	/**
+	 * Flatten nested sequences, remove no-op parsers and collapse a single element.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Sequence)
+	 */
+	public void visit(Sequence s)
+	{
+		if ((s.getClass() != Sequence.class) || s.isFrozen())
+		{
+			optimizeChildren(s);
+			result = s;
+			return;
+		}
+		List<Parser> elements = new ArrayList<Parser>();
+		for (Parser child : new ArrayList<Parser>(s.getSubparsers()))
+		{
+			Parser p = optimizeNode(child);
+			if ((p.getClass() == Sequence.class) && isTransparent(p))
+			{
+				elements.addAll(((Sequence) p).getSubparsers());
+			}
+			else if (!isNoOp(p) || elements.isEmpty()
+					|| !(elements.get(elements.size() - 1) instanceof Terminal))
+			{
+				// An Empty that follows a terminal only copies the terminal's new
+				// assemblies. Other Empties are kept so that the next parser does not
+				// work on assemblies that another path of the parse shares.
+				elements.add(p);
+			}
+		}
+		setSubparsers(s, elements);
+		result = collapse(s);
+	}
+
+	/**
+	 * Keep a terminal.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	public void visit(Terminal t)
+	{
+		result = t;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Optimize a parser once.
+	 *
+	 * @param p
+	 *            parser
+	 * @return optimized replacement of <code>p</code>; <code>p</code> itself while
+	 *         <code>p</code> is being optimized
+	 */
+	private Parser optimizeNode(Parser p)
+	{
+		Parser replacement = replacements.get(p);
+		if (replacement != null)
+		{
+			return replacement;
+		}
+		replacements.put(p, p);
+		inProgress.put(p, Boolean.TRUE);
+		p.accept(this);
+		inProgress.remove(p);
+		replacements.put(p, result);
+		return result;
+	}
+
+	/**
+	 * Optimize the sub-parsers of a collection parser of an unknown class, without
+	 * replacing them in the collection.
+	 *
+	 * @param p
+	 *            collection parser
+	 */
+	private void optimizeChildren(CollectionParser p)
+	{
+		for (Parser child : new ArrayList<Parser>(p.getSubparsers()))
+		{
+			optimizeNode(child);
+		}
+	}
+
+	/**
+	 * Left-factor a list of alternation branches: merge each run of consecutive branches
+	 * that start with the same parser.
+	 *
+	 * @param branches
+	 *            alternation branches
+	 * @return factored branches
+	 */
+	private List<Parser> leftFactor(List<Parser> branches)
+	{
+		List<Parser> factored = new ArrayList<Parser>();
+		int n = branches.size();
+		int i = 0;
+		while (i < n)
+		{
+			List<Parser> first = elementsOf(branches.get(i));
+			int j = i + 1;
+			while ((j < n) && !first.isEmpty())
+			{
+				List<Parser> other = elementsOf(branches.get(j));
+				if (other.isEmpty() || !isEquivalent(first.get(0), other.get(0)))
+				{
+					break;
+				}
+				j++;
+			}
+			Parser merged = (j - i > 1) ? factor(branches.subList(i, j)) : null;
+			if (merged == null)
+			{
+				factored.add(branches.get(i));
+				i++;
+			}
+			else
+			{
+				factored.add(merged);
+				i = j;
+			}
+		}
+		return factored;
+	}
+
+	/**
+	 * Merge branches that start with the same parser into a sequence of their longest
+	 * common prefix and an alternation of the remainders.
+	 *
+	 * @param group
+	 *            at least two branches that start with the same parser
+	 * @return merged branch, or <code>null</code> if merging could change the results
+	 */
+	private Parser factor(List<Parser> group)
+	{
+		List<List<Parser>> elements = new ArrayList<List<Parser>>();
+		int prefixLength = Integer.MAX_VALUE;
+		for (Parser branch : group)
+		{
+			List<Parser> e = elementsOf(branch);
+			elements.add(e);
+			prefixLength = Math.min(prefixLength, e.size());
+		}
+		List<Parser> prefix = elements.get(0);
+		for (List<Parser> e : elements)
+		{
+			int k = 0;
+			while ((k < prefixLength) && isEquivalent(prefix.get(k), e.get(k)))
+			{
+				k++;
+			}
+			prefixLength = k;
+		}
+
+		// The remainders share the assemblies the prefix produces, so none of them may
+		// modify its input assemblies
+		List<Parser> remainders = new ArrayList<Parser>();
+		for (List<Parser> e : elements)
+		{
+			List<Parser> remainder = e.subList(prefixLength, e.size());
+			if (!remainder.isEmpty()
+					&& mayModifyInput(remainder.get(0), new IdentityHashMap<Parser, Boolean>()))
+			{
+				return null;
+			}
+			remainders.add(toParser(remainder));
+		}
+
+		List<Parser> merged = new ArrayList<Parser>(prefix.subList(0, prefixLength));
+		Alternation rest = new Alternation();
+		setSubparsers(rest, leftFactor(remainders));
+		merged.add(collapse(rest));
+		return toParser(merged);
+	}
+
+	/**
+	 * Return the elements a branch is a sequence of.
+	 *
+	 * @param branch
+	 *            alternation branch
+	 * @return the elements of a sequence that can be split, or a list containing the
+	 *         branch itself
+	 */
+	private List<Parser> elementsOf(Parser branch)
+	{
+		List<Parser> elements = new ArrayList<Parser>();
+		if ((branch.getClass() == Sequence.class) && isTransparent(branch)
+				&& !inProgress.containsKey(branch))
+		{
+			elements.addAll(((Sequence) branch).getSubparsers());
+		}
+		else
+		{
+			elements.add(branch);
+		}
+		return elements;
+	}
+
+	/**
+	 * Return a parser that matches a list of parsers in sequence.
+	 *
+	 * @param elements
+	 *            parsers to match in sequence
+	 * @return <code>Empty</code>, the single element, or a new sequence
+	 */
+	private static Parser toParser(List<Parser> elements)
+	{
+		if (elements.isEmpty())
+		{
+			return new Empty();
+		}
+		if (elements.size() == 1)
+		{
+			return elements.get(0);
+		}
+		Sequence s = new Sequence();
+		setSubparsers(s, elements);
+		return s;
+	}
+
+	/**
+	 * Return the only sub-parser of a transparent collection parser that has exactly
+	 * one; otherwise, return the parser itself.
+	 *
+	 * @param p
+	 *            collection parser
+	 * @return replacement of <code>p</code>
+	 */
+	private static Parser collapse(CollectionParser p)
+	{
+		return ((p.getSubparsers().size() == 1) && (p.getAssembler() == null)) ? p
+				.getSubparsers().get(0) : p;
+	}
+
+	/**
+	 * Replace the sub-parsers of a collection parser. Uses <code>add()</code> so that
+	 * alternations discard their dispatch tables.
+	 *
+	 * @param p
+	 *            collection parser
+	 * @param subparsers
+	 *            new sub-parsers
+	 */
+	private static void setSubparsers(CollectionParser p, List<Parser> subparsers)
+	{
+		List<Parser> copy = new ArrayList<Parser>(subparsers);
+		p.getSubparsers().clear();
+		for (Parser subparser : copy)
+		{
+			p.add(subparser);
+		}
+	}
+
+	/**
+	 * @param p
+	 *            parser
+	 * @return true if <code>p</code> may be inlined into its parent
+	 */
+	private boolean isTransparent(Parser p)
+	{
+		return (p.getAssembler() == null) && !inProgress.containsKey(p);
+	}
+
+	/**
+	 * @param p
+	 *            parser
+	 * @return true if <code>p</code> is an <code>Empty</code> without an assembler
+	 */
+	private static boolean isNoOp(Parser p)
+	{
+		return (p.getClass() == Empty.class) && (p.getAssembler() == null);
+	}
+
+	/**
+	 * @param a
+	 *            a parser
+	 * @param b
+	 *            another parser
+	 * @return true if <code>a</code> and <code>b</code> are interchangeable
+	 */
+	private static boolean isEquivalent(Parser a, Parser b)
+	{
+		if (a == b)
+		{
+			return true;
+		}
+		return (a instanceof Terminal) && (b instanceof Terminal)
+				&& ((Terminal) a).isEquivalent((Terminal) b);
+	}
+
+	/**
+	 * Returns true if a parser may modify the assemblies it matches against instead of
+	 * copies of them: a repetition with a pre-assembler, or an empty sequence with an
+	 * assembler, at the start of the parser. Parsers of unknown classes are assumed to
+	 * modify their input.
+	 *
+	 * @param p
+	 *            parser
+	 * @param visited
+	 *            parsers examined so far
+	 * @return true if <code>p</code> may modify its input assemblies
+	 */
+	private static boolean mayModifyInput(Parser p, Map<Parser, Boolean> visited)
+	{
+		if ((p instanceof Terminal) || (p.getClass() == Empty.class)
+				|| (visited.put(p, Boolean.TRUE) != null))
+		{
+			return false;
+		}
+		if (p.getClass() == Sequence.class)
+		{
+			List<Parser> elements = ((Sequence) p).getSubparsers();
+			return elements.isEmpty() ? (p.getAssembler() != null) : mayModifyInput(
+					elements.get(0), visited);
+		}
+		if (p.getClass() == Alternation.class)
+		{
+			for (Parser branch : ((Alternation) p).getSubparsers())
+			{
+				if (mayModifyInput(branch, visited))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		if (p.getClass() == Repetition.class)
+		{
+			Repetition r = (Repetition) p;
+			return (r.preAssembler != null) || mayModifyInput(r.getSubparser(), visited);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,563 @@
+/*****************************************************************************************
+ * Source File: HazardParserVisitor.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.ruready.common.rl.CommonNames;
+import net.ruready.common.text.TextUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A static analysis of a parser graph that finds performance hazards before the grammar
+ * is used (see {@link HazardType}):
+ * <ul>
+ * <li>repetitions of parsers that can match without consuming elements;</li>
+ * <li>left recursion: cycles of parsers that invoke each other without consuming
+ * elements;</li>
+ * <li>alternations whose branches can match the same element. The analysis also
+ * estimates each alternation's worst-case branching factor: the largest number of
+ * branches that can match an assembly with a given next element;</li>
+ * <li>repetitions nested in other repetitions, where the inner repetition can consume
+ * the elements that follow it in the outer repetition's body, so that the input can be
+ * split between iterations in exponentially many ways.</li>
+ * </ul>
+ * The analysis is based on the FIRST sets of {@link FirstSetParserVisitor} and on
+ * {@link Terminal#mayOverlap(Terminal)}, and is conservative: it may report hazards
+ * that do not occur on any input, but does not miss overlapping alternatives among the
+ * parsers it knows. Parsers of unknown classes are treated as matching anything.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class HazardParserVisitor implements ParserVisitor
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(HazardParserVisitor.class);
+
+	// ========================= FIELDS ====================================
+
+	// FIRST sets and nullability of the grammar
+	private final FirstSetParserVisitor analysis;
+
+	// Hazards found so far
+	private final List<GrammarHazard> hazards = new ArrayList<GrammarHazard>();
+
+	// Alternation -> worst-case branching factor
+	private final Map<Parser, Integer> branchingFactors = new IdentityHashMap<Parser, Integer>();
+
+	// Left recursion search: parser -> depth-first index
+	private final Map<Parser, Integer> index = new IdentityHashMap<Parser, Integer>();
+
+	// Left recursion search: parser -> lowest index reachable from it
+	private final Map<Parser, Integer> lowLink = new IdentityHashMap<Parser, Integer>();
+
+	// Left recursion search: parsers of components that are not complete yet
+	private final List<Parser> stack = new ArrayList<Parser>();
+
+	// Left recursion search: parsers on the stack
+	private final Set<Parser> onStack = Collections
+			.newSetFromMap(new IdentityHashMap<Parser, Boolean>());
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Analyze a parser graph.
+	 *
+	 * @param origin
+	 *            root parser
+	 */
+	private HazardParserVisitor(Parser origin)
+	{
+		super();
+		this.analysis = FirstSetParserVisitor.analyze(origin);
+		for (Parser p : analysis.getParsers())
+		{
+			if (!index.containsKey(p))
+			{
+				findLeftRecursion(p);
+			}
+		}
+		for (Parser p : analysis.getParsers())
+		{
+			p.accept(this);
+		}
+	}
+
+	/**
+	 * Analyze a parser graph.
+	 *
+	 * @param origin
+	 *            root parser
+	 * @return analysis results
+	 */
+	public static HazardParserVisitor analyze(Parser origin)
+	{
+		return new HazardParserVisitor(origin);
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return getReport();
+	}
+
+	// ========================= IMPLEMENTATION: ParserVisitor ================
+
+	/**
+	 * Parsers are visited from the FIRST set analysis' list, so there is no need to keep
+	 * track of visited parsers.
+	 *
+	 * @param visited
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#setVisited(java.util.List)
+	 */
+	public void setVisited(List<Parser> visited)
+	{
+
+	}
+
+	/**
+	 * A parser of an unknown type has no hazards of its own.
+	 *
+	 * @param visitable
+	 * @see net.ruready.common.visitor.Visitor#visit(net.ruready.common.visitor.Visitable)
+	 */
+	public void visit(Parser visitable)
+	{
+
+	}
+
+	/**
+	 * Find overlapping branches and compute the branching factor.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Alternation)
+	 */
+	public void visit(Alternation a)
+	{
+		List<Parser> branches = a.getSubparsers();
+		int n = branches.size();
+
+		// Elements an assembly may start with: the FIRST set terminals of all branches
+		Set<Terminal> elements = new LinkedHashSet<Terminal>();
+		int alwaysViable = 0;
+		for (Parser branch : branches)
+		{
+			elements.addAll(analysis.getFirstSet(branch));
+			if (isAlwaysViable(branch))
+			{
+				alwaysViable++;
+			}
+		}
+		int factor = alwaysViable;
+		for (Terminal element : elements)
+		{
+			int viable = 0;
+			for (Parser branch : branches)
+			{
+				if (isAlwaysViable(branch)
+						|| mayOverlap(analysis.getFirstSet(branch), Collections
+								.singleton(element)))
+				{
+					viable++;
+				}
+			}
+			factor = Math.max(factor, viable);
+		}
+		branchingFactors.put(a, factor);
+		if (factor <= 1)
+		{
+			return;
+		}
+
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append("alternation ");
+		s.append(ProfileReportParserVisitor.label(a));
+		s.append(": overlapping branches");
+		for (int i = 0; i < n; i++)
+		{
+			for (int j = i + 1; j < n; j++)
+			{
+				if (mayOverlap(branches.get(i), branches.get(j)))
+				{
+					s.append(" (");
+					s.append(i + 1);
+					s.append(",");
+					s.append(j + 1);
+					s.append(")");
+				}
+			}
+		}
+		s.append("; branching factor ");
+		s.append(factor);
+		hazards.add(new GrammarHazard(HazardType.OVERLAPPING_ALTERNATIVES, a, s.toString()));
+	}
+
+	/**
+	 * An empty parser has no hazards.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Empty)
+	 */
+	public void visit(Empty e)
+	{
+
+	}
+
+	/**
+	 * Find nullable and nested repetitions.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Repetition)
+	 */
+	public void visit(Repetition r)
+	{
+		Parser body = r.getSubparser();
+		boolean bounded = (r.getMax() != Repetition.UNBOUNDED)
+				|| (r.getMode() == RepetitionMode.LAZY);
+		if (analysis.isNullable(body) && !bounded)
+		{
+			hazards.add(new GrammarHazard(HazardType.NULLABLE_REPETITION, r, "repetition "
+					+ ProfileReportParserVisitor.label(r) + ": repeats "
+					+ ProfileReportParserVisitor.label(body)
+					+ ", which can match without consuming elements"));
+			// Any nesting is dwarfed by the infinite loop
+			return;
+		}
+		findNestedRepetitions(r, body, new LinkedHashSet<Terminal>(), true, Collections
+				.newSetFromMap(new IdentityHashMap<Parser, Boolean>()));
+	}
+
+	/**
+	 * A sequence has no hazards of its own.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Sequence)
+	 */
+	public void visit(Sequence s)
+	{
+
+	}
+
+	/**
+	 * A terminal has no hazards.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	public void visit(Terminal t)
+	{
+
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * @return true if any hazards were found
+	 */
+	public boolean hasHazards()
+	{
+		return !hazards.isEmpty();
+	}
+
+	/**
+	 * @return the hazards found. Must not be modified
+	 */
+	public List<GrammarHazard> getHazards()
+	{
+		return Collections.unmodifiableList(hazards);
+	}
+
+	/**
+	 * Return the worst-case branching factor of a parser: for an alternation, the largest
+	 * number of its branches that can match an assembly with a given next element; 1 for
+	 * any other parser.
+	 *
+	 * @param p
+	 *            parser
+	 * @return worst-case branching factor of <code>p</code>
+	 */
+	public int getBranchingFactor(Parser p)
+	{
+		Integer factor = branchingFactors.get(p);
+		return (factor == null) ? 1 : factor;
+	}
+
+	/**
+	 * @return the largest branching factor of all alternations in the grammar
+	 */
+	public int getMaxBranchingFactor()
+	{
+		int max = 1;
+		for (int factor : branchingFactors.values())
+		{
+			max = Math.max(max, factor);
+		}
+		return max;
+	}
+
+	/**
+	 * @return a report of the hazards found, one per line
+	 */
+	public String getReport()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append("Grammar hazards: ");
+		s.append(hazards.size());
+		s.append(", parsers: ");
+		s.append(analysis.getParsers().size());
+		s.append(", max branching factor: ");
+		s.append(getMaxBranchingFactor());
+		s.append(CommonNames.MISC.NEW_LINE_CHAR);
+		for (GrammarHazard hazard : hazards)
+		{
+			s.append("  ");
+			s.append(hazard);
+			s.append(CommonNames.MISC.NEW_LINE_CHAR);
+		}
+		return s.toString();
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Find the cycles of left-corner invocations (parsers invoked at the same position as
+	 * their parent) that a parser is part of, using Tarjan's strongly connected
+	 * components algorithm.
+	 *
+	 * @param p
+	 *            parser
+	 */
+	private void findLeftRecursion(Parser p)
+	{
+		int i = index.size();
+		index.put(p, i);
+		lowLink.put(p, i);
+		stack.add(p);
+		onStack.add(p);
+		boolean selfLoop = false;
+		for (Parser child : leftCorners(p))
+		{
+			if (child == p)
+			{
+				selfLoop = true;
+			}
+			if (!index.containsKey(child))
+			{
+				findLeftRecursion(child);
+				lowLink.put(p, Math.min(lowLink.get(p), lowLink.get(child)));
+			}
+			else if (onStack.contains(child))
+			{
+				lowLink.put(p, Math.min(lowLink.get(p), index.get(child)));
+			}
+		}
+		if (lowLink.get(p) != i)
+		{
+			return;
+		}
+
+		// p is the root of a component: pop it
+		List<Parser> component = new ArrayList<Parser>();
+		Parser q;
+		do
+		{
+			q = stack.remove(stack.size() - 1);
+			onStack.remove(q);
+			component.add(0, q);
+		}
+		while (q != p);
+		if ((component.size() > 1) || selfLoop)
+		{
+			StringBuffer s = TextUtil.emptyStringBuffer();
+			s.append("left recursion through");
+			for (Parser member : component)
+			{
+				s.append(" ");
+				s.append(ProfileReportParserVisitor.label(member));
+			}
+			hazards.add(new GrammarHazard(HazardType.LEFT_RECURSION, p, s.toString()));
+		}
+	}
+
+	/**
+	 * Return the sub-parsers a parser may invoke before consuming any elements.
+	 *
+	 * @param p
+	 *            parser
+	 * @return left corners of <code>p</code>
+	 */
+	private List<Parser> leftCorners(Parser p)
+	{
+		List<Parser> corners = new ArrayList<Parser>();
+		if (p instanceof Sequence)
+		{
+			for (Parser child : ((Sequence) p).getSubparsers())
+			{
+				corners.add(child);
+				if (!analysis.isNullable(child))
+				{
+					break;
+				}
+			}
+		}
+		else if (p instanceof Alternation)
+		{
+			corners.addAll(((Alternation) p).getSubparsers());
+		}
+		else if (p instanceof Repetition)
+		{
+			corners.add(((Repetition) p).getSubparser());
+		}
+		return corners;
+	}
+
+	/**
+	 * Find the repetitions in an outer repetition's body that can consume the elements
+	 * that follow them in the body, or (at the end of the body) the elements that start
+	 * the next iteration of the outer repetition.
+	 *
+	 * @param outer
+	 *            outer repetition
+	 * @param p
+	 *            a parser in <code>outer</code>'s body
+	 * @param follow
+	 *            the terminals that may follow <code>p</code> in the body
+	 * @param atEnd
+	 *            may <code>p</code> be followed by the end of the body
+	 * @param visited
+	 *            parsers examined so far
+	 */
+	private void findNestedRepetitions(Repetition outer, Parser p, Set<Terminal> follow,
+			boolean atEnd, Set<Parser> visited)
+	{
+		if ((p == outer) || !visited.add(p))
+		{
+			return;
+		}
+		if (p instanceof Repetition)
+		{
+			Parser body = ((Repetition) p).getSubparser();
+			Parser outerBody = outer.getSubparser();
+			boolean overlaps = mayOverlap(analysis.getFirstSet(body), follow)
+					|| (analysis.isUnrestricted(body) && !follow.isEmpty());
+			if (atEnd)
+			{
+				overlaps = overlaps || mayOverlap(body, outerBody);
+			}
+			if (overlaps)
+			{
+				hazards.add(new GrammarHazard(HazardType.NESTED_REPETITION, outer,
+						"repetition " + ProfileReportParserVisitor.label(outer)
+								+ ": contains repetition "
+								+ ProfileReportParserVisitor.label(p)
+								+ ", which can consume the elements that follow it"));
+			}
+			// The inner repetition is analyzed as an outer repetition of its own
+			return;
+		}
+		if (p instanceof Alternation)
+		{
+			for (Parser child : ((Alternation) p).getSubparsers())
+			{
+				findNestedRepetitions(outer, child, follow, atEnd, visited);
+			}
+		}
+		else if (p instanceof Sequence)
+		{
+			List<Parser> children = ((Sequence) p).getSubparsers();
+			int n = children.size();
+
+			// Compute the follow sets from right to left
+			List<Set<Terminal>> follows = new ArrayList<Set<Terminal>>(n);
+			boolean[] ends = new boolean[n];
+			Set<Terminal> after = new LinkedHashSet<Terminal>(follow);
+			boolean end = atEnd;
+			for (int i = n - 1; i >= 0; i--)
+			{
+				follows.add(0, after);
+				ends[i] = end;
+				Parser child = children.get(i);
+				Set<Terminal> before = new LinkedHashSet<Terminal>(analysis.getFirstSet(child));
+				if (analysis.isNullable(child))
+				{
+					before.addAll(after);
+				}
+				else
+				{
+					end = false;
+				}
+				after = before;
+			}
+			for (int i = 0; i < n; i++)
+			{
+				findNestedRepetitions(outer, children.get(i), follows.get(i), ends[i],
+						visited);
+			}
+		}
+	}
+
+	/**
+	 * @param p
+	 *            parser
+	 * @return true if <code>p</code> can match an assembly regardless of its next
+	 *         element
+	 */
+	private boolean isAlwaysViable(Parser p)
+	{
+		return analysis.isNullable(p) || analysis.isUnrestricted(p);
+	}
+
+	/**
+	 * @param a
+	 *            a parser
+	 * @param b
+	 *            another parser
+	 * @return true if <code>a</code> and <code>b</code> may both match an assembly
+	 */
+	private boolean mayOverlap(Parser a, Parser b)
+	{
+		return isAlwaysViable(a) || isAlwaysViable(b)
+				|| mayOverlap(analysis.getFirstSet(a), analysis.getFirstSet(b));
+	}
+
+	/**
+	 * @param a
+	 *            a set of terminals
+	 * @param b
+	 *            another set of terminals
+	 * @return true if a terminal of <code>a</code> and a terminal of <code>b</code>
+	 *         may accept the same element
+	 */
+	private static boolean mayOverlap(Set<Terminal> a, Set<Terminal> b)
+	{
+		for (Terminal s : a)
+		{
+			for (Terminal t : b)
+			{
+				if (s.mayOverlap(t))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
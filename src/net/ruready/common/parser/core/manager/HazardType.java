@@ -0,0 +1,61 @@
+/*******************************************************
+ * Source File: HazardType.java
+ *******************************************************/
+package net.ruready.common.parser.core.manager;
+
+/**
+ * Types of grammar performance hazards found by {@link HazardParserVisitor}.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without
+ * permission from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ * 
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public enum HazardType
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * An unbounded repetition of a parser that can match without consuming elements.
+	 * The repetition never terminates.
+	 */
+	NULLABLE_REPETITION,
+
+	/**
+	 * A parser that can invoke itself without consuming elements. Matching it never
+	 * terminates.
+	 */
+	LEFT_RECURSION,
+
+	/**
+	 * Alternation branches that can match the same element. Every overlapping branch
+	 * multiplies the number of assemblies that the rest of the parse works on.
+	 */
+	OVERLAPPING_ALTERNATIVES,
+
+	/**
+	 * A repetition nested in another repetition, where the inner repetition can consume
+	 * the elements that start the next iteration of the outer one. The number of ways to
+	 * match an input can grow exponentially with its length.
+	 */
+	NESTED_REPETITION;
+
+	// ========================= FIELDS ====================================
+
+	// ========================= METHODS ===================================
+
+}
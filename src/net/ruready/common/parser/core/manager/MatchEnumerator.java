@@ -0,0 +1,689 @@
+/*****************************************************************************************
+ * Source File: MatchEnumerator.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.ruready.common.parser.core.assembler.Assembler;
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.entity.Matches;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Enumerates the matches of a parser against an assembly one at a time, instead of
+ * computing the whole set of matches as <code>matchAndAssemble()</code> does. The
+ * grammar is matched depth-first: each match is completed, assembled and returned before
+ * the next one is looked for, so only the matches along the current path are held in
+ * memory. This makes it possible to inspect (or count) the parses of ambiguous grammars
+ * whose match sets are too large to materialize.
+ * <p>
+ * The enumeration yields the same matches as <code>matchAndAssemble()</code>, in a
+ * different order, and runs the same assemblers on each of them. Sequences,
+ * alternations, repetitions, empty parsers and terminals are enumerated lazily; other
+ * parsers, and possessive repetitions (which need all iterations of a level to find the
+ * longest), are matched with <code>matchAndAssemble()</code> against one assembly at a
+ * time. A repetition iteration that consumes no elements ends the repetition once its
+ * minimum number of iterations has been reached. Parse contexts are not used.
+ * <p>
+ * Each returned assembly is owned by the caller. The input assembly is not modified.
+ * <p>
+ * If the assemblers append to a store outside the assemblies, such as a parse tree
+ * arena, only the store's additions along the current path are needed. Pass the store
+ * to {@link #setCheckpointable(Checkpointable)}: a checkpoint is taken before each
+ * choice point (a subparser of a sequence, a branch of an alternation or an iteration of
+ * a repetition) is matched, and the store is rolled back to it once the choice point's
+ * matches are exhausted. Additions made for a returned assembly are therefore only valid
+ * until the next match is requested. The iterator of {@link #completeMatches(Assembly)}
+ * computes a match and rolls the store back only in <code>next()</code>; its
+ * <code>hasNext()</code> looks ahead with a second enumeration that runs no assemblers,
+ * so the last returned match stays valid until <code>next()</code> is called again.
+ *
+ * <pre>
+ * Iterator&lt;Assembly&gt; it = new MatchEnumerator(grammar).completeMatches(a);
+ * while (it.hasNext())
+ * {
+ * 	Object tree = it.next().pop();
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class MatchEnumerator
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(MatchEnumerator.class);
+
+	// ========================= NESTED TYPES ==============================
+
+	/**
+	 * A store that assemblers append to, and that can be rolled back to an earlier state.
+	 */
+	public interface Checkpointable
+	{
+		/**
+		 * Return the current state of the store.
+		 *
+		 * @return an opaque checkpoint
+		 */
+		long checkpoint();
+
+		/**
+		 * Discard everything appended to the store since a checkpoint was taken.
+		 *
+		 * @param checkpoint
+		 *            value returned by <code>checkpoint()</code>
+		 */
+		void rollback(long checkpoint);
+	}
+
+	// ========================= FIELDS ====================================
+
+	// Root parser
+	private final Parser parser;
+
+	// Run assemblers (true) or only match (false)
+	private boolean assemble = true;
+
+	// Store that is rolled back on backtracking; null = none
+	private Checkpointable checkpointable = null;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a match enumerator.
+	 *
+	 * @param parser
+	 *            root parser
+	 */
+	public MatchEnumerator(Parser parser)
+	{
+		super();
+		this.parser = parser;
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Enumerate the matches of the root parser against an assembly.
+	 *
+	 * @param a
+	 *            assembly to match against
+	 * @return an iterator over the matches; each is computed when it is requested
+	 */
+	public Iterator<Assembly> matches(Assembly a)
+	{
+		return matchAndAssemble(parser, a);
+	}
+
+	/**
+	 * Enumerate the complete matches of the root parser against an assembly, i.e. those
+	 * that consumed all elements.
+	 *
+	 * @param a
+	 *            assembly to match against
+	 * @return an iterator over the complete matches; each is computed when it is
+	 *         requested
+	 */
+	public Iterator<Assembly> completeMatches(Assembly a)
+	{
+		if (checkpointable == null)
+		{
+			return complete(matches(a));
+		}
+
+		// Look ahead without touching the store, and compute each match in next()
+		final Iterator<Assembly> matches = complete(matches(a));
+		final Iterator<Assembly> lookahead = new MatchEnumerator(parser)
+				.setAssemble(false).completeMatches(a);
+		return new Iterator<Assembly>()
+		{
+			public boolean hasNext()
+			{
+				return lookahead.hasNext();
+			}
+
+			public Assembly next()
+			{
+				lookahead.next();
+				return matches.next();
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Count the complete matches of the root parser against an assembly without keeping
+	 * them.
+	 *
+	 * @param a
+	 *            assembly to match against
+	 * @return number of complete matches
+	 */
+	public long countCompleteMatches(Assembly a)
+	{
+		long count = 0;
+		for (Iterator<Assembly> it = complete(matches(a)); it.hasNext(); it.next())
+		{
+			count++;
+		}
+		return count;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Filter the complete matches, i.e. those that consumed all elements.
+	 *
+	 * @param matches
+	 *            an iterator over matches
+	 * @return an iterator over the complete matches among <code>matches</code>
+	 */
+	private static Iterator<Assembly> complete(final Iterator<Assembly> matches)
+	{
+		return new LookaheadIterator()
+		{
+			@Override
+			protected Assembly computeNext()
+			{
+				while (matches.hasNext())
+				{
+					Assembly b = matches.next();
+					if (!b.hasMoreElements())
+					{
+						return b;
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Enumerate the matches of a parser against an assembly, each assembled by the
+	 * parser's assembler.
+	 *
+	 * @param p
+	 *            parser
+	 * @param a
+	 *            assembly to match against; not modified
+	 * @return an iterator over the matches
+	 */
+	private Iterator<Assembly> matchAndAssemble(Parser p, Assembly a)
+	{
+		Class<?> c = p.getClass();
+		if (p instanceof Terminal)
+		{
+			Assembly b = ((Terminal) p).matchOneAssembly(a);
+			return (b == null) ? Collections.<Assembly> emptyList().iterator() : single(p,
+					b);
+		}
+		if (c == Empty.class)
+		{
+			return single(p, a.clone());
+		}
+		if (c == Sequence.class)
+		{
+			return new SequenceIterator((Sequence) p, a);
+		}
+		if (c == Alternation.class)
+		{
+			return new AlternationIterator((Alternation) p, a);
+		}
+		if ((c == Repetition.class)
+				&& (((Repetition) p).getMode() != RepetitionMode.POSSESSIVE))
+		{
+			return new RepetitionIterator((Repetition) p, a);
+		}
+
+		// Match eagerly
+		Matches in = new Matches();
+		in.addAssembly(a.clone());
+		return p.matchAndAssemble(in).getAssemblies().iterator();
+	}
+
+	/**
+	 * Enumerate the matches of a parser at a choice point. If a store is rolled back on
+	 * backtracking, it is rolled back once the matches are exhausted to its state before
+	 * the parser was matched.
+	 *
+	 * @param p
+	 *            parser
+	 * @param a
+	 *            assembly to match against; not modified
+	 * @return an iterator over the matches
+	 */
+	private Iterator<Assembly> choicePoint(Parser p, Assembly a)
+	{
+		if (checkpointable == null)
+		{
+			return matchAndAssemble(p, a);
+		}
+		long checkpoint = checkpointable.checkpoint();
+		return new RollbackIterator(matchAndAssemble(p, a), checkpoint);
+	}
+
+	/**
+	 * Return a single match assembled by a parser's assembler.
+	 *
+	 * @param p
+	 *            parser
+	 * @param b
+	 *            match
+	 * @return an iterator over <code>b</code>
+	 */
+	private Iterator<Assembly> single(Parser p, Assembly b)
+	{
+		return Collections.singletonList(assemble(p, b)).iterator();
+	}
+
+	/**
+	 * Apply a parser's assembler to a match, if assemblers are run.
+	 *
+	 * @param p
+	 *            parser
+	 * @param b
+	 *            match
+	 * @return <code>b</code>
+	 */
+	private Assembly assemble(Parser p, Assembly b)
+	{
+		Assembler assembler = p.getAssembler();
+		if (assemble && (assembler != null))
+		{
+			assembler.workOn(b);
+		}
+		return b;
+	}
+
+	/**
+	 * An iterator that computes each element when it is looked for.
+	 */
+	private static abstract class LookaheadIterator implements Iterator<Assembly>
+	{
+		// Next element; null if not computed yet or if there is none
+		private Assembly next = null;
+
+		// Has the iteration ended
+		private boolean done = false;
+
+		/**
+		 * Compute the next element.
+		 *
+		 * @return the next element, or <code>null</code> if there is none
+		 */
+		protected abstract Assembly computeNext();
+
+		/**
+		 * @see java.util.Iterator#hasNext()
+		 */
+		public final boolean hasNext()
+		{
+			if ((next == null) && !done)
+			{
+				next = computeNext();
+				done = (next == null);
+			}
+			return !done;
+		}
+
+		/**
+		 * @see java.util.Iterator#next()
+		 */
+		public final Assembly next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			Assembly result = next;
+			next = null;
+			return result;
+		}
+
+		/**
+		 * @see java.util.Iterator#remove()
+		 */
+		public final void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Matches of a choice point: rolls the store back to a checkpoint when they are
+	 * exhausted.
+	 */
+	private final class RollbackIterator extends LookaheadIterator
+	{
+		// Matches of the choice point
+		private final Iterator<Assembly> matches;
+
+		// Store state before the choice point was matched
+		private final long checkpoint;
+
+		/**
+		 * @param matches
+		 *            matches of the choice point
+		 * @param checkpoint
+		 *            store state before the choice point was matched
+		 */
+		RollbackIterator(Iterator<Assembly> matches, long checkpoint)
+		{
+			super();
+			this.matches = matches;
+			this.checkpoint = checkpoint;
+		}
+
+		/**
+		 * @see net.ruready.common.parser.core.manager.MatchEnumerator.LookaheadIterator#computeNext()
+		 */
+		@Override
+		protected Assembly computeNext()
+		{
+			if (matches.hasNext())
+			{
+				return matches.next();
+			}
+			checkpointable.rollback(checkpoint);
+			return null;
+		}
+	}
+
+	/**
+	 * Matches of a sequence: a depth-first walk through the matches of each subparser
+	 * against each match of the previous one.
+	 */
+	private final class SequenceIterator extends LookaheadIterator
+	{
+		// The sequence
+		private final Sequence sequence;
+
+		// Input, if the sequence is empty and has not returned it yet
+		private Assembly empty;
+
+		// Matches of the subparsers on the current path
+		private final List<Iterator<Assembly>> path = new ArrayList<Iterator<Assembly>>();
+
+		/**
+		 * @param sequence
+		 *            the sequence
+		 * @param a
+		 *            assembly to match against
+		 */
+		SequenceIterator(Sequence sequence, Assembly a)
+		{
+			super();
+			this.sequence = sequence;
+			List<Parser> subparsers = sequence.getSubparsers();
+			if (subparsers.isEmpty())
+			{
+				empty = a;
+			}
+			else
+			{
+				path.add(choicePoint(subparsers.get(0), a));
+			}
+		}
+
+		/**
+		 * @see net.ruready.common.parser.core.manager.MatchEnumerator.LookaheadIterator#computeNext()
+		 */
+		@Override
+		protected Assembly computeNext()
+		{
+			if (empty != null)
+			{
+				Assembly b = empty.clone();
+				empty = null;
+				return assemble(sequence, b);
+			}
+			List<Parser> subparsers = sequence.getSubparsers();
+			while (!path.isEmpty())
+			{
+				int last = path.size() - 1;
+				Iterator<Assembly> it = path.get(last);
+				if (!it.hasNext())
+				{
+					path.remove(last);
+				}
+				else if (last == subparsers.size() - 1)
+				{
+					return assemble(sequence, it.next());
+				}
+				else
+				{
+					path.add(choicePoint(subparsers.get(last + 1), it.next()));
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Matches of an alternation: the matches of each viable branch in turn.
+	 */
+	private final class AlternationIterator extends LookaheadIterator
+	{
+		// The alternation
+		private final Alternation alternation;
+
+		// Assembly to match against
+		private final Assembly a;
+
+		// Viable branch flags; null if all are viable
+		private final boolean[] viable;
+
+		// Index of the current branch
+		private int branch = -1;
+
+		// Matches of the current branch
+		private Iterator<Assembly> matches = Collections.<Assembly> emptyList().iterator();
+
+		/**
+		 * @param alternation
+		 *            the alternation
+		 * @param a
+		 *            assembly to match against
+		 */
+		AlternationIterator(Alternation alternation, Assembly a)
+		{
+			super();
+			this.alternation = alternation;
+			this.a = a;
+			this.viable = alternation.viableBranches(a);
+		}
+
+		/**
+		 * @see net.ruready.common.parser.core.manager.MatchEnumerator.LookaheadIterator#computeNext()
+		 */
+		@Override
+		protected Assembly computeNext()
+		{
+			List<Parser> subparsers = alternation.getSubparsers();
+			while (!matches.hasNext())
+			{
+				do
+				{
+					branch++;
+				}
+				while ((branch < subparsers.size()) && (viable != null) && !viable[branch]);
+				if (branch >= subparsers.size())
+				{
+					return null;
+				}
+				matches = choicePoint(subparsers.get(branch), a);
+			}
+			return assemble(alternation, matches.next());
+		}
+	}
+
+	/**
+	 * Matches of a repetition: a depth-first walk through the iterations of the
+	 * subparser. A lazy repetition is walked to its minimum number of iterations only.
+	 */
+	private final class RepetitionIterator extends LookaheadIterator
+	{
+		// The repetition
+		private final Repetition repetition;
+
+		// Minimum and maximum number of iterations to return
+		private final int min;
+
+		private final int max;
+
+		// Pre-assembled input, if zero iterations are to be returned and have not been
+		private Assembly zero;
+
+		// Matches of the iterations on the current path
+		private final List<Iterator<Assembly>> path = new ArrayList<Iterator<Assembly>>();
+
+		// Number of elements consumed by the input of each iteration on the current path
+		private final List<Integer> consumed = new ArrayList<Integer>();
+
+		/**
+		 * @param repetition
+		 *            the repetition
+		 * @param a
+		 *            assembly to match against
+		 */
+		RepetitionIterator(Repetition repetition, Assembly a)
+		{
+			super();
+			this.repetition = repetition;
+			this.min = repetition.getMin();
+			this.max = (repetition.getMode() == RepetitionMode.LAZY) ? min : repetition
+					.getMax();
+			Assembly start = a.clone();
+			if (assemble && (repetition.preAssembler != null))
+			{
+				repetition.preAssembler.workOn(start);
+			}
+			if (min == 0)
+			{
+				zero = start;
+			}
+			if (max > 0)
+			{
+				push(start);
+			}
+		}
+
+		/**
+		 * @see net.ruready.common.parser.core.manager.MatchEnumerator.LookaheadIterator#computeNext()
+		 */
+		@Override
+		protected Assembly computeNext()
+		{
+			if (zero != null)
+			{
+				Assembly b = zero.clone();
+				zero = null;
+				return assemble(repetition, b);
+			}
+			while (!path.isEmpty())
+			{
+				int last = path.size() - 1;
+				Iterator<Assembly> it = path.get(last);
+				if (!it.hasNext())
+				{
+					path.remove(last);
+					consumed.remove(last);
+					continue;
+				}
+				Assembly b = it.next();
+				int count = last + 1;
+				boolean advanced = (b.elementsConsumed() > consumed.get(last));
+				boolean deeper = (count < max) && ((count < min) || advanced);
+				if (deeper)
+				{
+					push(b);
+				}
+				if (count >= min)
+				{
+					return assemble(repetition, deeper ? b.clone() : b);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Start the next iteration of the subparser.
+		 *
+		 * @param b
+		 *            input of the iteration
+		 */
+		private void push(Assembly b)
+		{
+			path.add(choicePoint(repetition.getSubparser(), b));
+			consumed.add(b.elementsConsumed());
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the store that is rolled back on backtracking, or <code>null</code>
+	 */
+	public Checkpointable getCheckpointable()
+	{
+		return checkpointable;
+	}
+
+	/**
+	 * @param checkpointable
+	 *            a store that the assemblers append to, to be rolled back on
+	 *            backtracking; <code>null</code> for none
+	 * @return this object, for chaining
+	 */
+	public MatchEnumerator setCheckpointable(Checkpointable checkpointable)
+	{
+		this.checkpointable = checkpointable;
+		return this;
+	}
+
+	/**
+	 * @return the root parser
+	 */
+	public Parser getParser()
+	{
+		return parser;
+	}
+
+	/**
+	 * @return true if assemblers are run on the matches
+	 */
+	public boolean isAssemble()
+	{
+		return assemble;
+	}
+
+	/**
+	 * @param assemble
+	 *            run assemblers (true) or only match (false), e.g. to count matches
+	 *            cheaply. Parsers that are matched eagerly run their assemblers anyway
+	 * @return this object, for chaining
+	 */
+	public MatchEnumerator setAssemble(boolean assemble)
+	{
+		this.assemble = assemble;
+		return this;
+	}
+}
@@ -0,0 +1,501 @@
+/*****************************************************************************************
+ * Source File: ParseResultCache.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ruready.common.exception.InternationalizableErrorMessage;
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.entity.Match;
+import net.ruready.common.parser.core.entity.ParseContext;
+import net.ruready.common.text.TextUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A bounded, least-recently-used cache of parse results, to put in front of
+ * <code>Parser.bestMatch()</code> and <code>Parser.completeMatch()</code> when the same
+ * inputs are parsed repeatedly (e.g. by a <code>ParserService</code>).
+ * <p>
+ * A result is keyed by the identity of the grammar, the kind of match and the elements
+ * of the input assembly (for token assemblies, the normalized token sequence: inputs
+ * that differ only in white space share an entry). The cache stores a snapshot of each
+ * result, and every read returns a new <code>Match</code> of a clone of the snapshot
+ * assembly; the target is shared copy-on-write (see <code>Assembly.clone()</code>), so
+ * callers may modify the target, the stack and the syntax error list of the returned
+ * match without affecting the cache.
+ * <p>
+ * Targets are not compared. An input assembly that has a target is only cached if the
+ * caller passes a <code>qualifier</code> that determines the initial target (e.g. the
+ * parser options the target was built from); otherwise it is parsed without the cache.
+ * Results of parses that were cancelled or ran out of budget are not cached. A context
+ * that tracks failures bypasses the cache, since the failure is reported in the context
+ * of the parse that found it, and so does a context with an ambiguity policy
+ * (deduplication or a beam width), since its results may differ from those of an
+ * unpruned parse. The grammar
+ * must not change while its results are cached; freeze it, or <code>clear()</code> the
+ * cache after changing it. The cache is thread-safe.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class ParseResultCache
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParseResultCache.class);
+
+	/**
+	 * Default maximum number of cached results.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Cached "no complete match" result.
+	 */
+	private static final Match NO_MATCH = new Match(null,
+			new ArrayList<InternationalizableErrorMessage>());
+
+	// ========================= FIELDS ====================================
+
+	// Maximum number of cached results
+	private final int capacity;
+
+	// Key -> result snapshot, in least-recently-used order
+	private final Map<Key, Match> entries;
+
+	// Number of lookups that found a result
+	private long hits = 0;
+
+	// Number of lookups that did not find a result
+	private long misses = 0;
+
+	// Number of results evicted to make room for new ones
+	private long evictions = 0;
+
+	// Number of parses that bypassed the cache
+	private long bypasses = 0;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a cache of the default capacity.
+	 */
+	public ParseResultCache()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param capacity
+	 *            maximum number of cached results
+	 */
+	public ParseResultCache(final int capacity)
+	{
+		super();
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<Key, Match>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Match> eldest)
+			{
+				if (size() > ParseResultCache.this.capacity)
+				{
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		s.append("ParseResultCache[");
+		s.append("size=");
+		s.append(entries.size());
+		s.append("/");
+		s.append(capacity);
+		s.append(" hits=");
+		s.append(hits);
+		s.append(" misses=");
+		s.append(misses);
+		s.append(" evictions=");
+		s.append(evictions);
+		s.append(" bypasses=");
+		s.append(bypasses);
+		s.append("]");
+		return s.toString();
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Return the best match of an assembly, parsing it only if the result is not cached.
+	 *
+	 * @param parser
+	 *            grammar
+	 * @param a
+	 *            an assembly to match against
+	 * @return an assembly with the greatest possible number of elements consumed by the
+	 *         parser
+	 * @see Parser#bestMatch(Assembly)
+	 */
+	public Match bestMatch(Parser parser, Assembly a)
+	{
+		return match(parser, a, false, null, null);
+	}
+
+	/**
+	 * Return the best match of an assembly, parsing it only if the result is not cached.
+	 *
+	 * @param parser
+	 *            grammar
+	 * @param a
+	 *            an assembly to match against
+	 * @param qualifier
+	 *            an object that determines the assembly's initial target; may be
+	 *            <code>null</code> if the assembly has no target
+	 * @param context
+	 *            per-parse context of a parse; may be <code>null</code>
+	 * @return an assembly with the greatest possible number of elements consumed by the
+	 *         parser
+	 * @see Parser#bestMatch(Assembly, ParseContext)
+	 */
+	public Match bestMatch(Parser parser, Assembly a, Object qualifier,
+			ParseContext context)
+	{
+		return match(parser, a, false, qualifier, context);
+	}
+
+	/**
+	 * Return the complete match of an assembly, parsing it only if the result is not
+	 * cached.
+	 *
+	 * @param parser
+	 *            grammar
+	 * @param a
+	 *            an assembly to match against
+	 * @return either null, or a completely matched version of the assembly
+	 * @see Parser#completeMatch(Assembly)
+	 */
+	public Match completeMatch(Parser parser, Assembly a)
+	{
+		return match(parser, a, true, null, null);
+	}
+
+	/**
+	 * Return the complete match of an assembly, parsing it only if the result is not
+	 * cached.
+	 *
+	 * @param parser
+	 *            grammar
+	 * @param a
+	 *            an assembly to match against
+	 * @param qualifier
+	 *            an object that determines the assembly's initial target; may be
+	 *            <code>null</code> if the assembly has no target
+	 * @param context
+	 *            per-parse context of a parse; may be <code>null</code>
+	 * @return either null, or a completely matched version of the assembly
+	 * @see Parser#completeMatch(Assembly, ParseContext)
+	 */
+	public Match completeMatch(Parser parser, Assembly a, Object qualifier,
+			ParseContext context)
+	{
+		return match(parser, a, true, qualifier, context);
+	}
+
+	/**
+	 * Remove all cached results. Does not reset the statistics.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	/**
+	 * Reset the hit, miss, eviction and bypass counters.
+	 */
+	public synchronized void resetStatistics()
+	{
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		bypasses = 0;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Look up a result, or parse the assembly and cache its result.
+	 *
+	 * @param parser
+	 *            grammar
+	 * @param a
+	 *            an assembly to match against
+	 * @param complete
+	 *            complete match (true) or best match (false)
+	 * @param qualifier
+	 *            an object that determines the assembly's initial target
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 * @return match result
+	 */
+	private Match match(Parser parser, Assembly a, boolean complete, Object qualifier,
+			ParseContext context)
+	{
+		if (((a.peekTarget() != null) && (qualifier == null))
+				|| ((context != null) && (context.isTrackFailures() || context
+						.isPruning())))
+		{
+			synchronized (this)
+			{
+				bypasses++;
+			}
+			return parse(parser, a, complete, context);
+		}
+
+		Key key = new Key(parser, a, complete, qualifier);
+		Match snapshot;
+		synchronized (this)
+		{
+			snapshot = entries.get(key);
+			if (snapshot == null)
+			{
+				misses++;
+			}
+			else
+			{
+				hits++;
+			}
+		}
+		if (snapshot != null)
+		{
+			return copy(snapshot);
+		}
+
+		// Parse outside the lock; concurrent misses of the same key both parse
+		Match result = parse(parser, a, complete, context);
+		if ((context != null) && context.isStopped())
+		{
+			return result;
+		}
+		snapshot = (result == null) ? NO_MATCH : copy(result);
+		if (snapshot.getAssembly() != null)
+		{
+			snapshot.getAssembly().setProfile(null);
+		}
+		synchronized (this)
+		{
+			entries.put(key, snapshot);
+		}
+		return result;
+	}
+
+	/**
+	 * Parse an assembly.
+	 *
+	 * @param parser
+	 *            grammar
+	 * @param a
+	 *            an assembly to match against
+	 * @param complete
+	 *            complete match (true) or best match (false)
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 * @return match result
+	 */
+	private static Match parse(Parser parser, Assembly a, boolean complete,
+			ParseContext context)
+	{
+		return complete ? parser.completeMatch(a, context) : parser.bestMatch(a, context);
+	}
+
+	/**
+	 * Return a copy of a match that shares nothing mutable with it.
+	 *
+	 * @param match
+	 *            match
+	 * @return copy of <code>match</code>, or <code>null</code> for the "no match" result
+	 */
+	private static Match copy(Match match)
+	{
+		if (match == NO_MATCH)
+		{
+			return null;
+		}
+		Assembly a = match.getAssembly();
+		return new Match((a == null) ? null : a.clone(),
+				new ArrayList<InternationalizableErrorMessage>(match.getSyntaxErrors()));
+	}
+
+	// ========================= NESTED TYPES ==============================
+
+	/**
+	 * Cache key: grammar identity, kind of match, qualifier and input elements.
+	 */
+	private static final class Key
+	{
+		// Grammar, compared by identity
+		private final Parser parser;
+
+		// Complete match (true) or best match (false)
+		private final boolean complete;
+
+		// Determines the initial target; compared by equals()
+		private final Object qualifier;
+
+		// Number of elements already consumed
+		private final int consumed;
+
+		// Remaining elements, followed by the stack elements
+		private final Object[] elements;
+
+		// Cached hash code
+		private final int hash;
+
+		/**
+		 * @param parser
+		 *            grammar
+		 * @param a
+		 *            input assembly
+		 * @param complete
+		 *            complete match (true) or best match (false)
+		 * @param qualifier
+		 *            determines the initial target
+		 */
+		Key(Parser parser, Assembly a, boolean complete, Object qualifier)
+		{
+			this.parser = parser;
+			this.complete = complete;
+			this.qualifier = qualifier;
+			this.consumed = a.elementsConsumed();
+			List<Object> list = new ArrayList<Object>(a.elementsRemaining() + 1);
+			Assembly b = a.clone();
+			while (b.hasMoreElements())
+			{
+				list.add(b.nextElement());
+			}
+			// Separate the input from the stack
+			list.add(Key.class);
+			list.addAll(Arrays.asList(a.getPersistentStack().toArray()));
+			this.elements = list.toArray();
+
+			int h = System.identityHashCode(parser);
+			h = 31 * h + (complete ? 1 : 0);
+			h = 31 * h + ((qualifier == null) ? 0 : qualifier.hashCode());
+			h = 31 * h + consumed;
+			this.hash = 31 * h + Arrays.hashCode(elements);
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key) obj;
+			return (parser == other.parser)
+					&& (complete == other.complete)
+					&& (consumed == other.consumed)
+					&& (hash == other.hash)
+					&& ((qualifier == null) ? (other.qualifier == null) : qualifier
+							.equals(other.qualifier))
+					&& Arrays.equals(elements, other.elements);
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the maximum number of cached results
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * @return the number of cached results
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of lookups that found a result
+	 */
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups that did not find a result
+	 */
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return the number of results evicted to make room for new ones
+	 */
+	public synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+	/**
+	 * @return the number of parses that bypassed the cache because their assemblies had
+	 *         targets and no qualifier was given, or because their contexts tracked
+	 *         failures or pruned results
+	 */
+	public synchronized long getBypasses()
+	{
+		return bypasses;
+	}
+}
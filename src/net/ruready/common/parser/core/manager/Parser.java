@@ -6,10 +6,13 @@ package net.ruready.common.parser.core.manager;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.ruready.common.exception.SystemException;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
 import net.ruready.common.parser.core.entity.Match;
 import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.entity.ParseContext;
+import net.ruready.common.parser.core.entity.ParserProfile;
 import net.ruready.common.visitor.Visitable;
 
 import org.apache.commons.logging.Log;
@@ -94,6 +97,9 @@ public abstract class Parser implements Visitable<ParserVisitor>
 	// matches against the assembly
 	private Assembler assembler;
 
+	// Has the grammar this parser belongs to been frozen
+	private boolean frozen = false;
+
 	// ========================= CONSTRCUTORS ==============================
 
 	/**
@@ -137,10 +143,15 @@ public abstract class Parser implements Visitable<ParserVisitor>
 	public abstract Matches match(Matches in);
 
 	/**
-	 * Create a random expansion for this parser, where a concatenation of the returned
-	 * collection will be a language element.
+	 * Expand this parser into a random element of its language: emit the element's
+	 * parts to a generator, drawing all random choices from the generator.
+	 * 
+	 * @param generator
+	 *            random input generator
+	 * @param depth
+	 *            depth of this parser in the expansion
 	 */
-	protected abstract List<?> randomExpansion(int maxDepth, int depth);
+	protected abstract void randomExpansion(RandomInputGenerator generator, int depth);
 
 	/**
 	 * Returns a textual description of this string.
@@ -196,11 +207,50 @@ public abstract class Parser implements Visitable<ParserVisitor>
 	 *            an assembly to match against
 	 */
 	public Match bestMatch(Assembly a)
+	{
+		return this.bestMatch(a, null);
+	}
+
+	/**
+	 * Returns an assembly with the greatest possible number of elements consumed by
+	 * matches of this parser, using a per-parse context (e.g. to turn on packrat
+	 * memoization). If the parse is cancelled or exceeds the context's budget, returns
+	 * the furthest-consuming assembly produced before it stopped, with a syntax error
+	 * whose key is <code>CommonNames.KEY.PARSER_EXCEPTION.BUDGET_EXCEEDED</code> or
+	 * <code>CANCELLED</code>. If the context tracks failures and the input is not
+	 * completely matched, the match has a syntax error that describes the furthest
+	 * failure, whose key is <code>CommonNames.KEY.PARSER_EXCEPTION.UNEXPECTED_ELEMENT</code>.
+	 * 
+	 * @return an assembly with the greatest possible number of elements consumed by this
+	 *         parser
+	 * @param Assembly
+	 *            an assembly to match against
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 */
+	public Match bestMatch(Assembly a, ParseContext context)
 	{
 		Matches in = new Matches();
 		in.addAssembly(a);
-		Matches out = this.matchAndAssemble(in);
-		return this.best(out);
+		if (context == null)
+		{
+			return this.best(this.matchAndAssemble(in));
+		}
+
+		in.setContext(context);
+		context.beginParse();
+		a.setProfile(context.getActiveProfile());
+		try
+		{
+			Matches out = this.matchAndAssemble(in);
+			context.addPartialMatch(out);
+			context.addFailure(out);
+			return this.best(out);
+		}
+		finally
+		{
+			context.endParse();
+		}
 	}
 
 	/**
@@ -212,7 +262,27 @@ public abstract class Parser implements Visitable<ParserVisitor>
 	 */
 	public Match completeMatch(Assembly a)
 	{
-		Match best = this.bestMatch(a);
+		return this.completeMatch(a, null);
+	}
+
+	/**
+	 * Returns either null, or a completely matched version of the supplied assembly,
+	 * using a per-parse context (e.g. to turn on packrat memoization).
+	 * 
+	 * @return either null, or a completely matched version of the supplied assembly
+	 * @param Assembly
+	 *            an assembly to match against
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 */
+	public Match completeMatch(Assembly a, ParseContext context)
+	{
+		Match best = this.bestMatch(a, context);
+		if ((context != null) && context.isStopped())
+		{
+			// A partial match is never complete
+			return null;
+		}
 		if (best != null && best.getAssembly() != null && !best.hasMoreElements())
 		{
 			// Clear all syntax errors because we completely matched
@@ -223,6 +293,17 @@ public abstract class Parser implements Visitable<ParserVisitor>
 		// return best;
 	}
 
+	/**
+	 * Returns the object that works on an assembly whenever this parser successfully
+	 * matches against the assembly.
+	 * 
+	 * @return this parser's assembler, or <code>null</code> if it has none
+	 */
+	public Assembler getAssembler()
+	{
+		return assembler;
+	}
+
 	/**
 	 * Returns the name of this parser.
 	 * 
@@ -248,27 +329,55 @@ public abstract class Parser implements Visitable<ParserVisitor>
 		{
 			logger.trace("matchAndAssemble(): " + this + " in " + in);
 		}
-		Matches out = this.match(in);
-		if (debug)
+		ParseContext context = in.getContext();
+		if ((context != null) && context.step(in))
+		{
+			// The parse was cancelled or ran out of budget; match nothing
+			Matches out = new Matches();
+			out.setContext(context);
+			return out;
+		}
+		ParserProfile profile = (context == null) ? null : context.getActiveProfile();
+		if (profile != null)
+		{
+			profile.enter();
+		}
+		Matches out;
+		if ((context != null) && context.isPackrat() && !in.isEmpty())
 		{
-			logger.trace("Finished matching: " + this + " in " + in + " out " + out);
-			if (out.isEmpty())
+			out = this.memoizedMatchAndAssemble(in, context);
+		}
+		else
+		{
+			out = this.match(in);
+			if (debug)
 			{
-				// logger.trace("No match: " + this + " in " + in + " out " + out);
+				logger.trace("Finished matching: " + this + " in " + in + " out " + out);
+				if (out.isEmpty())
+				{
+					// logger.trace("No match: " + this + " in " + in + " out " + out);
+				}
+				else
+				{
+					logger.trace("Found match: " + this + " in " + in + " out " + out);
+				}
 			}
-			else
+			int assembled = this.assemble(out, context);
+			if (profile != null)
 			{
-				logger.trace("Found match: " + this + " in " + in + " out " + out);
+				profile.assembled(assembled);
 			}
 		}
-		if (assembler != null)
+		if (context != null)
 		{
-			for (Assembly a : out.getAssemblies())
-			{
-				// logger.trace(this + " running assembler on assembly " + a);
-				assembler.workOn(a);
-			}
+			context.prune(out);
+			context.recordProgress(out);
+		}
+		if (profile != null)
+		{
+			profile.exit(this, in.numAssemblies(), out.numAssemblies());
 		}
+		out.setContext(context);
 		if (debug)
 		{
 			logger.trace("end matchAndAssemble(): " + this + " out " + out);
@@ -277,24 +386,25 @@ public abstract class Parser implements Visitable<ParserVisitor>
 	}
 
 	/**
-	 * Return a random element of this parser's language.
+	 * Return a random element of this parser's language. Use a
+	 * {@link RandomInputGenerator} to control the random seed and the size of the
+	 * element.
 	 * 
 	 * @return a random element of this parser's language
 	 */
 	public String randomInput(int maxDepth, String separator)
 	{
-		StringBuffer buf = new StringBuffer();
-		boolean first = true;
-		for (Object object : randomExpansion(maxDepth, 0))
-		{
-			if (!first)
-			{
-				buf.append(separator);
-			}
-			buf.append(object);
-			first = false;
-		}
-		return buf.toString();
+		return new RandomInputGenerator(this).setMaxDepth(maxDepth).setSeparator(separator)
+				.next();
+	}
+
+	/**
+	 * Create a random expansion for this parser, where a concatenation of the returned
+	 * collection will be a language element.
+	 */
+	protected List<?> randomExpansion(int maxDepth, int depth)
+	{
+		return new RandomInputGenerator(this).setMaxDepth(maxDepth).expansion(this, depth);
 	}
 
 	/**
@@ -307,10 +417,39 @@ public abstract class Parser implements Visitable<ParserVisitor>
 	 */
 	public Parser setAssembler(Assembler assembler)
 	{
+		checkNotFrozen();
 		this.assembler = assembler;
 		return this;
 	}
 
+	/**
+	 * Freeze the grammar of this parser: this parser and all parsers reachable from it
+	 * may no longer be changed. Their setters and <code>add()</code> methods throw a
+	 * <code>SystemException</code>, and collection parsers return an unmodifiable list of
+	 * sub-parsers. A frozen grammar may be shared by multiple threads, as long as its
+	 * assemblers are thread-safe; see {@link BatchParser}.
+	 * 
+	 * @return this
+	 */
+	public Parser freeze()
+	{
+		for (Parser p : FirstSetParserVisitor.analyze(this).getParsers())
+		{
+			p.frozen = true;
+		}
+		return this;
+	}
+
+	/**
+	 * Returns true if the grammar of this parser has been frozen.
+	 * 
+	 * @return true if this parser may no longer be changed
+	 */
+	public boolean isFrozen()
+	{
+		return frozen;
+	}
+
 	/**
 	 * Returns a textual description of this parser.
 	 * 
@@ -350,4 +489,83 @@ public abstract class Parser implements Visitable<ParserVisitor>
 			return unvisitedString(visited);
 		}
 	}
+
+	/**
+	 * Throw an exception if this parser has been frozen. Must be called by every method
+	 * that changes a parser.
+	 */
+	protected void checkNotFrozen()
+	{
+		if (frozen)
+		{
+			throw new SystemException("Cannot change a frozen parser: " + this);
+		}
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Apply this parser's assembler to every assembly in a match result. Stops early if
+	 * the parse is stopped.
+	 * 
+	 * @param out
+	 *            matches of this parser
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 * @return the number of assembler invocations
+	 */
+	private int assemble(Matches out, ParseContext context)
+	{
+		if (assembler == null)
+		{
+			return 0;
+		}
+		int assembled = 0;
+		for (Assembly a : out.getAssemblies())
+		{
+			if ((context != null) && context.poll())
+			{
+				break;
+			}
+			// logger.trace(this + " running assembler on assembly " + a);
+			assembler.workOn(a);
+			assembled++;
+		}
+		return assembled;
+	}
+
+	/**
+	 * Packrat version of <code>matchAndAssemble()</code>: match and assemble the input
+	 * assemblies, or reuse the memoized result of an equivalent set of assemblies if one
+	 * exists. The set is matched as a whole, so the result lists its assemblies in the
+	 * same order as <code>match()</code> would.
+	 * 
+	 * @param in
+	 *            a non-empty set of assemblies to match against
+	 * @param context
+	 *            per-parse context holding the memo table
+	 * @return a List of assemblies that result from matching against a beginning set of
+	 *         assemblies
+	 */
+	private Matches memoizedMatchAndAssemble(Matches in, ParseContext context)
+	{
+		Object key = context.fingerprint(this, in);
+		Matches out = context.lookup(key);
+		if (out == null)
+		{
+			int outerExtent = context.beginExtent();
+			Matches assemblies = new Matches(new ArrayList<Assembly>(in.getAssemblies()));
+			assemblies.setContext(context);
+			out = this.match(assemblies);
+			int assembled = this.assemble(out, context);
+			ParserProfile profile = context.getActiveProfile();
+			if (profile != null)
+			{
+				profile.assembled(assembled);
+			}
+			context.store(key, out);
+			context.endExtent(outerExtent);
+		}
+		return out;
+	}
 }
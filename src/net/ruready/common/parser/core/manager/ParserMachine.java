@@ -0,0 +1,357 @@
+/*****************************************************************************************
+ * Source File: ParserMachine.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.Arrays;
+
+import net.ruready.common.exception.SystemException;
+import net.ruready.common.parser.core.assembler.Assembler;
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.entity.Match;
+import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.entity.ParseContext;
+import net.ruready.common.parser.core.entity.ParserProfile;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Executes a {@link ParserProgram} in a single loop, with explicit return-address and
+ * frame stacks instead of Java recursion. Produces the same matches, and runs the same
+ * assemblers in the same order, as calling <code>matchAndAssemble()</code> on the
+ * program's root parser. Deeply recursive grammars do not consume Java stack.
+ * <p>
+ * The machine does not consult a context's packrat memo table; parsers compiled into
+ * <code>INVOKE</code> instructions still do. A context's ambiguity policy is applied to
+ * the result of every subroutine, and its budget is charged a step for every input
+ * assembly of every <code>CALL</code>, as <code>matchAndAssemble()</code> does. If the context has an
+ * active profile, every subroutine is recorded under the parser it was compiled from.
+ * <p>
+ * A machine holds its stacks between runs to avoid reallocating them, so it is not
+ * thread-safe. Programs are immutable and may be shared by machines in different
+ * threads.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class ParserMachine
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParserMachine.class);
+
+	// ========================= FIELDS ====================================
+
+	// Program to run
+	private final ParserProgram program;
+
+	// Return address stack
+	private int[] returnStack = new int[64];
+
+	// Callee stack, used when profiling: subroutine address (-1 if not recorded) and
+	// number of input assemblies of each call in progress
+	private int[] calleeStack = new int[128];
+
+	// Frame stack: the input of each alternation in progress
+	private Matches[] frameIn = new Matches[32];
+
+	// Frame stack: the accumulated output of each alternation/repetition in progress
+	private Matches[] frameOut = new Matches[32];
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * @param program
+	 *            program to run
+	 */
+	public ParserMachine(ParserProgram program)
+	{
+		super();
+		this.program = program;
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Run the program on a set of assemblies. Equivalent to
+	 * <code>getProgram().getRoot().matchAndAssemble(in)</code>.
+	 *
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return a List of assemblies that result from matching against a beginning set of
+	 *         assemblies
+	 */
+	public Matches run(Matches in)
+	{
+		final int[] code = program.getCode();
+		final Object[] constants = program.getConstants();
+		final ParseContext context = in.getContext();
+		final boolean pruning = (context != null) && context.isPruning();
+		final ParserProfile profile = (context == null) ? null : context.getActiveProfile();
+
+		Matches cur = in;
+		int pc = 0;
+		int rsp = 0;
+		int fsp = 0;
+		while (true)
+		{
+			final int op = code[pc];
+			final int operand = code[pc + 1];
+			pc += 2;
+			switch (op)
+			{
+				case ParserProgram.HALT:
+				{
+					return cur;
+				}
+
+				case ParserProgram.MATCH:
+				{
+					cur = ((Parser) constants[operand]).match(cur);
+					cur.setContext(context);
+					break;
+				}
+
+				case ParserProgram.INVOKE:
+				{
+					cur.setContext(context);
+					cur = ((Parser) constants[operand]).matchAndAssemble(cur);
+					break;
+				}
+
+				case ParserProgram.ASSEMBLE:
+				case ParserProgram.PRE_ASSEMBLE:
+				{
+					Assembler assembler = (Assembler) constants[operand];
+					for (Assembly a : cur.getAssemblies())
+					{
+						if ((context != null) && context.poll())
+						{
+							break;
+						}
+						assembler.workOn(a);
+					}
+					if ((profile != null) && (op == ParserProgram.ASSEMBLE))
+					{
+						profile.assembled(cur.numAssemblies());
+					}
+					break;
+				}
+
+				case ParserProgram.CALL:
+				{
+					// A parser of an unknown type counts its own step and profile
+					// record in matchAndAssemble()
+					boolean invoke = (code[operand] == ParserProgram.INVOKE);
+					if ((context != null) && !invoke && context.step(cur))
+					{
+						// The parse was cancelled or ran out of budget; the callee
+						// matches nothing
+						cur = new Matches();
+						cur.setContext(context);
+						break;
+					}
+					if (rsp == returnStack.length)
+					{
+						returnStack = Arrays.copyOf(returnStack, 2 * rsp);
+					}
+					if (profile != null)
+					{
+						if (2 * rsp + 2 > calleeStack.length)
+						{
+							calleeStack = Arrays.copyOf(calleeStack, 2 * calleeStack.length);
+						}
+						calleeStack[2 * rsp] = invoke ? -1 : operand;
+						calleeStack[2 * rsp + 1] = cur.numAssemblies();
+						if (!invoke)
+						{
+							profile.enter();
+						}
+					}
+					returnStack[rsp++] = pc;
+					pc = operand;
+					break;
+				}
+
+				case ParserProgram.RETURN:
+				{
+					if (context != null)
+					{
+						if (pruning)
+						{
+							context.prune(cur);
+						}
+						context.recordProgress(cur);
+					}
+					pc = returnStack[--rsp];
+					if ((profile != null) && (calleeStack[2 * rsp] >= 0))
+					{
+						profile.exit(program.parserAt(calleeStack[2 * rsp]),
+								calleeStack[2 * rsp + 1], cur.numAssemblies());
+					}
+					break;
+				}
+
+				case ParserProgram.JUMP:
+				{
+					pc = operand;
+					break;
+				}
+
+				case ParserProgram.JUMP_IF_EMPTY:
+				{
+					if (cur.isEmpty())
+					{
+						pc = operand;
+					}
+					break;
+				}
+
+				case ParserProgram.FORK:
+				{
+					ensureFrameCapacity(fsp);
+					frameIn[fsp] = cur;
+					Matches out = new Matches();
+					out.setContext(context);
+					frameOut[fsp] = out;
+					fsp++;
+					break;
+				}
+
+				case ParserProgram.BRANCH:
+				{
+					cur = frameIn[fsp - 1];
+					break;
+				}
+
+				case ParserProgram.FORK_REPEAT:
+				{
+					ensureFrameCapacity(fsp);
+					frameIn[fsp] = null;
+					frameOut[fsp] = cur.clone();
+					fsp++;
+					break;
+				}
+
+				case ParserProgram.MERGE:
+				{
+					frameOut[fsp - 1].addAll(cur);
+					break;
+				}
+
+				case ParserProgram.JOIN:
+				{
+					fsp--;
+					cur = frameOut[fsp];
+					frameIn[fsp] = null;
+					frameOut[fsp] = null;
+					break;
+				}
+
+				default:
+				{
+					throw new SystemException("Unknown parser program op-code " + op
+							+ " at " + (pc - 2));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns an assembly with the greatest possible number of elements consumed by
+	 * matches of the program's root parser. Equivalent to
+	 * <code>Parser.bestMatch(Assembly, ParseContext)</code>.
+	 *
+	 * @param a
+	 *            an assembly to match against
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 * @return best match
+	 */
+	public Match bestMatch(Assembly a, ParseContext context)
+	{
+		Matches in = new Matches();
+		in.addAssembly(a);
+		if (context == null)
+		{
+			return program.getRoot().best(this.run(in));
+		}
+
+		in.setContext(context);
+		context.beginParse();
+		a.setProfile(context.getActiveProfile());
+		try
+		{
+			Matches out = this.run(in);
+			context.addPartialMatch(out);
+			context.addFailure(out);
+			return program.getRoot().best(out);
+		}
+		finally
+		{
+			context.endParse();
+		}
+	}
+
+	/**
+	 * Returns either null, or a completely matched version of the supplied assembly.
+	 * Equivalent to <code>Parser.completeMatch(Assembly, ParseContext)</code>.
+	 *
+	 * @param a
+	 *            an assembly to match against
+	 * @param context
+	 *            per-parse context; may be <code>null</code>
+	 * @return either null, or a completely matched version of the supplied assembly
+	 */
+	public Match completeMatch(Assembly a, ParseContext context)
+	{
+		Match best = this.bestMatch(a, context);
+		if ((context != null) && context.isStopped())
+		{
+			// A partial match is never complete
+			return null;
+		}
+		if (best != null && best.getAssembly() != null && !best.hasMoreElements())
+		{
+			// Clear all syntax errors because we completely matched
+			best.clearSyntaxErrors();
+			return best;
+		}
+		return null;
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Make sure the frame stack can hold a frame at index <code>fsp</code>.
+	 *
+	 * @param fsp
+	 *            frame stack pointer
+	 */
+	private void ensureFrameCapacity(int fsp)
+	{
+		if (fsp == frameIn.length)
+		{
+			frameIn = Arrays.copyOf(frameIn, 2 * fsp);
+			frameOut = Arrays.copyOf(frameOut, 2 * fsp);
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the program this machine runs
+	 */
+	public ParserProgram getProgram()
+	{
+		return program;
+	}
+}
@@ -0,0 +1,246 @@
+/*****************************************************************************************
+ * Source File: ParserProgram.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import net.ruready.common.misc.Immutable;
+import net.ruready.common.text.TextUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A parser graph lowered into a flat instruction array, executed by a
+ * {@link ParserMachine}. Produced by {@link ParserProgramCompiler}.
+ * <p>
+ * Each instruction occupies two consecutive slots of the code array: an op-code and an
+ * operand (an index into the constant pool or a code address; unused operands are 0).
+ * The machine has a current-matches register, a return address stack for
+ * <code>CALL</code>/<code>RETURN</code>, and a frame stack that holds the input and
+ * accumulated output of each alternation/repetition in progress.
+ * <p>
+ * Every parser node is compiled once, into a subroutine that transforms the current
+ * matches exactly as the node's <code>matchAndAssemble()</code> does.
+ *
+ * @immutable
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public final class ParserProgram implements Immutable
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParserProgram.class);
+
+	/**
+	 * Stop; the current matches are the result.
+	 */
+	static final int HALT = 0;
+
+	/**
+	 * cur = parser[operand].match(cur). Used for terminals and empty parsers.
+	 */
+	static final int MATCH = 1;
+
+	/**
+	 * cur = parser[operand].matchAndAssemble(cur). Used for parsers of unknown types.
+	 */
+	static final int INVOKE = 2;
+
+	/**
+	 * Run assembler[operand] on every assembly in cur.
+	 */
+	static final int ASSEMBLE = 3;
+
+	/**
+	 * Run assembler[operand] on every assembly in cur (a repetition's pre-assembler).
+	 */
+	static final int PRE_ASSEMBLE = 4;
+
+	/**
+	 * Push the return address and jump to operand.
+	 */
+	static final int CALL = 5;
+
+	/**
+	 * Pop a return address and jump to it.
+	 */
+	static final int RETURN = 6;
+
+	/**
+	 * Jump to operand.
+	 */
+	static final int JUMP = 7;
+
+	/**
+	 * Jump to operand if cur is empty.
+	 */
+	static final int JUMP_IF_EMPTY = 8;
+
+	/**
+	 * Push an alternation frame (in = cur, out = new matches).
+	 */
+	static final int FORK = 9;
+
+	/**
+	 * cur = the top frame's input (start the next alternative).
+	 */
+	static final int BRANCH = 10;
+
+	/**
+	 * Push a repetition frame (out = a clone of cur).
+	 */
+	static final int FORK_REPEAT = 11;
+
+	/**
+	 * Add cur to the top frame's output.
+	 */
+	static final int MERGE = 12;
+
+	/**
+	 * cur = the top frame's output; pop the frame.
+	 */
+	static final int JOIN = 13;
+
+	/**
+	 * Op-code names, for printouts.
+	 */
+	private static final String[] NAMES =
+	{ "HALT", "MATCH", "INVOKE", "ASSEMBLE", "PRE_ASSEMBLE", "CALL", "RETURN", "JUMP",
+			"JUMP_IF_EMPTY", "FORK", "BRANCH", "FORK_REPEAT", "MERGE", "JOIN" };
+
+	// ========================= FIELDS ====================================
+
+	// The parser this program was compiled from
+	private final Parser root;
+
+	// Instructions: op-code/operand pairs
+	private final int[] code;
+
+	// Constant pool: parsers and assemblers referenced by instructions
+	private final Object[] constants;
+
+	// The parser whose subroutine starts at each instruction; null elsewhere
+	private final Parser[] entries;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * @param root
+	 *            the parser this program was compiled from
+	 * @param code
+	 *            instructions
+	 * @param constants
+	 *            constant pool
+	 * @param entries
+	 *            the parser whose subroutine starts at each instruction
+	 */
+	ParserProgram(Parser root, int[] code, Object[] constants, Parser[] entries)
+	{
+		super();
+		this.root = root;
+		this.code = code;
+		this.constants = constants;
+		this.entries = entries;
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * Return a disassembly of this program.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuffer s = TextUtil.emptyStringBuffer();
+		for (int pc = 0; pc < code.length; pc += 2)
+		{
+			int op = code[pc];
+			int operand = code[pc + 1];
+			s.append(pc);
+			s.append("\t");
+			s.append(NAMES[op]);
+			switch (op)
+			{
+				case MATCH:
+				case INVOKE:
+				case ASSEMBLE:
+				case PRE_ASSEMBLE:
+				{
+					s.append("\t");
+					s.append(constants[operand]);
+					break;
+				}
+				case CALL:
+				case JUMP:
+				case JUMP_IF_EMPTY:
+				{
+					s.append("\t");
+					s.append(operand);
+					break;
+				}
+				default:
+				{
+					break;
+				}
+			}
+			s.append("\n");
+		}
+		return s.toString();
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the parser this program was compiled from
+	 */
+	public Parser getRoot()
+	{
+		return root;
+	}
+
+	/**
+	 * @return the number of instructions in this program
+	 */
+	public int size()
+	{
+		return code.length / 2;
+	}
+
+	/**
+	 * Return the parser whose subroutine starts at a code address.
+	 * 
+	 * @param address
+	 *            code address of a subroutine
+	 * @return the parser compiled into the subroutine
+	 */
+	public Parser parserAt(int address)
+	{
+		return entries[address / 2];
+	}
+
+	/**
+	 * @return the instruction array. Must not be modified
+	 */
+	int[] getCode()
+	{
+		return code;
+	}
+
+	/**
+	 * @return the constant pool. Must not be modified
+	 */
+	Object[] getConstants()
+	{
+		return constants;
+	}
+}
@@ -0,0 +1,364 @@
+/*****************************************************************************************
+ * Source File: ParserProgramCompiler.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.ruready.common.parser.core.assembler.Assembler;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Lowers a parser graph into a {@link ParserProgram}. Each reachable parser is compiled
+ * once into a subroutine; recursive references become <code>CALL</code> instructions,
+ * so recursive grammars compile to finite programs.
+ * <p>
+ * Only the exact classes <code>Sequence</code>, <code>Alternation</code>,
+ * <code>Repetition</code>, <code>Terminal</code> (and its subclasses) and
+ * <code>Empty</code> are lowered. A parser of any other class, including subclasses of
+ * the composite parsers that may override <code>match()</code>, and a repetition that is
+ * bounded or not in <code>ALL</code> mode, is compiled into a single
+ * <code>INVOKE</code> instruction that delegates to its own
+ * <code>matchAndAssemble()</code>. Alternations are always compiled to try every branch;
+ * predictive dispatch does not change their results.
+ * <p>
+ * The grammar must not be changed after it has been compiled.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class ParserProgramCompiler implements ParserVisitor
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParserProgramCompiler.class);
+
+	// ========================= FIELDS ====================================
+
+	// Instructions emitted so far
+	private int[] code = new int[64];
+
+	// Number of code slots used
+	private int size = 0;
+
+	// Constant pool
+	private final List<Object> constants = new ArrayList<Object>();
+
+	// Constant -> pool index
+	private final Map<Object, Integer> constantIndices = new IdentityHashMap<Object, Integer>();
+
+	// Parser -> address of its subroutine
+	private final Map<Parser, Integer> labels = new IdentityHashMap<Parser, Integer>();
+
+	// CALL operand slots to patch once the callee's address is known
+	private final List<Integer> fixupSlots = new ArrayList<Integer>();
+
+	// The callee of each fixup slot
+	private final List<Parser> fixupTargets = new ArrayList<Parser>();
+
+	// Parsers waiting to be compiled
+	private final LinkedList<Parser> pending = new LinkedList<Parser>();
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Compile a parser graph.
+	 *
+	 * @param origin
+	 *            root parser
+	 */
+	private ParserProgramCompiler(Parser origin)
+	{
+		super();
+		// Entry point: call the root and halt
+		emitCall(origin);
+		emit(ParserProgram.HALT, 0);
+
+		while (!pending.isEmpty())
+		{
+			Parser p = pending.removeFirst();
+			if (!labels.containsKey(p))
+			{
+				labels.put(p, size);
+				p.accept(this);
+			}
+		}
+
+		for (int i = 0; i < fixupSlots.size(); i++)
+		{
+			code[fixupSlots.get(i)] = labels.get(fixupTargets.get(i));
+		}
+	}
+
+	/**
+	 * Compile a parser graph into a program.
+	 *
+	 * @param origin
+	 *            root parser
+	 * @return compiled program
+	 */
+	public static ParserProgram compile(Parser origin)
+	{
+		ParserProgramCompiler compiler = new ParserProgramCompiler(origin);
+		Parser[] entries = new Parser[compiler.size / 2];
+		for (Map.Entry<Parser, Integer> label : compiler.labels.entrySet())
+		{
+			entries[label.getValue() / 2] = label.getKey();
+		}
+		return new ParserProgram(origin, Arrays.copyOf(compiler.code, compiler.size),
+				compiler.constants.toArray(), entries);
+	}
+
+	// ========================= IMPLEMENTATION: ParserVisitor ================
+
+	/**
+	 * Parsers are compiled from a work list, so there is no need to keep track of
+	 * visited parsers.
+	 *
+	 * @param visited
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#setVisited(java.util.List)
+	 */
+	public void setVisited(List<Parser> visited)
+	{
+
+	}
+
+	/**
+	 * A parser of an unknown type: delegate to its own <code>matchAndAssemble()</code>.
+	 *
+	 * @param visitable
+	 * @see net.ruready.common.visitor.Visitor#visit(net.ruready.common.visitor.Visitable)
+	 */
+	public void visit(Parser visitable)
+	{
+		emit(ParserProgram.INVOKE, constant(visitable));
+		emit(ParserProgram.RETURN, 0);
+	}
+
+	/**
+	 * <pre>
+	 *     FORK
+	 *     BRANCH; CALL branch1; MERGE
+	 *     ...
+	 *     BRANCH; CALL branchN; MERGE
+	 *     JOIN
+	 *     ASSEMBLE
+	 *     RETURN
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Alternation)
+	 */
+	public void visit(Alternation a)
+	{
+		if (a.getClass() != Alternation.class)
+		{
+			this.visit((Parser) a);
+			return;
+		}
+		emit(ParserProgram.FORK, 0);
+		for (Parser child : a.getSubparsers())
+		{
+			emit(ParserProgram.BRANCH, 0);
+			emitCall(child);
+			emit(ParserProgram.MERGE, 0);
+		}
+		emit(ParserProgram.JOIN, 0);
+		emitReturn(a);
+	}
+
+	/**
+	 * <pre>
+	 *     MATCH empty
+	 *     ASSEMBLE
+	 *     RETURN
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Empty)
+	 */
+	public void visit(Empty e)
+	{
+		if (e.getClass() != Empty.class)
+		{
+			this.visit((Parser) e);
+			return;
+		}
+		emit(ParserProgram.MATCH, constant(e));
+		emitReturn(e);
+	}
+
+	/**
+	 * <pre>
+	 *     PRE_ASSEMBLE
+	 *     FORK_REPEAT
+	 * L:  JUMP_IF_EMPTY E
+	 *     CALL subparser
+	 *     MERGE
+	 *     JUMP L
+	 * E:  JOIN
+	 *     ASSEMBLE
+	 *     RETURN
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Repetition)
+	 */
+	public void visit(Repetition r)
+	{
+		if ((r.getClass() != Repetition.class) || (r.getMode() != RepetitionMode.ALL)
+				|| (r.getMin() != 0) || (r.getMax() != Repetition.UNBOUNDED))
+		{
+			this.visit((Parser) r);
+			return;
+		}
+		if (r.preAssembler != null)
+		{
+			emit(ParserProgram.PRE_ASSEMBLE, constant(r.preAssembler));
+		}
+		emit(ParserProgram.FORK_REPEAT, 0);
+		int loop = size;
+		emit(ParserProgram.JUMP_IF_EMPTY, 0);
+		int exitSlot = size - 1;
+		emitCall(r.getSubparser());
+		emit(ParserProgram.MERGE, 0);
+		emit(ParserProgram.JUMP, loop);
+		code[exitSlot] = size;
+		emit(ParserProgram.JOIN, 0);
+		emitReturn(r);
+	}
+
+	/**
+	 * <pre>
+	 *     CALL child1; JUMP_IF_EMPTY E
+	 *     ...
+	 *     CALL childN; JUMP_IF_EMPTY E
+	 *     ASSEMBLE
+	 * E:  RETURN
+	 * </pre>
+	 *
+	 * An empty result skips the assembler, which has nothing to work on anyway.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Sequence)
+	 */
+	public void visit(Sequence s)
+	{
+		if (s.getClass() != Sequence.class)
+		{
+			this.visit((Parser) s);
+			return;
+		}
+		List<Integer> exitSlots = new ArrayList<Integer>();
+		for (Parser child : s.getSubparsers())
+		{
+			emitCall(child);
+			emit(ParserProgram.JUMP_IF_EMPTY, 0);
+			exitSlots.add(size - 1);
+		}
+		Assembler assembler = s.getAssembler();
+		if (assembler != null)
+		{
+			emit(ParserProgram.ASSEMBLE, constant(assembler));
+		}
+		for (int slot : exitSlots)
+		{
+			code[slot] = size;
+		}
+		emit(ParserProgram.RETURN, 0);
+	}
+
+	/**
+	 * <pre>
+	 *     MATCH terminal
+	 *     ASSEMBLE
+	 *     RETURN
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	public void visit(Terminal t)
+	{
+		emit(ParserProgram.MATCH, constant(t));
+		emitReturn(t);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Append an instruction.
+	 *
+	 * @param op
+	 *            op-code
+	 * @param operand
+	 *            operand
+	 */
+	private void emit(int op, int operand)
+	{
+		if (size + 2 > code.length)
+		{
+			code = Arrays.copyOf(code, 2 * code.length);
+		}
+		code[size++] = op;
+		code[size++] = operand;
+	}
+
+	/**
+	 * Append a call to a parser's subroutine, and schedule the parser for compilation.
+	 *
+	 * @param p
+	 *            callee
+	 */
+	private void emitCall(Parser p)
+	{
+		emit(ParserProgram.CALL, 0);
+		fixupSlots.add(size - 1);
+		fixupTargets.add(p);
+		pending.add(p);
+	}
+
+	/**
+	 * Append a parser's assembler (if it has one) and a return instruction.
+	 *
+	 * @param p
+	 *            parser
+	 */
+	private void emitReturn(Parser p)
+	{
+		Assembler assembler = p.getAssembler();
+		if (assembler != null)
+		{
+			emit(ParserProgram.ASSEMBLE, constant(assembler));
+		}
+		emit(ParserProgram.RETURN, 0);
+	}
+
+	/**
+	 * Return the constant pool index of an object, adding it if necessary.
+	 *
+	 * @param o
+	 *            constant
+	 * @return pool index
+	 */
+	private int constant(Object o)
+	{
+		Integer index = constantIndices.get(o);
+		if (index == null)
+		{
+			index = constants.size();
+			constants.add(o);
+			constantIndices.put(o, index);
+		}
+		return index;
+	}
+}
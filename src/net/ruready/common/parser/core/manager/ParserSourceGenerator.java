@@ -0,0 +1,868 @@
+/*****************************************************************************************
+ * Source File: ParserSourceGenerator.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import net.ruready.common.exception.SystemException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Generates the Java source of a recursive-descent parser from a parser graph. The
+ * generated class extends {@link GeneratedParser} and has one method per named parser,
+ * per parser that is referenced more than once, and for the root; all other parsers are
+ * inlined into the method of the parser that uses them. Sequences, alternations,
+ * repetitions and empty parsers become straight-line code over sets of assemblies, the
+ * same all-paths backtracking the interpreter does. Terminal checks are inlined where
+ * {@link #qualifies(Terminal, String, String)} knows how to write them; other terminals,
+ * and parsers of any other class (including subclasses of the composite parsers), are
+ * matched by calling their own <code>match()</code>.
+ * <p>
+ * The generated parser is constructed from the same grammar (typically from the same
+ * compiler) and uses its assembler instances, so the grammar's assemblers need not be
+ * reproducible as source.
+ *
+ * <pre>
+ * new TokenParserSourceGenerator(&quot;com.acme.ExpressionParser&quot;).write(grammar,
+ * 		new File(&quot;src&quot;));
+ * ...
+ * Parser parser = new ExpressionParser(grammar);
+ * </pre>
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class ParserSourceGenerator implements ParserVisitor
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ParserSourceGenerator.class);
+
+	// ========================= FIELDS ====================================
+
+	// Package of the generated class
+	private final String packageName;
+
+	// Simple name of the generated class
+	private final String className;
+
+	// Imports of the generated class
+	private final Set<String> imports = new TreeSet<String>();
+
+	// Field declarations of the generated class, by parser index
+	private final Map<Integer, StringBuffer> fields = new TreeMap<Integer, StringBuffer>();
+
+	// Fields declared so far
+	private final Set<String> declared = new HashSet<String>();
+
+	// Method declarations of the generated class
+	private final StringBuffer methods = new StringBuffer();
+
+	// Parsers of the grammar, in generation order
+	private List<Parser> nodes;
+
+	// Parser -> generation-order index
+	private final Map<Parser, Integer> index = new IdentityHashMap<Parser, Integer>();
+
+	// Parser -> name of its method, for parsers that have one
+	private final Map<Parser, String> methodNames = new IdentityHashMap<Parser, String>();
+
+	// Indentation of the current line
+	private int indent;
+
+	// Number of local variables of the current method
+	private int variables;
+
+	// Input variable of the parser being visited
+	private String in;
+
+	// Result variable set by the visit of a parser
+	private String result;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a generator.
+	 *
+	 * @param qualifiedClassName
+	 *            fully qualified name of the class to generate
+	 */
+	public ParserSourceGenerator(String qualifiedClassName)
+	{
+		super();
+		int dot = qualifiedClassName.lastIndexOf('.');
+		this.packageName = (dot < 0) ? null : qualifiedClassName.substring(0, dot);
+		this.className = qualifiedClassName.substring(dot + 1);
+	}
+
+	// ========================= IMPLEMENTATION: ParserVisitor ================
+
+	/**
+	 * Methods and inlined code are generated from the node list, so there is no need to
+	 * keep track of visited parsers.
+	 *
+	 * @param visited
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#setVisited(java.util.List)
+	 */
+	public void setVisited(List<Parser> visited)
+	{
+
+	}
+
+	/**
+	 * A parser of an unknown type: call its own <code>match()</code>.
+	 *
+	 * @param visitable
+	 * @see net.ruready.common.visitor.Visitor#visit(net.ruready.common.visitor.Visitable)
+	 */
+	public void visit(Parser visitable)
+	{
+		String node = field(visitable, "Parser", "node", "node");
+		result = newVariable("m");
+		line("Matches " + result + " = " + node + ".match(" + in + ");");
+	}
+
+	/**
+	 * <pre>
+	 * Matches r = new Matches();
+	 * &lt;branch1&gt; r.addAll(b1);
+	 * ...
+	 * &lt;branchN&gt; r.addAll(bN);
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Alternation)
+	 */
+	public void visit(Alternation a)
+	{
+		if (a.getClass() != Alternation.class)
+		{
+			this.visit((Parser) a);
+			return;
+		}
+		String input = in;
+		String r = newVariable("m");
+		line("Matches " + r + " = new Matches();");
+		for (Parser child : a.getSubparsers())
+		{
+			String branch = newVariable("m");
+			emitNode(child, input, branch, false);
+			line(r + ".addAll(" + branch + ");");
+		}
+		result = r;
+	}
+
+	/**
+	 * <pre>
+	 * Matches r = in.clone();
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Empty)
+	 */
+	public void visit(Empty e)
+	{
+		if (e.getClass() != Empty.class)
+		{
+			this.visit((Parser) e);
+			return;
+		}
+		result = newVariable("m");
+		line("Matches " + result + " = " + in + ".clone();");
+	}
+
+	/**
+	 * <pre>
+	 * preAssemble(pre, in);
+	 * Matches r = in.clone();
+	 * Matches w = in;
+	 * while (!w.isEmpty())
+	 * {
+	 * 	&lt;subparser&gt; w = s;
+	 * 	r.addAll(w);
+	 * }
+	 * </pre>
+	 *
+	 * Bounded, possessive and lazy repetitions count their iterations; possessive ones
+	 * iterate each input assembly separately and keep only its last non-empty result.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Repetition)
+	 */
+	public void visit(Repetition r)
+	{
+		if (r.getClass() != Repetition.class)
+		{
+			this.visit((Parser) r);
+			return;
+		}
+		String input = in;
+		if (r.preAssembler != null)
+		{
+			line("preAssemble(" + field(r, "Assembler", "pre", "preAssembler") + ", "
+					+ input + ");");
+		}
+		int min = r.getMin();
+		String out = newVariable("m");
+		switch (r.getMode())
+		{
+			case POSSESSIVE:
+			{
+				String a = newVariable("x");
+				String longest = newVariable("m");
+				line("Matches " + out + " = emptyResult(" + input + ");");
+				line("for (Assembly " + a + " : " + input + ".getAssemblies())");
+				open();
+				String work = newVariable("w");
+				line("Matches " + work + " = single(" + input + ", " + a + ");");
+				line("Matches " + longest + " = "
+						+ ((min == 0) ? (work + ".clone()") : "null") + ";");
+				String count = openLoop(work, min, r.getMax());
+				String next = newVariable("m");
+				emitNode(r.getSubparser(), work, next, false);
+				line(work + " = " + next + ";");
+				line("if (" + ((min > 1) ? "(" + count + " >= " + min + ") && " : "")
+						+ "!" + work + ".isEmpty())");
+				open();
+				line(longest + " = " + work + ";");
+				close();
+				close();
+				line("if (" + longest + " != null)");
+				open();
+				line(out + ".addAll(" + longest + ");");
+				close();
+				close();
+				imports.add(net.ruready.common.parser.core.entity.Assembly.class.getName());
+				break;
+			}
+
+			case LAZY:
+			{
+				String work = newVariable("w");
+				line("Matches " + work + " = " + input + ";");
+				if (min > 0)
+				{
+					openLoop(work, min, min);
+					String next = newVariable("m");
+					emitNode(r.getSubparser(), work, next, false);
+					line(work + " = " + next + ";");
+					close();
+				}
+				line("Matches " + out + " = " + ((min == 0) ? (input + ".clone()") : work)
+						+ ";");
+				break;
+			}
+
+			default:
+			{
+				String work = newVariable("w");
+				line("Matches " + out + " = "
+						+ ((min == 0) ? (input + ".clone()") : ("emptyResult(" + input + ")"))
+						+ ";");
+				line("Matches " + work + " = " + input + ";");
+				String count = openLoop(work, min, r.getMax());
+				String next = newVariable("m");
+				emitNode(r.getSubparser(), work, next, false);
+				line(work + " = " + next + ";");
+				if (min > 1)
+				{
+					line("if (" + count + " >= " + min + ")");
+					open();
+					line(out + ".addAll(" + work + ");");
+					close();
+				}
+				else
+				{
+					line(out + ".addAll(" + work + ");");
+				}
+				close();
+				break;
+			}
+		}
+		result = out;
+	}
+
+	/**
+	 * <pre>
+	 * Matches r = in;
+	 * seq:
+	 * {
+	 * 	&lt;child1&gt; r = c1;
+	 * 	if (r.isEmpty()) break seq;
+	 * 	...
+	 * 	&lt;childN&gt; r = cN;
+	 * }
+	 * </pre>
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Sequence)
+	 */
+	public void visit(Sequence s)
+	{
+		if (s.getClass() != Sequence.class)
+		{
+			this.visit((Parser) s);
+			return;
+		}
+		String input = in;
+		String r = newVariable("m");
+		line("Matches " + r + " = " + input + ";");
+		List<Parser> children = s.getSubparsers();
+		String label = null;
+		if (children.size() > 1)
+		{
+			label = newVariable("seq");
+			line(label + ":");
+			open();
+		}
+		for (int i = 0; i < children.size(); i++)
+		{
+			String child = newVariable("m");
+			emitNode(children.get(i), r, child, false);
+			line(r + " = " + child + ";");
+			if (i < children.size() - 1)
+			{
+				line("if (" + r + ".isEmpty())");
+				open();
+				line("break " + label + ";");
+				close();
+			}
+		}
+		if (label != null)
+		{
+			close();
+		}
+		result = r;
+	}
+
+	/**
+	 * <pre>
+	 * Matches r = new Matches();
+	 * for (Assembly a : in.getAssemblies())
+	 * {
+	 * 	if (a.hasMoreElements() &amp;&amp; &lt;qualifies(a.peek())&gt;)
+	 * 	{
+	 * 		Assembly b = a.clone();
+	 * 		b.push(b.nextElement());
+	 * 		r.addAssembly(b);
+	 * 	}
+	 * 	else
+	 * 	{
+	 * 		fail(in, terminal, a);
+	 * 	}
+	 * }
+	 * </pre>
+	 *
+	 * If the terminal's check cannot be inlined, calls the terminal's
+	 * <code>match()</code> instead.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	public void visit(Terminal t)
+	{
+		String input = in;
+		int i = index.get(t);
+		String element = "o" + i;
+		String constant = "elem" + i;
+		String check = qualifies(t, element, (t.getSingleElement() == null) ? null
+				: constant);
+		if (check == null)
+		{
+			this.visit((Parser) t);
+			return;
+		}
+		if (check.contains(constant))
+		{
+			field(t, "Object", "elem", "element");
+		}
+		imports.add(net.ruready.common.parser.core.entity.Assembly.class.getName());
+		String r = newVariable("m");
+		String a = "a" + i;
+		String b = "b" + i;
+		String fail = "fail(" + input + ", " + field(t, "Parser", "node", "node") + ", "
+				+ a + ");";
+		line("Matches " + r + " = new Matches();");
+		line("for (Assembly " + a + " : " + input + ".getAssemblies())");
+		open();
+		line("if (!" + a + ".hasMoreElements())");
+		open();
+		line(fail);
+		line("continue;");
+		close();
+		line("Object " + element + " = " + a + ".peek();");
+		line("if (" + check + ")");
+		open();
+		line("Assembly " + b + " = " + a + ".clone();");
+		line(t.discard ? (b + ".nextElement();") : (b + ".push(" + b + ".nextElement());"));
+		line(r + ".addAssembly(" + b + ");");
+		close();
+		line("else");
+		open();
+		line(fail);
+		close();
+		close();
+		result = r;
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Generate the source of a parser class for a grammar.
+	 *
+	 * @param grammar
+	 *            root parser of the grammar
+	 * @return Java source of the generated class
+	 */
+	public String generate(Parser grammar)
+	{
+		nodes = GeneratedParser.nodes(grammar);
+		for (Parser p : nodes)
+		{
+			index.put(p, index.size());
+		}
+		assignMethodNames(grammar);
+		imports.add(net.ruready.common.parser.core.entity.Matches.class.getName());
+		imports.add(GeneratedParser.class.getName());
+		imports.add(Parser.class.getName());
+
+		for (Parser p : nodes)
+		{
+			String method = methodNames.get(p);
+			if (method == null)
+			{
+				continue;
+			}
+			indent = 1;
+			variables = 0;
+			line("/**");
+			line(" * Match " + comment(p) + ".");
+			line(" *");
+			line(" * @param in");
+			line(" *            a vector of assemblies to match against");
+			line(" * @return a List of assemblies that result from the match");
+			line(" */");
+			line("private Matches " + method + "(Matches in)");
+			open();
+			emitNode(p, "in", "out", true);
+			line("return out;");
+			close();
+			methods.append("\n");
+		}
+		return source(GeneratedParser.signature(nodes), methodNames.get(grammar));
+	}
+
+	/**
+	 * Generate the source of a parser class for a grammar and write it under a source
+	 * directory, in the directory of its package.
+	 *
+	 * @param grammar
+	 *            root parser of the grammar
+	 * @param sourceDirectory
+	 *            root source directory
+	 * @return the file written
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	public File write(Parser grammar, File sourceDirectory) throws IOException
+	{
+		File directory = (packageName == null) ? sourceDirectory : new File(
+				sourceDirectory, packageName.replace('.', File.separatorChar));
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Could not create directory " + directory);
+		}
+		File file = new File(directory, className + ".java");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try
+		{
+			writer.write(generate(grammar));
+		}
+		finally
+		{
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Return the grammar of a compiler class. The class must implement
+	 * {@link AbstractCompiler} and have a no-argument constructor, which need not be
+	 * public.
+	 *
+	 * @param compilerClassName
+	 *            fully qualified name of the compiler class
+	 * @return root parser of the compiler's grammar
+	 */
+	public static Parser compile(String compilerClassName)
+	{
+		try
+		{
+			java.lang.reflect.Constructor<?> constructor = Class.forName(compilerClassName)
+					.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return ((AbstractCompiler) constructor.newInstance()).parser();
+		}
+		catch (Exception e)
+		{
+			throw new SystemException("Could not create grammar compiler "
+					+ compilerClassName + ": " + e);
+		}
+	}
+
+	/**
+	 * Return a Java expression that is true if an element qualifies for a terminal, or
+	 * <code>null</code> to match the terminal by calling its <code>match()</code>. The
+	 * default implementation returns <code>null</code>; generators of specific kinds of
+	 * grammars override it for the terminals they know, and may add imports with
+	 * {@link #addImport(String)}.
+	 *
+	 * @param t
+	 *            terminal
+	 * @param element
+	 *            name of a local variable holding the element
+	 * @param constant
+	 *            name of a field holding the terminal's single element (see
+	 *            <code>Terminal.getSingleElement()</code>), or <code>null</code> if it
+	 *            has none
+	 * @return Java expression, or <code>null</code>
+	 */
+	protected String qualifies(Terminal t, String element, String constant)
+	{
+		return null;
+	}
+
+	/**
+	 * Add an import to the generated class.
+	 *
+	 * @param qualifiedName
+	 *            fully qualified name of the imported class
+	 */
+	protected void addImport(String qualifiedName)
+	{
+		imports.add(qualifiedName);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Give a method to the root, to every named parser and to every parser that is
+	 * referenced more than once.
+	 *
+	 * @param grammar
+	 *            root parser
+	 */
+	private void assignMethodNames(Parser grammar)
+	{
+		Map<Parser, Integer> references = new IdentityHashMap<Parser, Integer>();
+		for (Parser p : nodes)
+		{
+			for (Parser child : GeneratedParser.children(p))
+			{
+				Integer count = references.get(child);
+				references.put(child, (count == null) ? 1 : count + 1);
+			}
+		}
+		Set<String> used = new HashSet<String>();
+		for (Parser p : nodes)
+		{
+			Integer count = references.get(p);
+			boolean named = (p.getName() != null) && (p.getName().length() > 0);
+			if ((p != grammar) && !named && ((count == null) || (count < 2)))
+			{
+				continue;
+			}
+			String method = named ? "parse" + identifier(p.getName()) : "parseNode"
+					+ index.get(p);
+			if (!used.add(method))
+			{
+				method = method + "_" + index.get(p);
+				used.add(method);
+			}
+			methodNames.put(p, method);
+		}
+	}
+
+	/**
+	 * Append the code that matches a parser against an input variable and stores the
+	 * result in a new output variable. Calls the parser's method if it has one.
+	 *
+	 * <pre>
+	 * Matches out;
+	 * if (stop(in))
+	 * {
+	 * 	out = none(in);
+	 * }
+	 * else
+	 * {
+	 * 	&lt;match&gt;
+	 * 	assemble(asm, r);
+	 * 	out = done(in, r);
+	 * }
+	 * </pre>
+	 *
+	 * @param p
+	 *            parser
+	 * @param input
+	 *            input variable
+	 * @param output
+	 *            output variable to declare
+	 * @param body
+	 *            if true, inline the parser even if it has a method
+	 */
+	private void emitNode(Parser p, String input, String output, boolean body)
+	{
+		String method = methodNames.get(p);
+		if (!body && (method != null))
+		{
+			line("Matches " + output + " = " + method + "(" + input + ");");
+			return;
+		}
+		line("// " + comment(p));
+		line("Matches " + output + ";");
+		line("if (stop(" + input + "))");
+		open();
+		line(output + " = none(" + input + ");");
+		close();
+		line("else");
+		open();
+		in = input;
+		p.accept(this);
+		String r = result;
+		if (p.getAssembler() != null)
+		{
+			line("assemble(" + field(p, "Assembler", "asm", "assembler") + ", " + r + ");");
+		}
+		line(output + " = done(" + input + ", " + r + ");");
+		close();
+	}
+
+	/**
+	 * Declare a final field of the generated class that holds an object of a parser of
+	 * the grammar, unless it has already been declared.
+	 *
+	 * @param p
+	 *            parser
+	 * @param type
+	 *            simple name of the field's type
+	 * @param prefix
+	 *            field name prefix
+	 * @param initializer
+	 *            name of the <code>GeneratedParser</code> method that returns the object
+	 * @return field name
+	 */
+	private String field(Parser p, String type, String prefix, String initializer)
+	{
+		int i = index.get(p);
+		String name = prefix + i;
+		if (declared.add(name))
+		{
+			if ("Assembler".equals(type))
+			{
+				imports.add(net.ruready.common.parser.core.assembler.Assembler.class
+						.getName());
+			}
+			StringBuffer declarations = fields.get(i);
+			if (declarations == null)
+			{
+				declarations = new StringBuffer();
+				declarations.append("\t// ").append(comment(p)).append("\n");
+				fields.put(i, declarations);
+			}
+			declarations.append("\tprivate final ").append(type).append(" ").append(name)
+					.append(" = ").append(initializer).append("(").append(i).append(");\n");
+		}
+		return name;
+	}
+
+	/**
+	 * Return the complete source of the generated class.
+	 *
+	 * @param signature
+	 *            grammar signature
+	 * @param rootMethod
+	 *            name of the root parser's method
+	 * @return Java source
+	 */
+	private String source(long signature, String rootMethod)
+	{
+		StringBuffer s = new StringBuffer();
+		String rule = "*****************************************************************************************";
+		s.append("/").append(rule).append("\n");
+		s.append(" * Source File: ").append(className).append(".java\n");
+		s.append(" ").append(rule.substring(1)).append("/\n");
+		if (packageName != null)
+		{
+			s.append("package ").append(packageName).append(";\n\n");
+		}
+		for (String i : imports)
+		{
+			s.append("import ").append(i).append(";\n");
+		}
+		s.append("\n");
+		s.append("/**\n");
+		s.append(" * Recursive-descent parser of the grammar <code>").append(
+				comment(nodes.get(0))).append("</code>, generated by\n");
+		s.append(" * <code>").append(getClass().getSimpleName()).append("</code>.\n");
+		s.append(" * <p>\n");
+		s.append(" * Do not edit; regenerate it when the grammar changes.\n");
+		s.append(" */\n");
+		s.append("public class ").append(className).append(" extends GeneratedParser\n");
+		s.append("{\n");
+		s.append("\t// ========================= CONSTANTS =================================\n\n");
+		s.append("\t/**\n");
+		s.append("\t * Signature of the grammar this parser was generated from.\n");
+		s.append("\t */\n");
+		s.append("\tprivate static final long SIGNATURE = 0x").append(
+				Long.toHexString(signature)).append("L;\n\n");
+		s.append("\t// ========================= FIELDS ====================================\n\n");
+		for (StringBuffer declarations : fields.values())
+		{
+			s.append(declarations).append("\n");
+		}
+		s.append("\t// ========================= CONSTRUCTORS ==============================\n\n");
+		s.append("\t/**\n");
+		s.append("\t * @param grammar\n");
+		s.append("\t *            the grammar this parser was generated from\n");
+		s.append("\t */\n");
+		s.append("\tpublic ").append(className).append("(Parser grammar)\n");
+		s.append("\t{\n");
+		s.append("\t\tsuper(grammar, SIGNATURE);\n");
+		s.append("\t}\n\n");
+		s.append("\t// ========================= IMPLEMENTATION: GeneratedParser ===========\n\n");
+		s.append("\t/**\n");
+		s.append("\t * @see net.ruready.common.parser.core.manager.GeneratedParser#parse(net.ruready.common.parser.core.entity.Matches)\n");
+		s.append("\t */\n");
+		s.append("\t@Override\n");
+		s.append("\tprotected Matches parse(Matches in)\n");
+		s.append("\t{\n");
+		s.append("\t\treturn ").append(rootMethod).append("(in);\n");
+		s.append("\t}\n\n");
+		s.append("\t// ========================= PRIVATE METHODS ===========================\n\n");
+		s.append(methods.substring(0, methods.length() - 1));
+		s.append("}\n");
+		return s.toString();
+	}
+
+	/**
+	 * Append a line of code to the current method.
+	 *
+	 * @param code
+	 *            code
+	 */
+	private void line(String code)
+	{
+		for (int i = 0; i < indent; i++)
+		{
+			methods.append('\t');
+		}
+		methods.append(code).append('\n');
+	}
+
+	/**
+	 * Open a block.
+	 */
+	private void open()
+	{
+		line("{");
+		indent++;
+	}
+
+	/**
+	 * Close a block.
+	 */
+	private void close()
+	{
+		indent--;
+		line("}");
+	}
+
+	/**
+	 * Open the loop over the iterations of a repetition: a <code>while</code> loop if the
+	 * iterations need not be counted, else a counting <code>for</code> loop.
+	 *
+	 * @param work
+	 *            working set variable
+	 * @param min
+	 *            minimum number of iterations
+	 * @param max
+	 *            maximum number of iterations
+	 * @return name of the iteration counter, or <code>null</code> if the loop does not
+	 *         count
+	 */
+	private String openLoop(String work, int min, int max)
+	{
+		if ((min <= 1) && (max == Repetition.UNBOUNDED))
+		{
+			line("while (!" + work + ".isEmpty())");
+			open();
+			return null;
+		}
+		String count = newVariable("n");
+		line("for (int " + count + " = 1; (" + count + " <= " + max + ") && !" + work
+				+ ".isEmpty(); " + count + "++)");
+		open();
+		return count;
+	}
+
+	/**
+	 * Return a new local variable name of the current method.
+	 *
+	 * @param prefix
+	 *            variable name prefix
+	 * @return variable name
+	 */
+	private String newVariable(String prefix)
+	{
+		return prefix + (++variables);
+	}
+
+	/**
+	 * Return a one-line description of a parser that is safe to put in a comment.
+	 *
+	 * @param p
+	 *            parser
+	 * @return description
+	 */
+	private static String comment(Parser p)
+	{
+		String label = ProfileReportParserVisitor.label(p).replace("*/", "* /").replace(
+				'\n', ' ').replace('\r', ' ');
+		return (label.trim().length() == 0) ? "\"" + label + "\"" : label;
+	}
+
+	/**
+	 * Turn a parser name into a capitalized Java identifier.
+	 *
+	 * @param name
+	 *            parser name
+	 * @return identifier
+	 */
+	private static String identifier(String name)
+	{
+		StringBuffer s = new StringBuffer();
+		for (int i = 0; i < name.length(); i++)
+		{
+			char c = name.charAt(i);
+			s.append(Character.isJavaIdentifierPart(c) && (c != '$') ? c : '_');
+		}
+		s.setCharAt(0, Character.toUpperCase(s.charAt(0)));
+		return s.toString();
+	}
+}
@@ -0,0 +1,262 @@
+/*****************************************************************************************
+ * Source File: ProfileReportParserVisitor.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ruready.common.parser.core.entity.ParserNodeProfile;
+import net.ruready.common.parser.core.entity.ParserProfile;
+import net.ruready.common.rl.CommonNames;
+import net.ruready.common.text.TextUtil;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Renders a parser graph as an indented tree, annotating every node with the statistics
+ * a {@link ParserProfile} recorded for it, followed by a list of the nodes that took the
+ * most time themselves. A node that is reached again (e.g. through recursion) is printed
+ * once and referred to by "..." afterwards.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c) 2006-07
+ *         Continuing Education , University of Utah . All copyrights reserved. U.S.
+ *         Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Apr 26, 2007
+ */
+public class ProfileReportParserVisitor implements ParserVisitor
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(ProfileReportParserVisitor.class);
+
+	/**
+	 * Number of nodes listed in the hot spot summary.
+	 */
+	private static final int NUM_HOT_SPOTS = 10;
+
+	// ========================= FIELDS ====================================
+
+	// Statistics to print
+	private final ParserProfile profile;
+
+	// Report text
+	private final StringBuffer s = TextUtil.emptyStringBuffer();
+
+	// Parsers printed so far
+	private final Map<Parser, Boolean> printed = new IdentityHashMap<Parser, Boolean>();
+
+	// Current indentation level
+	private int depth = 0;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * @param profile
+	 *            statistics to print
+	 */
+	private ProfileReportParserVisitor(ParserProfile profile)
+	{
+		super();
+		this.profile = profile;
+	}
+
+	/**
+	 * Return a report of the statistics a profile recorded for the nodes of a parser
+	 * graph.
+	 *
+	 * @param origin
+	 *            root parser
+	 * @param profile
+	 *            recorded statistics
+	 * @return report text
+	 */
+	public static String report(Parser origin, ParserProfile profile)
+	{
+		ProfileReportParserVisitor visitor = new ProfileReportParserVisitor(profile);
+		visitor.s.append(profile);
+		visitor.s.append(CommonNames.MISC.NEW_LINE_CHAR);
+		origin.accept(visitor);
+		visitor.printHotSpots();
+		return visitor.s.toString();
+	}
+
+	// ========================= IMPLEMENTATION: ParserVisitor ================
+
+	/**
+	 * The report keeps track of printed parsers itself.
+	 *
+	 * @param visited
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#setVisited(java.util.List)
+	 */
+	public void setVisited(List<Parser> visited)
+	{
+
+	}
+
+	/**
+	 * A parser of an unknown type: print it without children.
+	 *
+	 * @param visitable
+	 * @see net.ruready.common.visitor.Visitor#visit(net.ruready.common.visitor.Visitable)
+	 */
+	public void visit(Parser visitable)
+	{
+		printNode(visitable);
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Alternation)
+	 */
+	public void visit(Alternation a)
+	{
+		printChildren(a, a.getSubparsers());
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Empty)
+	 */
+	public void visit(Empty e)
+	{
+		printNode(e);
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Repetition)
+	 */
+	public void visit(Repetition r)
+	{
+		printChildren(r, Collections.singletonList(r.getSubparser()));
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Sequence)
+	 */
+	public void visit(Sequence s)
+	{
+		printChildren(s, s.getSubparsers());
+	}
+
+	/**
+	 * @see net.ruready.common.parser.core.manager.ParserVisitor#visit(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	public void visit(Terminal t)
+	{
+		printNode(t);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Print a composite parser and its children.
+	 *
+	 * @param p
+	 *            parser
+	 * @param children
+	 *            sub-parsers
+	 */
+	private void printChildren(Parser p, List<Parser> children)
+	{
+		if (!printNode(p))
+		{
+			return;
+		}
+		depth++;
+		for (Parser child : children)
+		{
+			child.accept(this);
+		}
+		depth--;
+	}
+
+	/**
+	 * Print a line of a parser and its statistics.
+	 *
+	 * @param p
+	 *            parser
+	 * @return true if the parser had not been printed before
+	 */
+	private boolean printNode(Parser p)
+	{
+		for (int i = 0; i < depth; i++)
+		{
+			s.append("  ");
+		}
+		s.append(label(p));
+		boolean first = (printed.put(p, Boolean.TRUE) == null);
+		if (first)
+		{
+			ParserNodeProfile stats = profile.getParserNodeProfile(p);
+			s.append("  ");
+			s.append((stats == null) ? "never called" : stats.toString());
+		}
+		else
+		{
+			s.append(" ...");
+		}
+		s.append(CommonNames.MISC.NEW_LINE_CHAR);
+		return first;
+	}
+
+	/**
+	 * Print the nodes that took the most time themselves.
+	 */
+	private void printHotSpots()
+	{
+		List<Map.Entry<Object, ParserNodeProfile>> entries = new ArrayList<Map.Entry<Object, ParserNodeProfile>>(
+				profile.getParserNodeProfiles().entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Object, ParserNodeProfile>>()
+		{
+			public int compare(Map.Entry<Object, ParserNodeProfile> a,
+					Map.Entry<Object, ParserNodeProfile> b)
+			{
+				long x = a.getValue().getSelfNanos();
+				long y = b.getValue().getSelfNanos();
+				return (x < y) ? 1 : ((x == y) ? 0 : -1);
+			}
+		});
+		s.append("Hot spots (self time):");
+		s.append(CommonNames.MISC.NEW_LINE_CHAR);
+		for (int i = 0; (i < NUM_HOT_SPOTS) && (i < entries.size()); i++)
+		{
+			Map.Entry<Object, ParserNodeProfile> entry = entries.get(i);
+			s.append("  ");
+			s.append((entry.getKey() instanceof Parser) ? label((Parser) entry.getKey())
+					: entry.getKey());
+			s.append("  ");
+			s.append(entry.getValue());
+			s.append(CommonNames.MISC.NEW_LINE_CHAR);
+		}
+	}
+
+	/**
+	 * Return a short label of a parser: its name, if it has one; the textual description
+	 * of a terminal; otherwise, its class name.
+	 *
+	 * @param p
+	 *            parser
+	 * @return label
+	 */
+	static String label(Parser p)
+	{
+		if (p.getName() != null)
+		{
+			return p.getName();
+		}
+		if (p instanceof Terminal)
+		{
+			return p.toString();
+		}
+		return p.getClass().getSimpleName();
+	}
+}
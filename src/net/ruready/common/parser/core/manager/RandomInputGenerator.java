@@ -0,0 +1,457 @@
+/*****************************************************************************************
+ * Source File: RandomInputGenerator.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.manager;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.ruready.common.exception.SystemException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Generates random elements of a grammar's language, e.g. to build parser benchmark
+ * corpora and fuzz inputs. Every parser expands itself into elements (see
+ * <code>Parser.randomExpansion(RandomInputGenerator, int)</code>), drawing its random
+ * choices from this generator, which appends the elements to the current input as they
+ * are produced. A generator with a given seed produces the same sequence of inputs
+ * every time.
+ * <p>
+ * The size of the inputs is controlled by a maximum depth and a maximum number of
+ * elements per input. Once either is reached, the expansion winds down: alternations
+ * prefer terminal branches and repetitions stop at their minimum number of iterations.
+ * Both are soft limits, since the input must still be complete. The branches of an
+ * alternation are chosen uniformly unless weights are set for it.
+ *
+ * <pre>
+ * RandomInputGenerator generator = new RandomInputGenerator(grammar, 42L).setMaxDepth(12)
+ * 		.setWeights(factor, 4, 1, 1);
+ * generator.write(writer, 100000);
+ * </pre>
+ *
+ * Also the command-line entry point that writes a corpus of a grammar compiler's
+ * language to a file:
+ *
+ * <pre>
+ * java RandomInputGenerator &lt;compiler class&gt; &lt;seed&gt; &lt;count&gt; &lt;output file&gt; \
+ *     [&lt;max depth&gt; [&lt;max elements&gt;]]
+ * </pre>
+ *
+ * A generator is not thread-safe.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class RandomInputGenerator
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(RandomInputGenerator.class);
+
+	/**
+	 * Default maximum expansion depth.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 10;
+
+	// ========================= FIELDS ====================================
+
+	// Grammar
+	private final Parser grammar;
+
+	// Source of all random choices
+	private final Random random;
+
+	// Depth at which the expansion winds down
+	private int maxDepth = DEFAULT_MAX_DEPTH;
+
+	// Number of elements per input after which the expansion winds down; 0 = unlimited
+	private int maxElements = 0;
+
+	// Maximum number of optional iterations of a repetition
+	private int repetitionWidth = Repetition.EXPWIDTH;
+
+	// Appended between the elements of an input
+	private String separator = " ";
+
+	// Alternation -> branch weights
+	private final Map<Parser, double[]> weights = new IdentityHashMap<Parser, double[]>();
+
+	// The input being generated
+	private final StringBuffer input = new StringBuffer();
+
+	// If not null, elements are collected here instead of into the input
+	private List<Object> elements = null;
+
+	// Number of elements of the input being generated
+	private int count = 0;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a generator with an arbitrary seed.
+	 *
+	 * @param grammar
+	 *            root parser of the grammar
+	 */
+	public RandomInputGenerator(Parser grammar)
+	{
+		this(grammar, new Random());
+	}
+
+	/**
+	 * Create a generator with a seed.
+	 *
+	 * @param grammar
+	 *            root parser of the grammar
+	 * @param seed
+	 *            random seed
+	 */
+	public RandomInputGenerator(Parser grammar, long seed)
+	{
+		this(grammar, new Random(seed));
+	}
+
+	/**
+	 * Create a generator with a source of random numbers.
+	 *
+	 * @param grammar
+	 *            root parser of the grammar
+	 * @param random
+	 *            source of all random choices
+	 */
+	public RandomInputGenerator(Parser grammar, Random random)
+	{
+		super();
+		this.grammar = grammar;
+		this.random = random;
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Generate an input.
+	 *
+	 * @return a random element of the grammar's language
+	 */
+	public String next()
+	{
+		input.setLength(0);
+		count = 0;
+		grammar.randomExpansion(this, 0);
+		return input.toString();
+	}
+
+	/**
+	 * Generate inputs and write them to a writer, one per line. Each input is written as
+	 * soon as it is generated.
+	 *
+	 * @param out
+	 *            writer to write to; not closed by this method
+	 * @param numInputs
+	 *            number of inputs to generate
+	 * @throws IOException
+	 *             if the writer fails
+	 */
+	public void write(Writer out, long numInputs) throws IOException
+	{
+		String lineSeparator = System.getProperty("line.separator");
+		for (long i = 0; i < numInputs; i++)
+		{
+			out.write(next());
+			out.write(lineSeparator);
+		}
+	}
+
+	/**
+	 * Append an element to the input being generated. Called by parsers.
+	 *
+	 * @param element
+	 *            element of the input
+	 */
+	public void emit(Object element)
+	{
+		if (elements != null)
+		{
+			elements.add(element);
+		}
+		else
+		{
+			if (count > 0)
+			{
+				input.append(separator);
+			}
+			input.append(element);
+		}
+		count++;
+	}
+
+	/**
+	 * Returns true if the expansion should wind down: the depth or the number of
+	 * elements generated so far has reached its maximum.
+	 *
+	 * @param depth
+	 *            current depth
+	 * @return true if the expansion should wind down
+	 */
+	public boolean isSettling(int depth)
+	{
+		return (depth >= maxDepth) || ((maxElements > 0) && (count >= maxElements));
+	}
+
+	/**
+	 * Choose one of some branches of an alternation, according to the alternation's
+	 * weights. If all candidate branches have zero weight, chooses uniformly.
+	 *
+	 * @param alternation
+	 *            alternation
+	 * @param candidates
+	 *            indices of the candidate branches
+	 * @return one of <code>candidates</code>
+	 */
+	public int choose(Parser alternation, int[] candidates)
+	{
+		double[] w = weights.get(alternation);
+		if (w != null)
+		{
+			double total = 0.0;
+			for (int i : candidates)
+			{
+				total += weight(w, i);
+			}
+			if (total > 0.0)
+			{
+				double x = total * random.nextDouble();
+				for (int i : candidates)
+				{
+					x -= weight(w, i);
+					if ((x < 0.0) && (weight(w, i) > 0.0))
+					{
+						return i;
+					}
+				}
+				// Rounding: return the last candidate with a positive weight
+				for (int j = candidates.length - 1; j >= 0; j--)
+				{
+					if (weight(w, candidates[j]) > 0.0)
+					{
+						return candidates[j];
+					}
+				}
+			}
+		}
+		return candidates[random.nextInt(candidates.length)];
+	}
+
+	/**
+	 * Expand a parser into a list of elements, for
+	 * <code>Parser.randomExpansion(int, int)</code>.
+	 *
+	 * @param p
+	 *            parser to expand
+	 * @param depth
+	 *            depth to start at
+	 * @return elements of the expansion
+	 */
+	List<Object> expansion(Parser p, int depth)
+	{
+		elements = new ArrayList<Object>();
+		count = 0;
+		p.randomExpansion(this, depth);
+		List<Object> result = elements;
+		elements = null;
+		return result;
+	}
+
+	/**
+	 * Write a corpus of a grammar compiler's language to a file.
+	 *
+	 * @param args
+	 *            compiler class, seed, number of inputs, output file, and optionally the
+	 *            maximum depth and maximum number of elements per input
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if ((args.length < 4) || (args.length > 6))
+		{
+			System.err.println("Usage: RandomInputGenerator <compiler class> <seed> "
+					+ "<count> <output file> [<max depth> [<max elements>]]");
+			System.exit(1);
+		}
+		RandomInputGenerator generator = new RandomInputGenerator(ParserSourceGenerator
+				.compile(args[0]), Long.parseLong(args[1]));
+		if (args.length > 4)
+		{
+			generator.setMaxDepth(Integer.parseInt(args[4]));
+		}
+		if (args.length > 5)
+		{
+			generator.setMaxElements(Integer.parseInt(args[5]));
+		}
+		Writer out = new BufferedWriter(new FileWriter(args[3]));
+		try
+		{
+			generator.write(out, Long.parseLong(args[2]));
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Return the weight of a branch.
+	 *
+	 * @param w
+	 *            branch weights
+	 * @param i
+	 *            branch index
+	 * @return weight of branch <code>i</code>; 0 if not set
+	 */
+	private static double weight(double[] w, int i)
+	{
+		return (i < w.length) ? w[i] : 0.0;
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the grammar
+	 */
+	public Parser getGrammar()
+	{
+		return grammar;
+	}
+
+	/**
+	 * @return the source of all random choices
+	 */
+	public Random getRandom()
+	{
+		return random;
+	}
+
+	/**
+	 * @return the depth at which the expansion winds down
+	 */
+	public int getMaxDepth()
+	{
+		return maxDepth;
+	}
+
+	/**
+	 * @param maxDepth
+	 *            the depth at which the expansion winds down
+	 * @return this object, for chaining
+	 */
+	public RandomInputGenerator setMaxDepth(int maxDepth)
+	{
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * @return the number of elements per input after which the expansion winds down; 0
+	 *         if unlimited
+	 */
+	public int getMaxElements()
+	{
+		return maxElements;
+	}
+
+	/**
+	 * @param maxElements
+	 *            the number of elements per input after which the expansion winds down;
+	 *            0 for unlimited
+	 * @return this object, for chaining
+	 */
+	public RandomInputGenerator setMaxElements(int maxElements)
+	{
+		this.maxElements = maxElements;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of optional iterations of a repetition
+	 */
+	public int getRepetitionWidth()
+	{
+		return repetitionWidth;
+	}
+
+	/**
+	 * @param repetitionWidth
+	 *            the maximum number of optional iterations of a repetition
+	 * @return this object, for chaining
+	 */
+	public RandomInputGenerator setRepetitionWidth(int repetitionWidth)
+	{
+		if (repetitionWidth < 1)
+		{
+			throw new SystemException("Repetition width must be positive: "
+					+ repetitionWidth);
+		}
+		this.repetitionWidth = repetitionWidth;
+		return this;
+	}
+
+	/**
+	 * @return the string appended between the elements of an input
+	 */
+	public String getSeparator()
+	{
+		return separator;
+	}
+
+	/**
+	 * @param separator
+	 *            the string appended between the elements of an input
+	 * @return this object, for chaining
+	 */
+	public RandomInputGenerator setSeparator(String separator)
+	{
+		this.separator = separator;
+		return this;
+	}
+
+	/**
+	 * Set the weights of the branches of an alternation. Branches are chosen with
+	 * probability proportional to their weights; branches without a weight have weight
+	 * zero.
+	 *
+	 * @param alternation
+	 *            alternation of the grammar
+	 * @param branchWeights
+	 *            non-negative weight of each branch, in order
+	 * @return this object, for chaining
+	 */
+	public RandomInputGenerator setWeights(Alternation alternation, double... branchWeights)
+	{
+		for (double w : branchWeights)
+		{
+			if (!(w >= 0.0))
+			{
+				throw new SystemException("Invalid branch weight " + w + " of "
+						+ alternation);
+			}
+		}
+		weights.put(alternation, branchWeights.clone());
+		return this;
+	}
+}
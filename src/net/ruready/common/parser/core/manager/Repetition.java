@@ -6,6 +6,8 @@ package net.ruready.common.parser.core.manager;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.ruready.common.exception.InternationalizableErrorMessage;
+import net.ruready.common.exception.SystemException;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
 import net.ruready.common.parser.core.entity.Matches;
@@ -17,6 +19,16 @@ import org.apache.commons.logging.LogFactory;
  * A <code>Repetition</code> matches its underlying parser repeatedly against a
  * assembly.
  * <p>
+ * By default, a repetition matches its subparser any number of times and keeps the
+ * results of every number of iterations. The number of iterations may be bounded (see
+ * {@link #setCounts(int, int)}), and a {@link RepetitionMode} may restrict the results
+ * to the longest (<code>POSSESSIVE</code>) or shortest (<code>LAZY</code>) iteration.
+ * <p>
+ * Assemblers run as follows in every mode: the pre-assembler works on each input
+ * assembly before the first iteration; the subparser's assemblers work on the results of
+ * every iteration that is matched, including iterations whose results are then
+ * discarded; and the repetition's own assembler works on every result that is kept.
+ * <p>
  * -------------------------------------------------------------------------<br>
  * Copyright (c) 1999 Steven J. Metsker. All Rights Reserved. Steve Metsker makes no
  * representations or warranties about the fitness of this software for any particular
@@ -69,6 +81,26 @@ public class Repetition extends Parser
 	 */
 	protected Assembler preAssembler;
 
+	/**
+	 * Maximum number of iterations of a repetition that has no upper bound.
+	 */
+	public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	/*
+	 * which iterations to keep
+	 */
+	private RepetitionMode mode = RepetitionMode.ALL;
+
+	/*
+	 * minimum number of iterations
+	 */
+	private int min = 0;
+
+	/*
+	 * maximum number of iterations
+	 */
+	private int max = UNBOUNDED;
+
 	/**
 	 * Constructs a repetition of the given parser.
 	 * 
@@ -124,7 +156,9 @@ public class Repetition extends Parser
 	 * For example, matching the regular expression <code>a*
 	 * </code> against
 	 * <code>{^aaab}</code> results in <code>
-	 * {^aaab, a^aab, aa^ab, aaa^b}</code>.
+	 * {^aaab, a^aab, aa^ab, aaa^b}</code>. A possessive repetition results in
+	 * <code>{aaa^b}</code>, a lazy one in <code>{^aaab}</code>, and a repetition of
+	 * between one and two iterations in <code>{a^aab, aa^ab}</code>.
 	 * 
 	 * @return a List of assemblies that result from matching against a beginning set of
 	 *         assemblies
@@ -144,12 +178,32 @@ public class Repetition extends Parser
 				preAssembler.workOn(a);
 			}
 		}
-		Matches out = in.clone();
+		switch (mode)
+		{
+			case POSSESSIVE:
+			{
+				return possessiveMatch(in);
+			}
+
+			case LAZY:
+			{
+				return lazyMatch(in);
+			}
+
+			default:
+			{
+				break;
+			}
+		}
+		Matches out = (min == 0) ? in.clone() : emptyMatches(in);
 		Matches s = in; // a working state
-		while (!s.isEmpty())
+		for (int count = 1; (count <= max) && !s.isEmpty(); count++)
 		{
 			s = subparser.matchAndAssemble(s);
-			out.addAll(s);
+			if (count >= min)
+			{
+				out.addAll(s);
+			}
 		}
 		return out;
 		// ---------------------------------
@@ -174,28 +228,24 @@ public class Repetition extends Parser
 	}
 
 	/**
-	 * Create a collection of random elements that correspond to this repetition.
+	 * Create random elements that correspond to this repetition: the minimum number of
+	 * iterations if the expansion is settling, otherwise up to the generator's repetition
+	 * width more.
 	 */
 	@Override
-	protected List<?> randomExpansion(final int maxDepth, final int depth)
+	protected void randomExpansion(RandomInputGenerator generator, final int depth)
 	{
 		int currentDepth = depth;
-		List<Object> v = new ArrayList<Object>();
-		if (depth >= maxDepth)
+		int n = min;
+		if (!generator.isSettling(depth) && (mode != RepetitionMode.LAZY))
 		{
-			return v;
+			n = (int) Math.min((long) min
+					+ generator.getRandom().nextInt(generator.getRepetitionWidth()), max);
 		}
-
-		int n = (int) (EXPWIDTH * Math.random());
 		for (int j = 0; j < n; j++)
 		{
-			List<?> w = subparser.randomExpansion(maxDepth, currentDepth++);
-			for (Object element : w)
-			{
-				v.add(element);
-			}
+			subparser.randomExpansion(generator, currentDepth++);
 		}
-		return v;
 	}
 
 	/**
@@ -206,7 +256,104 @@ public class Repetition extends Parser
 	@Override
 	protected String unvisitedString(List<Parser> visited)
 	{
-		return subparser.toString(visited) + "*";
+		StringBuffer s = new StringBuffer(subparser.toString(visited));
+		if ((min == 0) && (max == UNBOUNDED))
+		{
+			s.append("*");
+		}
+		else if ((min == 1) && (max == UNBOUNDED))
+		{
+			s.append("+");
+		}
+		else
+		{
+			s.append("{").append(min).append(",");
+			if (max != UNBOUNDED)
+			{
+				s.append(max);
+			}
+			s.append("}");
+		}
+		if (mode == RepetitionMode.POSSESSIVE)
+		{
+			s.append("+");
+		}
+		else if (mode == RepetitionMode.LAZY)
+		{
+			s.append("?");
+		}
+		return s.toString();
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Match in possessive mode: iterate each input assembly separately, and keep only
+	 * the results of its last successful iteration.
+	 * 
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return the results of the longest iteration of each assembly
+	 */
+	private Matches possessiveMatch(Matches in)
+	{
+		Matches out = emptyMatches(in);
+		for (Assembly a : in.getAssemblies())
+		{
+			Matches s = new Matches();
+			s.addAssembly(a);
+			s.setContext(in.getContext());
+			Matches longest = (min == 0) ? s.clone() : null;
+			for (int count = 1; (count <= max) && !s.isEmpty(); count++)
+			{
+				s = subparser.matchAndAssemble(s);
+				if ((count >= min) && !s.isEmpty())
+				{
+					longest = s;
+				}
+			}
+			if (longest != null)
+			{
+				out.addAll(longest);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Match in lazy mode: keep only the results of the minimum number of iterations.
+	 * 
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return the results of the shortest iteration
+	 */
+	private Matches lazyMatch(Matches in)
+	{
+		if (min == 0)
+		{
+			return in.clone();
+		}
+		Matches s = in;
+		for (int count = 1; (count <= min) && !s.isEmpty(); count++)
+		{
+			s = subparser.matchAndAssemble(s);
+		}
+		return s;
+	}
+
+	/**
+	 * Return an empty result that keeps the syntax errors of an input.
+	 * 
+	 * @param in
+	 *            a vector of assemblies to match against
+	 * @return an empty set of assemblies
+	 */
+	private static Matches emptyMatches(Matches in)
+	{
+		Matches out = new Matches(new ArrayList<Assembly>(),
+				new ArrayList<InternationalizableErrorMessage>(in.getSyntaxErrors()));
+		out.setContext(in.getContext());
+		return out;
 	}
 
 	// ========================= GETTERS & SETTERS =========================
@@ -220,7 +367,74 @@ public class Repetition extends Parser
 	 */
 	public Parser setPreAssembler(Assembler preAssembler)
 	{
+		checkNotFrozen();
 		this.preAssembler = preAssembler;
 		return this;
 	}
+
+	/**
+	 * Return which iterations of the subparser this repetition keeps.
+	 * 
+	 * @return the repetition mode
+	 */
+	public RepetitionMode getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Set which iterations of the subparser this repetition keeps.
+	 * 
+	 * @param mode
+	 *            the repetition mode
+	 * @return this, for chaining
+	 */
+	public Repetition setMode(RepetitionMode mode)
+	{
+		checkNotFrozen();
+		this.mode = mode;
+		return this;
+	}
+
+	/**
+	 * Return the minimum number of iterations.
+	 * 
+	 * @return the minimum number of iterations
+	 */
+	public int getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * Return the maximum number of iterations.
+	 * 
+	 * @return the maximum number of iterations, or <code>UNBOUNDED</code>
+	 */
+	public int getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Bound the number of iterations.
+	 * 
+	 * @param min
+	 *            minimum number of iterations
+	 * @param max
+	 *            maximum number of iterations, or <code>UNBOUNDED</code>
+	 * @return this, for chaining
+	 */
+	public Repetition setCounts(int min, int max)
+	{
+		checkNotFrozen();
+		if ((min < 0) || (max < min))
+		{
+			throw new SystemException("Invalid repetition counts {" + min + "," + max
+					+ "}");
+		}
+		this.min = min;
+		this.max = max;
+		return this;
+	}
 }
@@ -0,0 +1,57 @@
+/*******************************************************
+ * Source File: RepetitionMode.java
+ *******************************************************/
+package net.ruready.common.parser.core.manager;
+
+/**
+ * Which iterations of its subparser a {@link Repetition} keeps.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without
+ * permission from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ * 
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public enum RepetitionMode
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * Keep the results of every allowed number of iterations, so that the parsers that
+	 * follow the repetition may match after any of them. The original Metsker semantics,
+	 * and the default.
+	 */
+	ALL,
+
+	/**
+	 * Keep, for each input assembly, only the results of the largest number of
+	 * iterations that matched. Elements the repetition can consume are never left to
+	 * the parsers that follow it. Long lists are matched in linear time.
+	 */
+	POSSESSIVE,
+
+	/**
+	 * Keep only the results of the smallest allowed number of iterations (the minimum
+	 * count). Elements beyond the minimum are always left to the parsers that follow
+	 * the repetition.
+	 */
+	LAZY;
+
+	// ========================= FIELDS ====================================
+
+	// ========================= METHODS ===================================
+
+}
@@ -3,7 +3,6 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.manager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.ruready.common.parser.core.entity.Matches;
@@ -77,23 +76,16 @@ public class Sequence extends CollectionParser
 	}
 
 	/**
-	 * Create a random expansion for each parser in this sequence and return a collection
-	 * of all these expansions.
+	 * Create a random expansion for each parser in this sequence, in order.
 	 */
 	@Override
-	protected List<?> randomExpansion(final int maxDepth, final int depth)
+	protected void randomExpansion(RandomInputGenerator generator, final int depth)
 	{
 		int currentDepth = depth;
-		List<Object> v = new ArrayList<Object>();
 		for (Parser p : subparsers)
 		{
-			List<?> w = p.randomExpansion(maxDepth, currentDepth++);
-			for (Object element : w)
-			{
-				v.add(element);
-			}
+			p.randomExpansion(generator, currentDepth++);
 		}
-		return v;
 	}
 
 	/**
@@ -3,11 +3,11 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.manager;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.ruready.common.parser.core.entity.Assembly;
 import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.entity.ParseContext;
 
 /**
  * A <code>Terminal</code> is a parser that is not a composition of other parsers.
@@ -87,6 +87,8 @@ public class Terminal extends Parser
 	/**
 	 * Given a collection of assemblies, this method matches this terminal against all of
 	 * them, and returns a new collection of the assemblies that result from the matches.
+	 * Assemblies that this terminal fails to match are reported to the input's context,
+	 * if it tracks failures. Matching stops early if the input's parse is stopped.
 	 * 
 	 * @return a List of assemblies that result from matching against a beginning set of
 	 *         assemblies
@@ -97,13 +99,26 @@ public class Terminal extends Parser
 	public Matches match(Matches in)
 	{
 		Matches out = new Matches();
+		ParseContext context = in.getContext();
 		for (Assembly a : in.getAssemblies())
 		{
+			if (context != null)
+			{
+				if (context.poll())
+				{
+					break;
+				}
+				context.examine(a.elementsConsumed());
+			}
 			Assembly b = matchOneAssembly(a);
 			if (b != null)
 			{
 				out.addAssembly(b);
 			}
+			else if (context != null)
+			{
+				context.recordFailure(this, a);
+			}
 		}
 		return out;
 	}
@@ -152,20 +167,103 @@ public class Terminal extends Parser
 	}
 
 	/**
-	 * By default, create a collection with this terminal's string representation of
-	 * itself. (Most subclasses override this.)
+	 * By default, emit this terminal's string representation of itself. (Most
+	 * subclasses override this.)
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Parser#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Parser#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	public List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
+	{
+		generator.emit(this.toString());
+	}
+
+	/**
+	 * Returns true if this terminal is interchangeable with another one: both accept the
+	 * same elements and treat them the same way. By default, a terminal is only
+	 * interchangeable with itself; terminals that are fully described by their class or
+	 * by a token override this method. Used by the grammar optimizer to left-factor
+	 * alternations whose branches were built with separate but equal terminals.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 */
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other);
+	}
+
+	/**
+	 * Returns true if this terminal and another one may accept the same element. The
+	 * answer is conservative: it is false only if the terminals are known to accept
+	 * disjoint sets of elements, e.g. literals of two different words, or a word and a
+	 * number terminal. Used by the grammar hazard analysis to find overlapping
+	 * alternatives.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true unless this terminal and <code>other</code> never accept the same
+	 *         element
+	 */
+	public boolean mayOverlap(Terminal other)
+	{
+		if (this == other)
+		{
+			return true;
+		}
+		Object element = getSingleElement();
+		Object otherElement = other.getSingleElement();
+		if ((element != null) || (otherElement != null))
+		{
+			return ((element != null) && other.accepts(element))
+					|| ((otherElement != null) && this.accepts(otherElement));
+		}
+		Object type = getElementType();
+		Object otherType = other.getElementType();
+		return (type == null) || (otherType == null) || type.equals(otherType);
+	}
+
+	/**
+	 * Returns the only element this terminal accepts (disregarding case), if there is
+	 * one. Terminals that match a specific token override this method.
+	 * 
+	 * @return the only element this terminal accepts, or <code>null</code> if it may
+	 *         accept other elements
+	 */
+	protected Object getSingleElement()
 	{
-		List<String> v = new ArrayList<String>();
-		v.add(this.toString());
-		return v;
+		return null;
+	}
+
+	/**
+	 * Returns the type that all elements this terminal accepts have, if there is one.
+	 * Terminals of different known types never accept the same element. Terminals that
+	 * accept a single type of token override this method.
+	 * 
+	 * @return the type of the elements this terminal accepts, or <code>null</code> if it
+	 *         is unknown
+	 */
+	protected Object getElementType()
+	{
+		return null;
+	}
+
+	/**
+	 * Returns true if another terminal is of the same class as this terminal and has the
+	 * same discard flag and assembler.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if <code>other</code> has the same settings as this terminal
+	 */
+	protected boolean hasSameSettings(Terminal other)
+	{
+		return (other != null) && (other.getClass() == this.getClass())
+				&& (other.discard == discard) && (other.getAssembler() == getAssembler());
 	}
 
 	/**
@@ -178,6 +276,7 @@ public class Terminal extends Parser
 	 */
 	public Terminal setDiscard(boolean discard)
 	{
+		checkNotFrozen();
 		this.discard = discard;
 		return this;
 	}
@@ -195,4 +294,24 @@ public class Terminal extends Parser
 	{
 		return "any";
 	}
+
+	/**
+	 * Returns true if this terminal accepts an element, or if the element is of a class
+	 * this terminal cannot examine.
+	 * 
+	 * @param element
+	 *            an element
+	 * @return true if this terminal may accept <code>element</code>
+	 */
+	private boolean accepts(Object element)
+	{
+		try
+		{
+			return qualifies(element);
+		}
+		catch (ClassCastException e)
+		{
+			return true;
+		}
+	}
 }
@@ -0,0 +1,72 @@
+/*****************************************************************************************
+ * Source File: ArenaNode.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.pretty;
+
+import java.util.List;
+
+/**
+ * A view of a node of a {@link ParseTreeArena} as a <code>ComponentNode</code>. Valid
+ * until the arena is cleared.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class ArenaNode extends ComponentNode
+{
+	// Arena that holds the node
+	private final ParseTreeArena arena;
+
+	// Node index
+	private final int index;
+
+	/**
+	 * Create a view of an arena node.
+	 *
+	 * @param arena
+	 *            arena that holds the node
+	 * @param index
+	 *            node index
+	 */
+	ArenaNode(ParseTreeArena arena, int index)
+	{
+		this.arena = arena;
+		this.index = index;
+		this.value = arena.getValue(index);
+	}
+
+	/**
+	 * Return a textual description of this node and its subtree. Arena trees have no
+	 * cycles, so <code>visited</code> is not used.
+	 *
+	 * @param depth
+	 * @param label
+	 * @param visited
+	 * @return
+	 * @see net.ruready.common.parser.core.pretty.ComponentNode#toString(int, boolean,
+	 *      java.util.List)
+	 */
+	@Override
+	protected String toString(int depth, boolean label, List<ComponentNode> visited)
+	{
+		StringBuffer buf = new StringBuffer();
+		arena.appendTree(index, depth, label, buf);
+		return buf.toString();
+	}
+
+	/**
+	 * @return the arena that holds this node
+	 */
+	public ParseTreeArena getArena()
+	{
+		return arena;
+	}
+
+	/**
+	 * @return the index of this node in its arena
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+}
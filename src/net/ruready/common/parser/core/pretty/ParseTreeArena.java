@@ -0,0 +1,315 @@
+/*****************************************************************************************
+ * Source File: ParseTreeArena.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.pretty;
+
+import java.util.Arrays;
+
+import net.ruready.common.exception.SystemException;
+import net.ruready.common.parser.core.manager.MatchEnumerator;
+import net.ruready.common.rl.CommonNames;
+
+/**
+ * Stores the nodes of parse trees in parallel arrays instead of one object per node.
+ * Nodes are appended by assemblers during parsing and identified by their index; a
+ * composite node refers to its children by a contiguous range of a child index array,
+ * so a subtree may be shared by the partial parses of several alternatives without being
+ * copied. Walking a tree reads consecutive array elements.
+ * <p>
+ * Clearing an arena keeps its arrays for the next parse. Nodes of abandoned partial
+ * parses stay in the arena until it is cleared, or until it is truncated to a size it
+ * had before they were appended; a {@link MatchEnumerator} truncates the arena this way
+ * when it backtracks, so enumerating parse trees one at a time only keeps the nodes of
+ * the current path. Use {@link #node(int)} to view a node through the
+ * <code>ComponentNode</code> API; views are only valid until the arena is cleared or
+ * truncated below their node. An arena is not thread-safe.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class ParseTreeArena implements MatchEnumerator.Checkpointable
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * Node kind: a leaf that holds a value.
+	 */
+	public static final int TERMINAL = 0;
+
+	/**
+	 * Node kind: a node that holds a value and has children.
+	 */
+	public static final int COMPOSITE = 1;
+
+	/**
+	 * Initial number of nodes an arena has room for.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	// ========================= FIELDS ====================================
+
+	// Number of nodes
+	private int size = 0;
+
+	// Kind of each node
+	private int[] kinds = new int[INITIAL_CAPACITY];
+
+	// Value of each node: a terminal's token value or a composite's label
+	private Object[] values = new Object[INITIAL_CAPACITY];
+
+	// Index of each terminal's token in the input; -1 if none or a composite
+	private int[] tokens = new int[INITIAL_CAPACITY];
+
+	// Index of each composite's first child in children[]
+	private int[] firstChild = new int[INITIAL_CAPACITY];
+
+	// Number of children of each node
+	private int[] childCount = new int[INITIAL_CAPACITY];
+
+	// Child node indices of all composites
+	private int[] children = new int[INITIAL_CAPACITY];
+
+	// Number of used elements of children[]
+	private int numChildren = 0;
+
+	// ========================= IMPLEMENTATION: Checkpointable ============
+
+	/**
+	 * Encodes the number of nodes and child references.
+	 *
+	 * @see net.ruready.common.parser.core.manager.MatchEnumerator.Checkpointable#checkpoint()
+	 */
+	public long checkpoint()
+	{
+		return ((long) size << 32) | numChildren;
+	}
+
+	/**
+	 * Truncate the arena to a checkpoint.
+	 *
+	 * @see net.ruready.common.parser.core.manager.MatchEnumerator.Checkpointable#rollback(long)
+	 */
+	public void rollback(long checkpoint)
+	{
+		truncate((int) (checkpoint >>> 32), (int) checkpoint);
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Append a terminal node.
+	 *
+	 * @param value
+	 *            value of the node
+	 * @param token
+	 *            index of the node's token in the input, or -1
+	 * @return index of the new node
+	 */
+	public int addTerminal(Object value, int token)
+	{
+		int node = newNode(TERMINAL, value);
+		tokens[node] = token;
+		return node;
+	}
+
+	/**
+	 * Append a composite node.
+	 *
+	 * @param value
+	 *            value of the node
+	 * @param childNodes
+	 *            indices of the node's children, in order; copied
+	 * @param count
+	 *            number of children to read from <code>childNodes</code>
+	 * @return index of the new node
+	 */
+	public int addComposite(Object value, int[] childNodes, int count)
+	{
+		int node = newNode(COMPOSITE, value);
+		if (numChildren + count > children.length)
+		{
+			children = Arrays.copyOf(children, Math.max(2 * children.length, numChildren
+					+ count));
+		}
+		System.arraycopy(childNodes, 0, children, numChildren, count);
+		firstChild[node] = numChildren;
+		childCount[node] = count;
+		numChildren += count;
+		return node;
+	}
+
+	/**
+	 * Return a view of a node through the <code>ComponentNode</code> API.
+	 *
+	 * @param node
+	 *            node index
+	 * @return view of the node; valid until this arena is cleared
+	 */
+	public ComponentNode node(int node)
+	{
+		return new ArenaNode(this, node);
+	}
+
+	/**
+	 * Remove all nodes. The arrays are kept for reuse.
+	 */
+	public void clear()
+	{
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		numChildren = 0;
+	}
+
+	/**
+	 * Remove the nodes appended after the arena had a given number of nodes and child
+	 * references. The arrays are kept for reuse.
+	 *
+	 * @param newSize
+	 *            number of nodes to keep; at most <code>size()</code>
+	 * @param newNumChildren
+	 *            number of child references to keep; the value of
+	 *            <code>getNumChildren()</code> when the arena had <code>newSize</code>
+	 *            nodes
+	 */
+	public void truncate(int newSize, int newNumChildren)
+	{
+		if ((newSize > size) || (newNumChildren > numChildren))
+		{
+			throw new SystemException("Cannot truncate an arena of " + size
+					+ " nodes and " + numChildren + " child references to " + newSize
+					+ " nodes and " + newNumChildren + " child references");
+		}
+		Arrays.fill(values, newSize, size, null);
+		size = newSize;
+		numChildren = newNumChildren;
+	}
+
+	/**
+	 * Append the textual description of a subtree to a buffer, in the format of
+	 * <code>ComponentNode.toString()</code>.
+	 *
+	 * @param node
+	 *            root node index
+	 * @param depth
+	 *            depth of the root node
+	 * @param label
+	 *            show composite values
+	 * @param buf
+	 *            buffer to append to
+	 */
+	void appendTree(int node, int depth, boolean label, StringBuffer buf)
+	{
+		if ((kinds[node] == TERMINAL) || label)
+		{
+			buf.append(ComponentNode.indent(depth));
+			buf.append(values[node]);
+			buf.append(CommonNames.MISC.NEW_LINE_CHAR);
+		}
+		int first = firstChild[node];
+		for (int i = first; i < first + childCount[node]; i++)
+		{
+			appendTree(children[i], depth + 1, label, buf);
+		}
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Append a node with no children.
+	 *
+	 * @param kind
+	 *            kind of the node
+	 * @param value
+	 *            value of the node
+	 * @return index of the new node
+	 */
+	private int newNode(int kind, Object value)
+	{
+		if (size == kinds.length)
+		{
+			int capacity = 2 * size;
+			kinds = Arrays.copyOf(kinds, capacity);
+			values = Arrays.copyOf(values, capacity);
+			tokens = Arrays.copyOf(tokens, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			childCount = Arrays.copyOf(childCount, capacity);
+		}
+		int node = size++;
+		kinds[node] = kind;
+		values[node] = value;
+		tokens[node] = -1;
+		firstChild[node] = numChildren;
+		childCount[node] = 0;
+		return node;
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the number of nodes
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of child references of all composite nodes
+	 */
+	public int getNumChildren()
+	{
+		return numChildren;
+	}
+
+	/**
+	 * @param node
+	 *            node index
+	 * @return the kind of the node: {@link #TERMINAL} or {@link #COMPOSITE}
+	 */
+	public int getKind(int node)
+	{
+		return kinds[node];
+	}
+
+	/**
+	 * @param node
+	 *            node index
+	 * @return the value of the node
+	 */
+	public Object getValue(int node)
+	{
+		return values[node];
+	}
+
+	/**
+	 * @param node
+	 *            node index
+	 * @return the index of the node's token in the input, or -1
+	 */
+	public int getToken(int node)
+	{
+		return tokens[node];
+	}
+
+	/**
+	 * @param node
+	 *            node index
+	 * @return the number of children of the node
+	 */
+	public int getChildCount(int node)
+	{
+		return childCount[node];
+	}
+
+	/**
+	 * @param node
+	 *            node index
+	 * @param i
+	 *            child position, starting at 0
+	 * @return the index of the node's <code>i</code>th child
+	 */
+	public int getChild(int node, int i)
+	{
+		return children[firstChild[node] + i];
+	}
+}
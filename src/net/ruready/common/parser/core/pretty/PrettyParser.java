@@ -4,10 +4,12 @@
 package net.ruready.common.parser.core.pretty;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import net.ruready.common.parser.core.entity.Assembly;
 import net.ruready.common.parser.core.entity.Matches;
+import net.ruready.common.parser.core.manager.MatchEnumerator;
 import net.ruready.common.parser.core.manager.Parser;
 
 /**
@@ -19,6 +21,12 @@ import net.ruready.common.parser.core.manager.Parser;
  * a "pretty print" or a standard formatting of the parse. The tree indents composite
  * nodes (sequences, alternations and repetitions) and prints terminals as they appeared
  * in the input.
+ * <p>
+ * <code>parseTrees()</code> computes all parses before returning any of them. For
+ * ambiguous grammars, whose number of parses may grow exponentially with the input,
+ * <code>treeIterator()</code> and <code>parseTreeIterator()</code> compute the parses
+ * one at a time as they are requested, and <code>countParseTrees()</code> counts them
+ * without building any tree.
  * 
  * @author Steven J. Metsker
  * @version 1.0
@@ -29,13 +37,33 @@ public class PrettyParser
 
 	boolean showLabels = false;
 
+	// Arena that parse tree nodes are appended to; null = heap nodes
+	private final ParseTreeArena arena;
+
 	/**
 	 * Construct a pretty parser whose assemblers create a "pretty print" of input text.
 	 */
 	public PrettyParser(Parser parser)
+	{
+		this(parser, null);
+	}
+
+	/**
+	 * Construct a pretty parser whose assemblers append the parse tree nodes to an arena
+	 * instead of creating an object per node. The arena is cleared at the start of each
+	 * parse, so the trees of a parse are only valid until the next parse (and the trees
+	 * returned by <code>treeIterator()</code> only until the next tree is requested).
+	 * 
+	 * @param parser
+	 *            grammar
+	 * @param arena
+	 *            arena to append nodes to, or <code>null</code> for heap nodes
+	 */
+	public PrettyParser(Parser parser, ParseTreeArena arena)
 	{
 		this.parser = parser;
-		parser.accept(new PrettyVisitor());
+		this.arena = arena;
+		parser.accept(new PrettyVisitor(arena));
 	}
 
 	/*
@@ -43,6 +71,7 @@ public class PrettyParser
 	 */
 	protected Matches completeMatches(Assembly inAssembly)
 	{
+		clearArena();
 		Matches inState = new Matches();
 		inState.addAssembly(inAssembly);
 		Matches outState = parser.matchAndAssemble(inState);
@@ -90,6 +119,87 @@ public class PrettyParser
 		return outStrings;
 	}
 
+	/**
+	 * Returns an iterator over the parse trees of the given assembly. Each tree is built
+	 * when it is requested, so only one tree (and the partial parses leading to the next
+	 * one) is held in memory at a time. If this parser has an arena, the arena is
+	 * truncated when the enumeration backtracks, so a tree is only valid until the next
+	 * one is requested; calling <code>hasNext()</code> does not invalidate it.
+	 * 
+	 * @param inAssembly
+	 *            the assembly to parse
+	 * @return an iterator over the parse trees of the given assembly
+	 */
+	public Iterator<ComponentNode> treeIterator(Assembly inAssembly)
+	{
+		clearArena();
+		final Iterator<Assembly> matches = new MatchEnumerator(parser).setCheckpointable(
+				arena).completeMatches(inAssembly);
+		return new Iterator<ComponentNode>()
+		{
+			public boolean hasNext()
+			{
+				return matches.hasNext();
+			}
+
+			public ComponentNode next()
+			{
+				return (ComponentNode) matches.next().pop();
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator over the strings that show the order of each parse of the
+	 * given assembly, as <code>parseTrees()</code> returns them. Each string is computed
+	 * when it is requested.
+	 * 
+	 * @param inAssembly
+	 *            the assembly to parse
+	 * @return an iterator over strings that show the order of a parse of the given
+	 *         assembly
+	 */
+	public Iterator<String> parseTreeIterator(Assembly inAssembly)
+	{
+		final Iterator<ComponentNode> trees = treeIterator(inAssembly);
+		return new Iterator<String>()
+		{
+			public boolean hasNext()
+			{
+				return trees.hasNext();
+			}
+
+			public String next()
+			{
+				return treeString(trees.next());
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of parses of the given assembly. The parses are enumerated one
+	 * at a time without running the pretty assemblers, so no tree is built.
+	 * 
+	 * @param inAssembly
+	 *            the assembly to parse
+	 * @return the number of complete parses of the given assembly
+	 */
+	public long countParseTrees(Assembly inAssembly)
+	{
+		return new MatchEnumerator(parser).setAssemble(false).countCompleteMatches(
+				inAssembly);
+	}
+
 	/**
 	 * Sets the boolean that determines if this <code>PrettyParser
 	 * </code> object will
@@ -120,4 +230,25 @@ public class PrettyParser
 			return node.toStringWithoutLabels();
 		}
 	}
+
+	/**
+	 * Returns the arena that parse tree nodes are appended to.
+	 * 
+	 * @return the arena, or <code>null</code> if nodes are heap objects
+	 */
+	public ParseTreeArena getArena()
+	{
+		return arena;
+	}
+
+	/*
+	 * Clear the arena, if any, before a parse.
+	 */
+	private void clearArena()
+	{
+		if (arena != null)
+		{
+			arena.clear();
+		}
+	}
 }
@@ -64,7 +64,7 @@ public class PrettyVisitor implements ParserVisitor
 	/**
 	 * Assembler factory, provides restricted access to private assembler classes.
 	 */
-	private final AbstractAssemblerFactory factory = new PrettyAssemblerFactory();
+	private final AbstractAssemblerFactory factory;
 
 	/**
 	 * Keeps track of the list of sub-parsers visited before this parser visit is
@@ -74,6 +74,26 @@ public class PrettyVisitor implements ParserVisitor
 
 	// ========================= CONSTRUCTORS ==============================
 
+	/**
+	 * Create a visitor whose assemblers build a <code>CompositeNode</code> or
+	 * <code>TerminalNode</code> object per parse tree node.
+	 */
+	public PrettyVisitor()
+	{
+		this(null);
+	}
+
+	/**
+	 * Create a visitor whose assemblers append parse tree nodes to an arena.
+	 * 
+	 * @param arena
+	 *            arena to append nodes to, or <code>null</code> for heap nodes
+	 */
+	public PrettyVisitor(ParseTreeArena arena)
+	{
+		this.factory = new PrettyAssemblerFactory(arena);
+	}
+
 	// ========================= IMPLEMENTATION: ParserVisitor ================
 
 	/**
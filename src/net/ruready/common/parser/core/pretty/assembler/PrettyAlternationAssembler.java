@@ -6,8 +6,10 @@ package net.ruready.common.parser.core.pretty.assembler;
 import net.ruready.common.misc.Auxiliary;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.pretty.ArenaNode;
 import net.ruready.common.parser.core.pretty.ComponentNode;
 import net.ruready.common.parser.core.pretty.CompositeNode;
+import net.ruready.common.parser.core.pretty.ParseTreeArena;
 
 /**
  * Replace a {@link ComponentNode} object on the stack with a new composite that holds the
@@ -38,15 +40,19 @@ class PrettyAlternationAssembler extends Assembler implements Auxiliary
 {
 	protected String name;
 
+	// Arena to append nodes to; null = heap nodes
+	private final ParseTreeArena arena;
+
 	/**
 	 * Create an assembler that will replace a <code>ComponentNode
 	 * </code> object on the
 	 * stack with a new composite that holds the popped node as its only child and whose
 	 * name is as supplied here.
 	 */
-	public PrettyAlternationAssembler(String name)
+	public PrettyAlternationAssembler(String name, ParseTreeArena arena)
 	{
 		this.name = name;
+		this.arena = arena;
 	}
 
 	/**
@@ -59,6 +65,12 @@ class PrettyAlternationAssembler extends Assembler implements Auxiliary
 	@Override
 	public void workOn(Assembly a)
 	{
+		if (arena != null)
+		{
+			int[] child = { ((ArenaNode) a.pop()).getIndex() };
+			a.push(arena.node(arena.addComposite(name, child, 1)));
+			return;
+		}
 		CompositeNode newNode = new CompositeNode(name);
 		ComponentNode node = (ComponentNode) a.pop();
 		newNode.insert(node);
@@ -7,6 +7,7 @@ import net.ruready.common.exception.SystemException;
 import net.ruready.common.parser.core.assembler.AbstractAssemblerFactory;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.assembler.AssemblerIdentifier;
+import net.ruready.common.parser.core.pretty.ParseTreeArena;
 
 /**
  * A factory to instantiate assembler types for the parametric evaluation parser. This is
@@ -33,14 +34,32 @@ import net.ruready.common.parser.core.assembler.AssemblerIdentifier;
  */
 public class PrettyAssemblerFactory implements AbstractAssemblerFactory
 {
+	// ========================= FIELDS ====================================
+
+	// Arena that the assemblers append parse tree nodes to; null = heap nodes
+	private final ParseTreeArena arena;
+
 	// ========================= CONSTRUCTORS ==============================
 
 	/**
-	 * Initialize an arithmetic parser assembler factory.
+	 * Initialize a pretty assembler factory whose assemblers build heap nodes.
 	 */
 	public PrettyAssemblerFactory()
 	{
+		this(null);
+	}
 
+	/**
+	 * Initialize a pretty assembler factory.
+	 * 
+	 * @param arena
+	 *            arena that the assemblers append parse tree nodes to, or
+	 *            <code>null</code> to build a <code>CompositeNode</code> or
+	 *            <code>TerminalNode</code> object per node
+	 */
+	public PrettyAssemblerFactory(ParseTreeArena arena)
+	{
+		this.arena = arena;
 	}
 
 	// ========================= IMPLEMENTATION: AbstractColorFactory ==
@@ -58,7 +77,7 @@ public class PrettyAssemblerFactory implements AbstractAssemblerFactory
 			 */
 			case ALTERNATION:
 			{
-				return new PrettyAlternationAssembler((String) args[0]);
+				return new PrettyAlternationAssembler((String) args[0], arena);
 			}
 
 				/**
@@ -66,7 +85,7 @@ public class PrettyAssemblerFactory implements AbstractAssemblerFactory
 				 */
 			case EMPTY:
 			{
-				return new PrettyEmptyAssembler();
+				return new PrettyEmptyAssembler(arena);
 			}
 
 				/**
@@ -74,7 +93,7 @@ public class PrettyAssemblerFactory implements AbstractAssemblerFactory
 				 */
 			case REPETITION:
 			{
-				return new PrettyRepetitionAssembler((String) args[0], args[1]);
+				return new PrettyRepetitionAssembler((String) args[0], args[1], arena);
 			}
 
 				/**
@@ -82,7 +101,8 @@ public class PrettyAssemblerFactory implements AbstractAssemblerFactory
 				 */
 			case SEQUENCE:
 			{
-				return new PrettySequenceAssembler((String) args[0], (Integer) args[1]);
+				return new PrettySequenceAssembler((String) args[0], (Integer) args[1],
+						arena);
 			}
 
 				/**
@@ -90,7 +110,7 @@ public class PrettyAssemblerFactory implements AbstractAssemblerFactory
 				 */
 			case TERMINAL:
 			{
-				return new PrettyTerminalAssembler();
+				return new PrettyTerminalAssembler(arena);
 			}
 
 				/**
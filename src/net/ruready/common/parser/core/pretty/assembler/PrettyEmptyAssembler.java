@@ -6,6 +6,7 @@ package net.ruready.common.parser.core.pretty.assembler;
 import net.ruready.common.misc.Auxiliary;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.pretty.ParseTreeArena;
 import net.ruready.common.parser.core.pretty.TerminalNode;
 
 /**
@@ -34,6 +35,20 @@ import net.ruready.common.parser.core.pretty.TerminalNode;
  */
 class PrettyEmptyAssembler extends Assembler implements Auxiliary
 {
+	// Arena to append nodes to; null = heap nodes
+	private final ParseTreeArena arena;
+
+	/**
+	 * Create an assembler that pushes an "empty" terminal node.
+	 * 
+	 * @param arena
+	 *            arena to append nodes to, or <code>null</code> for heap nodes
+	 */
+	public PrettyEmptyAssembler(ParseTreeArena arena)
+	{
+		this.arena = arena;
+	}
+
 	/**
 	 * Push a <code>TerminalNode</code> that contains the word "empty" on the assembly's
 	 * stack.
@@ -44,6 +59,7 @@ class PrettyEmptyAssembler extends Assembler implements Auxiliary
 	@Override
 	public void workOn(Assembly a)
 	{
-		a.push(new TerminalNode("empty"));
+		a.push((arena == null) ? new TerminalNode("empty") : arena.node(arena
+				.addTerminal("empty", -1)));
 	}
 }
@@ -8,8 +8,10 @@ import java.util.List;
 import net.ruready.common.misc.Auxiliary;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.pretty.ArenaNode;
 import net.ruready.common.parser.core.pretty.ComponentNode;
 import net.ruready.common.parser.core.pretty.CompositeNode;
+import net.ruready.common.parser.core.pretty.ParseTreeArena;
 
 /**
  * Replace the nodes above a given "fence" object with a new composite that
@@ -24,15 +26,19 @@ class PrettyRepetitionAssembler extends Assembler implements Auxiliary
 
 	protected Object fence;
 
+	// Arena to append nodes to; null = heap nodes
+	private final ParseTreeArena arena;
+
 	/**
 	 * Construct an assembler that will replace the nodes above the supplied
 	 * "fence" object with a new composite that will hold the popped nodes as
 	 * its children.
 	 */
-	public PrettyRepetitionAssembler(String name, Object fence)
+	public PrettyRepetitionAssembler(String name, Object fence, ParseTreeArena arena)
 	{
 		this.name = name;
 		this.fence = fence;
+		this.arena = arena;
 	}
 
 	/**
@@ -45,8 +51,16 @@ class PrettyRepetitionAssembler extends Assembler implements Auxiliary
 	@Override
 	public void workOn(Assembly a)
 	{
-		CompositeNode newNode = new CompositeNode(name);
 		List<?> v = Assembler.elementsAbove(a, fence);
+		if (arena != null) {
+			int[] children = new int[v.size()];
+			for (int i = 0; i < children.length; i++) {
+				children[i] = ((ArenaNode) v.get(i)).getIndex();
+			}
+			a.push(arena.node(arena.addComposite(name, children, children.length)));
+			return;
+		}
+		CompositeNode newNode = new CompositeNode(name);
 		for (Object e : v) {
 			newNode.add((ComponentNode) e);
 		}
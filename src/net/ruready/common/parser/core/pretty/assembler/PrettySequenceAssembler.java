@@ -6,8 +6,10 @@ package net.ruready.common.parser.core.pretty.assembler;
 import net.ruready.common.misc.Auxiliary;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.pretty.ArenaNode;
 import net.ruready.common.parser.core.pretty.ComponentNode;
 import net.ruready.common.parser.core.pretty.CompositeNode;
+import net.ruready.common.parser.core.pretty.ParseTreeArena;
 
 /**
  * Replace a given number of nodes on the stack with a new composite that holds
@@ -22,14 +24,19 @@ class PrettySequenceAssembler extends Assembler implements Auxiliary
 
 	private final int numberNodes;
 
+	// Arena to append nodes to; null = heap nodes
+	private final ParseTreeArena arena;
+
 	/**
 	 * Construct an assembler that will replace a given number of nodes on the
 	 * stack with a new composite that holds the popped nodes as its children.
 	 */
-	public PrettySequenceAssembler(String name, Integer numberNodes)
+	public PrettySequenceAssembler(String name, Integer numberNodes,
+			ParseTreeArena arena)
 	{
 		this.name = name;
 		this.numberNodes = numberNodes;
+		this.arena = arena;
 	}
 
 	/**
@@ -42,6 +49,14 @@ class PrettySequenceAssembler extends Assembler implements Auxiliary
 	@Override
 	public void workOn(Assembly a)
 	{
+		if (arena != null) {
+			int[] children = new int[numberNodes];
+			for (int i = numberNodes - 1; i >= 0; i--) {
+				children[i] = ((ArenaNode) a.pop()).getIndex();
+			}
+			a.push(arena.node(arena.addComposite(name, children, numberNodes)));
+			return;
+		}
 		CompositeNode newNode = new CompositeNode(name);
 		for (int i = 0; i < numberNodes; i++) {
 			ComponentNode node = (ComponentNode) a.pop();
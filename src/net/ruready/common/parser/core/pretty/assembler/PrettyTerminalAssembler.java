@@ -6,6 +6,7 @@ package net.ruready.common.parser.core.pretty.assembler;
 import net.ruready.common.misc.Auxiliary;
 import net.ruready.common.parser.core.assembler.Assembler;
 import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.pretty.ParseTreeArena;
 import net.ruready.common.parser.core.pretty.TerminalNode;
 import net.ruready.common.parser.core.tokens.Token;
 
@@ -36,6 +37,20 @@ import net.ruready.common.parser.core.tokens.Token;
  */
 class PrettyTerminalAssembler extends Assembler implements Auxiliary
 {
+	// Arena to append nodes to; null = heap nodes
+	private final ParseTreeArena arena;
+
+	/**
+	 * Create an assembler that replaces a token with a terminal node.
+	 * 
+	 * @param arena
+	 *            arena to append nodes to, or <code>null</code> for heap nodes
+	 */
+	public PrettyTerminalAssembler(ParseTreeArena arena)
+	{
+		this.arena = arena;
+	}
+
 	/**
 	 * Replace a <code>Token</code> object on the stack with a <code>TerminalNode</code>
 	 * that holds the token's value.
@@ -47,6 +62,7 @@ class PrettyTerminalAssembler extends Assembler implements Auxiliary
 	public void workOn(Assembly a)
 	{
 		Token t = (Token) a.pop();
-		a.push(new TerminalNode(t.value()));
+		a.push((arena == null) ? new TerminalNode(t.value()) : arena.node(arena
+				.addTerminal(t.value(), a.elementsConsumed() - 1)));
 	}
 }
@@ -3,6 +3,8 @@
  *******************************************************/
 package net.ruready.common.parser.core.tokens;
 
+import net.ruready.common.parser.core.manager.Terminal;
+
 /**
  * A CaselessLiteral matches a specified String from an assembly, disregarding
  * case.
@@ -37,6 +39,23 @@ public class CaselessLiteral extends Literal
 		super(literal);
 	}
 
+	/**
+	 * A CaselessLiteral is interchangeable with any other CaselessLiteral with the same
+	 * settings that matches an equal token.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 * @see net.ruready.common.parser.core.manager.Terminal#isEquivalent(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	@Override
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other)
+				|| ((getClass() == CaselessLiteral.class) && hasSameSettings(other) && literal
+						.equals(((Literal) other).literal));
+	}
+
 	/**
 	 * Returns true if the literal this object equals an assembly's next
 	 * element, disregarding case.
@@ -49,6 +68,6 @@ public class CaselessLiteral extends Literal
 	@Override
 	protected boolean qualifies(Object o)
 	{
-		return literal.equalsIgnoreCase(o);
+		return (o == literal) || literal.equalsIgnoreCase(o);
 	}
 }
@@ -0,0 +1,256 @@
+/*******************************************************
+ * Source File: CharArrayPushbackReader.java
+ *******************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * A pushback reader that reads directly from a character array with an index, without
+ * synchronization or an underlying reader. Unreading the character that was just read
+ * (the common case in tokenizer states) simply moves the index back; any other unread
+ * character is kept in a small pushback stack that is read before the array.
+ * <p>
+ * The tokenizer scans the array directly while the pushback stack is empty; see
+ * {@link Tokenizer#setSource(char[], int, int)}.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Aug 27, 2007
+ */
+public class CharArrayPushbackReader extends PushbackReader
+{
+	/**
+	 * initial size of the pushback stack
+	 */
+	private static final int INITIAL_PUSHBACK_CAPACITY = 4;
+
+	/**
+	 * characters to read
+	 */
+	final char[] buf;
+
+	/**
+	 * index of the first character to read
+	 */
+	private final int start;
+
+	/**
+	 * index of the next character to read
+	 */
+	int pos;
+
+	/**
+	 * index after the last character to read
+	 */
+	final int limit;
+
+	/**
+	 * characters unread out of order; the top is read next
+	 */
+	private int[] pushback = new int[INITIAL_PUSHBACK_CAPACITY];
+
+	/**
+	 * number of characters on the pushback stack
+	 */
+	private int pushbackCount = 0;
+
+	/**
+	 * Constructs a reader of a range of a character array. The array is not copied and
+	 * must not be modified while it is being read.
+	 *
+	 * @param buf
+	 *            characters to read
+	 * @param offset
+	 *            index of the first character to read
+	 * @param length
+	 *            number of characters to read
+	 */
+	public CharArrayPushbackReader(char[] buf, int offset, int length)
+	{
+		super(new StringReader(""), 1);
+		if ((offset < 0) || (length < 0) || (offset + length > buf.length))
+		{
+			throw new IndexOutOfBoundsException("Bad range [" + offset + ","
+					+ (offset + length) + ") of an array of length " + buf.length);
+		}
+		this.buf = buf;
+		this.start = offset;
+		this.pos = offset;
+		this.limit = offset + length;
+	}
+
+	/**
+	 * Constructs a reader of an entire character array.
+	 *
+	 * @param buf
+	 *            characters to read
+	 */
+	public CharArrayPushbackReader(char[] buf)
+	{
+		this(buf, 0, buf.length);
+	}
+
+	/**
+	 * Read a single character.
+	 *
+	 * @return the character read, or -1 if the end of the array has been reached
+	 */
+	@Override
+	public int read()
+	{
+		if (pushbackCount > 0)
+		{
+			return pushback[--pushbackCount];
+		}
+		return (pos < limit) ? buf[pos++] : -1;
+	}
+
+	/**
+	 * Read characters into a portion of an array.
+	 *
+	 * @param cbuf
+	 *            destination buffer
+	 * @param off
+	 *            offset at which to start writing characters
+	 * @param len
+	 *            maximum number of characters to read
+	 * @return the number of characters read, or -1 if the end of the array has been
+	 *         reached
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len)
+	{
+		int n = 0;
+		while ((n < len) && (pushbackCount > 0))
+		{
+			cbuf[off + n++] = (char) pushback[--pushbackCount];
+		}
+		int fromArray = Math.min(len - n, limit - pos);
+		System.arraycopy(buf, pos, cbuf, off + n, fromArray);
+		pos += fromArray;
+		n += fromArray;
+		return ((n == 0) && (len > 0)) ? -1 : n;
+	}
+
+	/**
+	 * Push back a single character. A negative value (end of input) is ignored.
+	 *
+	 * @param c
+	 *            the character to push back
+	 */
+	@Override
+	public void unread(int c)
+	{
+		if (c < 0)
+		{
+			return;
+		}
+		if ((pushbackCount == 0) && (pos > start) && (buf[pos - 1] == (char) c))
+		{
+			pos--;
+			return;
+		}
+		if (pushbackCount == pushback.length)
+		{
+			pushback = Arrays.copyOf(pushback, 2 * pushbackCount);
+		}
+		pushback[pushbackCount++] = (char) c;
+	}
+
+	/**
+	 * Push back a portion of an array of characters, so that <code>cbuf[off]</code> is
+	 * read next.
+	 *
+	 * @param cbuf
+	 *            character array
+	 * @param off
+	 *            offset of the first character to push back
+	 * @param len
+	 *            number of characters to push back
+	 */
+	@Override
+	public void unread(char[] cbuf, int off, int len)
+	{
+		for (int i = off + len - 1; i >= off; i--)
+		{
+			unread(cbuf[i]);
+		}
+	}
+
+	/**
+	 * Push back an array of characters, so that <code>cbuf[0]</code> is read next.
+	 *
+	 * @param cbuf
+	 *            character array
+	 */
+	@Override
+	public void unread(char[] cbuf)
+	{
+		unread(cbuf, 0, cbuf.length);
+	}
+
+	/**
+	 * A character array reader never blocks.
+	 *
+	 * @return true
+	 */
+	@Override
+	public boolean ready()
+	{
+		return true;
+	}
+
+	/**
+	 * Skip characters.
+	 *
+	 * @param n
+	 *            the number of characters to skip
+	 * @return the number of characters actually skipped
+	 */
+	@Override
+	public long skip(long n)
+	{
+		long skipped = 0;
+		while ((skipped < n) && (read() >= 0))
+		{
+			skipped++;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Closing a character array reader has no effect.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException
+	{
+
+	}
+
+	/**
+	 * Return true if out-of-order unread characters are waiting to be read, in which case
+	 * the array cannot be scanned directly.
+	 *
+	 * @return true if the pushback stack is not empty
+	 */
+	boolean hasPushback()
+	{
+		return pushbackCount > 0;
+	}
+
+	/**
+	 * Return the index of the next character to read, counting characters that were
+	 * unread as not read yet.
+	 *
+	 * @return array index of the next character to read
+	 */
+	int position()
+	{
+		return pos - pushbackCount;
+	}
+}
@@ -0,0 +1,401 @@
+/*****************************************************************************************
+ * Source File: IncrementalParser.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ruready.common.exception.SystemException;
+import net.ruready.common.parser.core.entity.Match;
+import net.ruready.common.parser.core.entity.ParseContext;
+import net.ruready.common.parser.core.manager.Parser;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Re-parses a text after each edit, reusing as much of the previous parse as it can.
+ * Suitable for editors that re-parse their input on every keystroke.
+ * <p>
+ * The parser keeps the text, its tokens and the character index at which each token
+ * ends. An edit re-tokenizes the text from the last token that ends well before the
+ * edited range, and stops as soon as the new tokenization reaches a token boundary of
+ * the old text past the edited range; the remaining tokens are reused. Parses run in
+ * packrat mode with a retained memo table: the entries of sub-parses that examined only
+ * unchanged tokens before the edit are reused, and the rest of the input is parsed
+ * again. Edits that replace more than a given fraction of the text are parsed from
+ * scratch.
+ *
+ * <pre>
+ * IncrementalParser editor = new IncrementalParser(grammar);
+ * Match m = editor.parse(&quot;x + 2 * y&quot;);
+ * m = editor.edit(9, 9, &quot; - 1&quot;); // &quot;x + 2 * y - 1&quot;
+ * </pre>
+ *
+ * Tokenizer states must not look more than <code>LOOKAHEAD</code> characters past the
+ * end of the token they return. The grammar is frozen by the constructor. The assembly
+ * of a returned match reads the parser's current tokens, so it is only valid until the
+ * next edit. An incremental parser is not thread-safe.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class IncrementalParser
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(IncrementalParser.class);
+
+	/**
+	 * The maximum number of characters past the end of a token that a tokenizer state
+	 * may read before returning the token.
+	 */
+	public static final int LOOKAHEAD = 8;
+
+	/**
+	 * Default largest fraction of the text that an edit may replace and still be parsed
+	 * incrementally.
+	 */
+	public static final double DEFAULT_MAX_EDIT_FRACTION = 0.5;
+
+	// ========================= FIELDS ====================================
+
+	// Grammar
+	private final Parser parser;
+
+	// Tokenizes the text
+	private final Tokenizer tokenizer;
+
+	// Packrat context whose memo table is kept between parses
+	private final ParseContext context = new ParseContext().setPackrat(true)
+			.setRetainMemo(true);
+
+	// Tokens of the current text; shared by all assemblies of this parser
+	private final EditableTokenString tokenString = new EditableTokenString();
+
+	// Current text
+	private String text = "";
+
+	// Character index just past each token of the current text
+	private int[] ends = new int[0];
+
+	// Largest fraction of the text that an edit may replace and be parsed incrementally
+	private double maxEditFraction = DEFAULT_MAX_EDIT_FRACTION;
+
+	// Number of parses from scratch
+	private long fullParses = 0;
+
+	// Number of incremental parses
+	private long incrementalParses = 0;
+
+	// Number of tokens scanned by the last parse
+	private int tokensScanned = 0;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create an incremental parser that uses a default tokenizer.
+	 *
+	 * @param parser
+	 *            grammar; frozen by this constructor
+	 */
+	public IncrementalParser(Parser parser)
+	{
+		this(parser, new Tokenizer());
+	}
+
+	/**
+	 * Create an incremental parser.
+	 *
+	 * @param parser
+	 *            grammar; frozen by this constructor
+	 * @param tokenizer
+	 *            tokenizer to use; owned by this object from now on
+	 */
+	public IncrementalParser(Parser parser, Tokenizer tokenizer)
+	{
+		super();
+		this.parser = parser.freeze();
+		this.tokenizer = tokenizer;
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Parse a new text from scratch.
+	 *
+	 * @param newText
+	 *            text to parse
+	 * @return an assembly with the greatest possible number of elements consumed by the
+	 *         grammar
+	 */
+	public Match parse(String newText)
+	{
+		List<Token> tokens = new ArrayList<Token>();
+		List<Integer> tokenEnds = new ArrayList<Integer>();
+		scan(newText.toCharArray(), 0, tokens, tokenEnds, null, 0, 0);
+		text = newText;
+		tokenString.setTokens(tokens.toArray(new Token[tokens.size()]));
+		ends = new int[tokenEnds.size()];
+		for (int i = 0; i < ends.length; i++)
+		{
+			ends[i] = tokenEnds.get(i);
+		}
+		tokensScanned = tokens.size();
+		context.clearMemo();
+		fullParses++;
+		return parser.bestMatch(new TokenAssembly(tokenString), context);
+	}
+
+	/**
+	 * Replace a range of the text and re-parse it.
+	 *
+	 * @param start
+	 *            index of the first character to replace
+	 * @param end
+	 *            index after the last character to replace
+	 * @param replacement
+	 *            the characters to replace the range with
+	 * @return an assembly with the greatest possible number of elements consumed by the
+	 *         grammar
+	 */
+	public Match edit(int start, int end, String replacement)
+	{
+		if ((start < 0) || (end < start) || (end > text.length()))
+		{
+			throw new SystemException("Bad edit range [" + start + "," + end
+					+ ") of a text of length " + text.length());
+		}
+		String newText = text.substring(0, start) + replacement + text.substring(end);
+		int changed = Math.max(end - start, replacement.length());
+		if (changed > maxEditFraction * Math.max(text.length(), newText.length()))
+		{
+			return parse(newText);
+		}
+
+		// Keep the tokens that end too far before the edit to have looked into it
+		int n = ends.length;
+		int keep = 0;
+		while ((keep < n) && (ends[keep] + LOOKAHEAD <= start))
+		{
+			keep++;
+		}
+		int from = (keep == 0) ? 0 : ends[keep - 1];
+
+		// Re-tokenize until a token ends at an old token boundary past the edit
+		int delta = replacement.length() - (end - start);
+		List<Token> scanned = new ArrayList<Token>();
+		List<Integer> scannedEnds = new ArrayList<Integer>();
+		int tail = scan(newText.toCharArray(), from, scanned, scannedEnds, ends, end,
+				delta);
+
+		// Splice the kept, scanned and reused tokens
+		Token[] oldTokens = tokenString.getTokens();
+		int length = keep + scanned.size() + (n - tail);
+		Token[] tokens = new Token[length];
+		int[] newEnds = new int[length];
+		System.arraycopy(oldTokens, 0, tokens, 0, keep);
+		System.arraycopy(ends, 0, newEnds, 0, keep);
+		for (int i = 0; i < scanned.size(); i++)
+		{
+			tokens[keep + i] = scanned.get(i);
+			newEnds[keep + i] = scannedEnds.get(i);
+		}
+		for (int i = tail; i < n; i++)
+		{
+			tokens[i - tail + keep + scanned.size()] = oldTokens[i];
+			newEnds[i - tail + keep + scanned.size()] = ends[i] + delta;
+		}
+
+		// Drop the memoized results that depend on changed tokens
+		int firstChanged = keep;
+		int common = Math.min(n, length);
+		while ((firstChanged < common) && tokens[firstChanged].equals(oldTokens[firstChanged]))
+		{
+			firstChanged++;
+		}
+		if ((firstChanged < common) || (n != length))
+		{
+			context.invalidateMemo(firstChanged);
+		}
+
+		text = newText;
+		tokenString.setTokens(tokens);
+		ends = newEnds;
+		tokensScanned = scanned.size();
+		incrementalParses++;
+		return parser.bestMatch(new TokenAssembly(tokenString), context);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Tokenize characters from a token boundary on, until the end of the characters or,
+	 * if old token boundaries are given, until a token ends at an old boundary at or past
+	 * an old character index.
+	 *
+	 * @param chars
+	 *            characters to tokenize
+	 * @param from
+	 *            index of the first character to tokenize
+	 * @param tokens
+	 *            list to add the tokens to
+	 * @param tokenEnds
+	 *            list to add the character index past each token to
+	 * @param oldEnds
+	 *            old token boundaries, or <code>null</code> to tokenize to the end
+	 * @param oldEnd
+	 *            old character index after which the old text is unchanged
+	 * @param delta
+	 *            new character index minus old character index past the edit
+	 * @return index of the first old token that follows the new tokens, or the number of
+	 *         old tokens if none does
+	 */
+	private int scan(char[] chars, int from, List<Token> tokens, List<Integer> tokenEnds,
+			int[] oldEnds, int oldEnd, int delta)
+	{
+		int n = (oldEnds == null) ? 0 : oldEnds.length;
+		int k = 0;
+		while ((k < n) && (oldEnds[k] < oldEnd))
+		{
+			k++;
+		}
+		tokenizer.setSource(chars, from, chars.length - from);
+		try
+		{
+			while (true)
+			{
+				Token token = tokenizer.nextToken();
+				if (token.ttype() == Token.TT_EOF)
+				{
+					return n;
+				}
+				int position = tokenizer.getPosition();
+				tokens.add(token);
+				tokenEnds.add(position);
+				while ((k < n) && (oldEnds[k] < position - delta))
+				{
+					k++;
+				}
+				if ((k < n) && (oldEnds[k] == position - delta))
+				{
+					return k + 1;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			throw new SystemException("Problem tokenizing text: " + e);
+		}
+	}
+
+	/**
+	 * A token string whose tokens are replaced after each edit, so that the assemblies
+	 * held by the retained memo table read the current tokens.
+	 */
+	private static final class EditableTokenString extends TokenString
+	{
+		/**
+		 * Create an empty token string.
+		 */
+		public EditableTokenString()
+		{
+			super(new Token[0]);
+		}
+
+		/**
+		 * @return the current tokens
+		 */
+		public Token[] getTokens()
+		{
+			return tokens;
+		}
+
+		/**
+		 * @param tokens
+		 *            the new tokens
+		 */
+		public void setTokens(Token[] tokens)
+		{
+			this.tokens = tokens;
+		}
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
+	/**
+	 * @return the current text
+	 */
+	public String getText()
+	{
+		return text;
+	}
+
+	/**
+	 * @return the number of tokens of the current text
+	 */
+	public int getTokenCount()
+	{
+		return ends.length;
+	}
+
+	/**
+	 * @return the context of the parses; may be used to set a budget or to track
+	 *         failures, but must stay in packrat mode with a retained memo table
+	 */
+	public ParseContext getContext()
+	{
+		return context;
+	}
+
+	/**
+	 * @return the largest fraction of the text that an edit may replace and still be
+	 *         parsed incrementally
+	 */
+	public double getMaxEditFraction()
+	{
+		return maxEditFraction;
+	}
+
+	/**
+	 * @param maxEditFraction
+	 *            the largest fraction of the text that an edit may replace and still be
+	 *            parsed incrementally
+	 * @return this object, for chaining
+	 */
+	public IncrementalParser setMaxEditFraction(double maxEditFraction)
+	{
+		this.maxEditFraction = maxEditFraction;
+		return this;
+	}
+
+	/**
+	 * @return the number of parses from scratch
+	 */
+	public long getFullParses()
+	{
+		return fullParses;
+	}
+
+	/**
+	 * @return the number of incremental parses
+	 */
+	public long getIncrementalParses()
+	{
+		return incrementalParses;
+	}
+
+	/**
+	 * @return the number of tokens scanned by the last parse
+	 */
+	public int getTokensScanned()
+	{
+		return tokensScanned;
+	}
+}
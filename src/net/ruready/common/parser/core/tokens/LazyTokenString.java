@@ -0,0 +1,174 @@
+/*******************************************************
+ * Source File: LazyTokenString.java
+ *******************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A TokenString that pulls tokens from its tokenizer on demand, as assemblies advance
+ * through it, instead of tokenizing the entire input up front. The token buffer is
+ * shared by all assemblies (and their clones) that consume this token string, so each
+ * token is read once, and the buffer only grows up to the furthest position any
+ * assembly has looked at. A parse that fails early therefore stops tokenizing early.
+ * <p>
+ * Calling <code>length()</code> (e.g. to print an assembly's remainder) drains the
+ * tokenizer.
+ * <p>
+ * Unlike a TokenString, a LazyTokenString changes state as it is read, so it may not be
+ * shared between threads until it has been drained.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Aug 27, 2007
+ */
+public class LazyTokenString extends TokenString
+{
+	/**
+	 * initial size of the token buffer
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * the tokenizer to read tokens from; null once it is exhausted
+	 */
+	private Tokenizer tokenizer;
+
+	/**
+	 * number of tokens read so far
+	 */
+	private int count = 0;
+
+	/**
+	 * Constructs a tokenString that will read tokens from the supplied tokenizer as they
+	 * are needed.
+	 *
+	 * @param Tokenizer
+	 *            the tokenizer that will produces the tokens
+	 */
+	public LazyTokenString(Tokenizer t)
+	{
+		super(new Token[INITIAL_CAPACITY]);
+		this.tokenizer = t;
+	}
+
+	/**
+	 * Constructs a tokenString that will read tokens from the supplied string as they are
+	 * needed, using a default tokenizer.
+	 *
+	 * @param string
+	 *            the string to tokenize
+	 */
+	public LazyTokenString(String s)
+	{
+		this(new Tokenizer(s));
+	}
+
+	/**
+	 * Returns the number of tokens in this tokenString. Reads all remaining tokens.
+	 *
+	 * @return the number of tokens in this tokenString
+	 */
+	@Override
+	public int length()
+	{
+		while (read())
+		{
+			// Keep reading until the tokenizer is exhausted
+		}
+		return count;
+	}
+
+	/**
+	 * Returns true if this tokenString has a token at the specified index. Reads tokens
+	 * up to that index, but no further.
+	 *
+	 * @param index
+	 *            the index of the desired token
+	 * @return true, if there is a token at the specified index
+	 */
+	@Override
+	public boolean hasTokenAt(int i)
+	{
+		while ((i >= count) && read())
+		{
+			// Keep reading until the desired token is in the buffer
+		}
+		return i < count;
+	}
+
+	/**
+	 * Returns the token at the specified index, reading tokens up to that index if
+	 * necessary.
+	 *
+	 * @param index
+	 *            the index of the desired token
+	 * @return token the token at the specified index
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                if there is no token at the specified index
+	 */
+	@Override
+	public Token tokenAt(int i)
+	{
+		if (!hasTokenAt(i))
+		{
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+		return tokens[i];
+	}
+
+	/**
+	 * Returns the number of tokens read from the tokenizer so far.
+	 *
+	 * @return the number of tokens read so far
+	 */
+	public int tokensRead()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns true if the tokenizer has been exhausted.
+	 *
+	 * @return true, if all tokens have been read
+	 */
+	public boolean isExhausted()
+	{
+		return tokenizer == null;
+	}
+
+	/**
+	 * Read the next token into the buffer.
+	 *
+	 * @return true, if a token was read; false, if the tokenizer is exhausted
+	 */
+	private boolean read()
+	{
+		if (tokenizer == null)
+		{
+			return false;
+		}
+		Token tok;
+		try
+		{
+			tok = tokenizer.nextToken();
+		}
+		catch (IOException e)
+		{
+			throw new InternalError("Problem tokenizing string: " + e);
+		}
+		if (tok.ttype() == Token.TT_EOF)
+		{
+			// Release the tokenizer and trim the buffer
+			tokenizer = null;
+			tokens = Arrays.copyOf(tokens, count);
+			return false;
+		}
+		if (count == tokens.length)
+		{
+			tokens = Arrays.copyOf(tokens, 2 * count);
+		}
+		tokens[count++] = tok;
+		return true;
+	}
+}
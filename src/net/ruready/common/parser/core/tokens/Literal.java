@@ -37,7 +37,36 @@ public class Literal extends Terminal
 	 */
 	public Literal(String s)
 	{
-		literal = new Token(s);
+		literal = TokenTable.intern(new Token(s));
+	}
+
+	/**
+	 * A Literal is interchangeable with any other Literal with the same
+	 * settings that matches an equal token.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 * @see net.ruready.common.parser.core.manager.Terminal#isEquivalent(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	@Override
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other)
+				|| ((getClass() == Literal.class) && hasSameSettings(other) && literal
+						.equals(((Literal) other).literal));
+	}
+
+	/**
+	 * A literal accepts only its token (disregarding case, for subclasses).
+	 * 
+	 * @return the literal token
+	 * @see net.ruready.common.parser.core.manager.Terminal#getSingleElement()
+	 */
+	@Override
+	protected Object getSingleElement()
+	{
+		return literal;
 	}
 
 	/**
@@ -50,6 +79,15 @@ public class Literal extends Terminal
 	@Override
 	protected boolean qualifies(Object o)
 	{
+		if (o == literal)
+		{
+			return true;
+		}
+		if (literal.canonical && (o instanceof Token) && ((Token) o).canonical)
+		{
+			// Distinct canonical tokens are never equal
+			return false;
+		}
 		return literal.equals(o);
 	}
 
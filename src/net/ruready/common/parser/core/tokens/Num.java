@@ -3,10 +3,10 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.tokens;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.manager.RandomInputGenerator;
 import net.ruready.common.parser.core.manager.Terminal;
 
 /*
@@ -25,6 +25,32 @@ import net.ruready.common.parser.core.manager.Terminal;
 public class Num extends Terminal
 {
 
+	/**
+	 * A Num is interchangeable with any other Num with the same settings.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 * @see net.ruready.common.parser.core.manager.Terminal#isEquivalent(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	@Override
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other) || ((getClass() == Num.class) && hasSameSettings(other));
+	}
+
+	/**
+	 * A number terminal accepts only number tokens.
+	 * 
+	 * @return <code>Token.TT_NUMBER</code>
+	 * @see net.ruready.common.parser.core.manager.Terminal#getElementType()
+	 */
+	@Override
+	protected Object getElementType()
+	{
+		return Token.TT_NUMBER;
+	}
+
 	/**
 	 * Returns true if an assembly's next element is a number.
 	 * 
@@ -40,20 +66,18 @@ public class Num extends Terminal
 	}
 
 	/**
-	 * Create a set with one random number (between 0 and 100).
+	 * Emit one random number (between 0 and 100).
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	public List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		double d = Math.floor(1000.0 * Math.random()) / 10;
-		List<String> v = new ArrayList<String>();
-		v.add(Double.toString(d));
-		return v;
+		double d = generator.getRandom().nextInt(1000) / 10.0;
+		generator.emit(Double.toString(d));
 	}
 
 	/**
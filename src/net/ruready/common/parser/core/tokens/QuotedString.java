@@ -3,10 +3,11 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.tokens;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.manager.RandomInputGenerator;
 import net.ruready.common.parser.core.manager.Terminal;
 
 /*
@@ -23,6 +24,34 @@ import net.ruready.common.parser.core.manager.Terminal;
  */
 public class QuotedString extends Terminal
 {
+	/**
+	 * A QuotedString is interchangeable with any other QuotedString with the same
+	 * settings.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 * @see net.ruready.common.parser.core.manager.Terminal#isEquivalent(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	@Override
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other)
+				|| ((getClass() == QuotedString.class) && hasSameSettings(other));
+	}
+
+	/**
+	 * A quoted string terminal accepts only quoted string tokens.
+	 * 
+	 * @return <code>Token.TT_QUOTED</code>
+	 * @see net.ruready.common.parser.core.manager.Terminal#getElementType()
+	 */
+	@Override
+	protected Object getElementType()
+	{
+		return Token.TT_QUOTED;
+	}
+
 	/**
 	 * Returns true if an assembly's next element is a quoted string.
 	 * 
@@ -39,17 +68,18 @@ public class QuotedString extends Terminal
 	}
 
 	/**
-	 * Create a set with one random quoted string (with 2 to 6 characters).
+	 * Emit one random quoted string (with 2 to 6 characters).
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	public List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		int n = (int) (5.0 * Math.random());
+		Random random = generator.getRandom();
+		int n = random.nextInt(5);
 
 		char[] letters = new char[n + 2];
 		letters[0] = '"';
@@ -57,13 +87,11 @@ public class QuotedString extends Terminal
 
 		for (int i = 0; i < n; i++)
 		{
-			int c = (int) (26.0 * Math.random()) + 'a';
+			int c = random.nextInt(26) + 'a';
 			letters[i + 1] = (char) c;
 		}
 
-		List<String> v = new ArrayList<String>();
-		v.add(new String(letters));
-		return v;
+		generator.emit(new String(letters));
 	}
 
 	/**
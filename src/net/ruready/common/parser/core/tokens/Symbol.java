@@ -53,7 +53,36 @@ public class Symbol extends Terminal
 	 */
 	public Symbol(String s)
 	{
-		symbol = new Token(Token.TT_SYMBOL, s, 0);
+		symbol = TokenTable.intern(new Token(Token.TT_SYMBOL, s, 0));
+	}
+
+	/**
+	 * A Symbol is interchangeable with any other Symbol with the same
+	 * settings that matches an equal token.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 * @see net.ruready.common.parser.core.manager.Terminal#isEquivalent(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	@Override
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other)
+				|| ((getClass() == Symbol.class) && hasSameSettings(other) && symbol
+						.equals(((Symbol) other).symbol));
+	}
+
+	/**
+	 * A symbol accepts only its token.
+	 * 
+	 * @return the symbol token
+	 * @see net.ruready.common.parser.core.manager.Terminal#getSingleElement()
+	 */
+	@Override
+	protected Object getSingleElement()
+	{
+		return symbol;
 	}
 
 	/**
@@ -67,6 +96,15 @@ public class Symbol extends Terminal
 	@Override
 	protected boolean qualifies(Object o)
 	{
+		if (o == symbol)
+		{
+			return true;
+		}
+		if (symbol.canonical && (o instanceof Token) && ((Token) o).canonical)
+		{
+			// Distinct canonical tokens are never equal
+			return false;
+		}
 		return symbol.equals(o);
 	}
 
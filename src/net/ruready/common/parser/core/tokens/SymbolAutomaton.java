@@ -0,0 +1,327 @@
+/*******************************************************
+ * Source File: SymbolAutomaton.java
+ *******************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A symbol tree compiled into a deterministic automaton. Each node of a
+ * <code>SymbolRootNode</code> tree becomes a numbered state; transitions on ASCII
+ * characters are looked up in a dense array, and transitions on other characters are
+ * binary-searched in a sorted array. Reading a symbol therefore costs one or two array
+ * look-ups per character, regardless of the number of symbols in the tree.
+ * <p>
+ * Reads the same symbols from a reader, and unreads the same characters, as
+ * <code>SymbolRootNode</code>'s original tree walk. The automaton is a snapshot of the
+ * tree; the root node rebuilds it after symbols are added.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Aug 27, 2007
+ */
+final class SymbolAutomaton
+{
+	/**
+	 * number of characters that have dense transition arrays
+	 */
+	private static final int ASCII_SIZE = 128;
+
+	/**
+	 * state of each first character; 0 if the root has no child for that character
+	 */
+	private final int[] firstStates;
+
+	/**
+	 * the character of each state
+	 */
+	private final char[] chars;
+
+	/**
+	 * the parent state of each state; 0 for the root's children
+	 */
+	private final int[] parents;
+
+	/**
+	 * the symbol of each valid state; null for states that are only symbol prefixes
+	 */
+	private final String[] symbols;
+
+	/**
+	 * dense ASCII transitions of each state; null if a state has no ASCII children
+	 */
+	private final int[][] asciiNext;
+
+	/**
+	 * sorted non-ASCII transition characters of each state; null if there are none
+	 */
+	private final char[][] otherChars;
+
+	/**
+	 * target states of <code>otherChars</code>
+	 */
+	private final int[][] otherNext;
+
+	/**
+	 * Compile a symbol tree. State 0 stands for "no state", so that empty slots of the
+	 * dense arrays mean "no transition".
+	 *
+	 * @param root
+	 *            root of the symbol tree
+	 */
+	SymbolAutomaton(SymbolRootNode root)
+	{
+		// Number the nodes breadth-first
+		List<SymbolNode> nodes = new ArrayList<SymbolNode>();
+		List<Integer> parentList = new ArrayList<Integer>();
+		nodes.add(null);
+		parentList.add(0);
+		firstStates = new int[root.children.length];
+		for (int i = 0; i < root.children.length; i++)
+		{
+			if (root.children[i] != null)
+			{
+				firstStates[i] = nodes.size();
+				nodes.add(root.children[i]);
+				parentList.add(0);
+			}
+		}
+		for (int k = 1; k < nodes.size(); k++)
+		{
+			for (SymbolNode child : nodes.get(k).children)
+			{
+				nodes.add(child);
+				parentList.add(k);
+			}
+		}
+
+		int n = nodes.size();
+		chars = new char[n];
+		parents = new int[n];
+		symbols = new String[n];
+		asciiNext = new int[n][];
+		otherChars = new char[n][];
+		otherNext = new int[n][];
+		int[] states = new int[n];
+		for (int k = 1; k < n; k++)
+		{
+			SymbolNode node = nodes.get(k);
+			chars[k] = node.myChar;
+			parents[k] = parentList.get(k);
+			symbols[k] = node.valid ? node.ancestry() : null;
+		}
+
+		// Children of state k occupy a contiguous range of the breadth-first numbering
+		int next = 1 + countNonNull(root.children);
+		for (int k = 1; k < n; k++)
+		{
+			List<SymbolNode> children = nodes.get(k).children;
+			int numChildren = children.size();
+			for (int j = 0; j < numChildren; j++)
+			{
+				states[j] = next + j;
+			}
+			compileTransitions(k, children, states);
+			next += numChildren;
+		}
+	}
+
+	/**
+	 * Return a symbol string from a reader.
+	 *
+	 * @param r
+	 *            a reader to read from
+	 * @param first
+	 *            the first character of this symbol, already read from the reader
+	 * @return a symbol string from a reader
+	 * @throws IOException
+	 */
+	String nextSymbol(PushbackReader r, int first) throws IOException
+	{
+		if ((first < 0) || (first >= firstStates.length) || (firstStates[first] == 0))
+		{
+			return String.valueOf((char) first);
+		}
+		int state = firstStates[first];
+		int lastValid = state;
+		int c;
+		while (true)
+		{
+			c = r.read();
+			int target = transition(state, c);
+			if (target == 0)
+			{
+				break;
+			}
+			state = target;
+			if (symbols[state] != null)
+			{
+				lastValid = state;
+			}
+		}
+
+		// Unread the characters read past the longest valid symbol, last one first
+		if (c >= 0)
+		{
+			r.unread(c);
+		}
+		for (int s = state; s != lastValid; s = parents[s])
+		{
+			r.unread(chars[s]);
+		}
+		return symbols[lastValid];
+	}
+
+	/**
+	 * Return the longest symbol at a position of a character array.
+	 *
+	 * @param buf
+	 *            characters
+	 * @param pos
+	 *            index of the symbol's first character
+	 * @param limit
+	 *            index after the last character
+	 * @return the longest symbol starting at <code>pos</code>; at least the character
+	 *         at <code>pos</code>
+	 */
+	String nextSymbol(char[] buf, int pos, int limit)
+	{
+		char first = buf[pos];
+		if ((first >= firstStates.length) || (firstStates[first] == 0))
+		{
+			return String.valueOf(first);
+		}
+		int state = firstStates[first];
+		int lastValid = state;
+		for (int i = pos + 1; i < limit; i++)
+		{
+			state = transition(state, buf[i]);
+			if (state == 0)
+			{
+				break;
+			}
+			if (symbols[state] != null)
+			{
+				lastValid = state;
+			}
+		}
+		return symbols[lastValid];
+	}
+
+	/**
+	 * Return the state reached from a state on a character.
+	 *
+	 * @param state
+	 *            current state
+	 * @param c
+	 *            character; negative at the end of the input
+	 * @return next state, or 0 if there is no transition
+	 */
+	private int transition(int state, int c)
+	{
+		if (c < 0)
+		{
+			return 0;
+		}
+		if (c < ASCII_SIZE)
+		{
+			int[] next = asciiNext[state];
+			return (next == null) ? 0 : next[c];
+		}
+		char[] keys = otherChars[state];
+		if (keys == null)
+		{
+			return 0;
+		}
+		int index = Arrays.binarySearch(keys, (char) c);
+		return (index < 0) ? 0 : otherNext[state][index];
+	}
+
+	/**
+	 * Build the transition arrays of a state.
+	 *
+	 * @param state
+	 *            state number
+	 * @param children
+	 *            the state's child nodes
+	 * @param childStates
+	 *            the state numbers of the children
+	 */
+	private void compileTransitions(int state, List<SymbolNode> children, int[] childStates)
+	{
+		int numChildren = children.size();
+		int numOther = 0;
+		for (int j = 0; j < numChildren; j++)
+		{
+			char c = children.get(j).myChar;
+			if (c < ASCII_SIZE)
+			{
+				if (asciiNext[state] == null)
+				{
+					asciiNext[state] = new int[ASCII_SIZE];
+				}
+				asciiNext[state][c] = childStates[j];
+			}
+			else
+			{
+				numOther++;
+			}
+		}
+		if (numOther == 0)
+		{
+			return;
+		}
+
+		// Sort the non-ASCII children by character
+		final char[] keys = new char[numOther];
+		Integer[] order = new Integer[numOther];
+		int[] targets = new int[numOther];
+		for (int j = 0, k = 0; j < numChildren; j++)
+		{
+			char c = children.get(j).myChar;
+			if (c >= ASCII_SIZE)
+			{
+				keys[k] = c;
+				targets[k] = childStates[j];
+				order[k] = k;
+				k++;
+			}
+		}
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				return keys[a] - keys[b];
+			}
+		});
+		otherChars[state] = new char[numOther];
+		otherNext[state] = new int[numOther];
+		for (int k = 0; k < numOther; k++)
+		{
+			otherChars[state][k] = keys[order[k]];
+			otherNext[state][k] = targets[order[k]];
+		}
+	}
+
+	/**
+	 * @param array
+	 *            an array
+	 * @return the number of non-null elements of the array
+	 */
+	private static int countNonNull(Object[] array)
+	{
+		int count = 0;
+		for (Object o : array)
+		{
+			if (o != null)
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+}
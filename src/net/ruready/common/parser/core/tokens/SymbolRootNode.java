@@ -29,6 +29,12 @@ public class SymbolRootNode extends SymbolNode
 	@SuppressWarnings("hiding")
 	protected SymbolNode[] children = new SymbolNode[256];
 
+	/**
+	 * This tree compiled into an automaton; null until a symbol is read after the tree
+	 * has changed
+	 */
+	private SymbolAutomaton automaton;
+
 	/**
 	 * Create and initialize a root node.
 	 */
@@ -50,6 +56,7 @@ public class SymbolRootNode extends SymbolNode
 		SymbolNode n = ensureChildWithChar(c);
 		n.addDescendantLine(s.substring(1));
 		findDescendant(s).setValid(true);
+		automaton = null;
 	}
 
 	/**
@@ -101,9 +108,39 @@ public class SymbolRootNode extends SymbolNode
 	 */
 	public String nextSymbol(PushbackReader r, int first) throws IOException
 	{
-		SymbolNode n1 = findChildWithChar((char) first);
-		SymbolNode n2 = n1.deepestRead(r);
-		SymbolNode n3 = n2.unreadToValid(r);
-		return n3.ancestry();
+		return automaton().nextSymbol(r, first);
+	}
+
+	/**
+	 * Return the longest symbol at a position of a character array.
+	 * 
+	 * @param buf
+	 *            characters
+	 * @param pos
+	 *            index of the symbol's first character
+	 * @param limit
+	 *            index after the last character
+	 * @return the longest symbol starting at <code>pos</code>
+	 */
+	public String nextSymbol(char[] buf, int pos, int limit)
+	{
+		return automaton().nextSymbol(buf, pos, limit);
+	}
+
+	/**
+	 * Return the automaton compiled from this tree, compiling it if the tree has changed
+	 * since it was last compiled.
+	 * 
+	 * @return symbol automaton
+	 */
+	private SymbolAutomaton automaton()
+	{
+		SymbolAutomaton a = automaton;
+		if (a == null)
+		{
+			a = new SymbolAutomaton(this);
+			automaton = a;
+		}
+		return a;
 	}
 }
@@ -122,7 +122,7 @@ public class SymbolState extends TokenizerState
 	public Token nextToken(PushbackReader r, int first, Tokenizer t) throws IOException
 	{
 		String s = symbols.nextSymbol(r, first);
-		return new Token(Token.TT_SYMBOL, s, 0);
+		return TokenTable.canonical(new Token(Token.TT_SYMBOL, s, 0));
 	}
 
 	// ========================= METHODS ===================================
@@ -136,6 +136,23 @@ public class SymbolState extends TokenizerState
 	public void add(String s)
 	{
 		symbols.add(s);
+		TokenTable.intern(new Token(Token.TT_SYMBOL, s, 0));
+	}
+
+	/**
+	 * Return the longest symbol at a position of a character array.
+	 * 
+	 * @param buf
+	 *            characters
+	 * @param pos
+	 *            index of the symbol's first character
+	 * @param limit
+	 *            index after the last character
+	 * @return the longest symbol starting at <code>pos</code>
+	 */
+	String nextSymbol(char[] buf, int pos, int limit)
+	{
+		return symbols.nextSymbol(buf, pos, limit);
 	}
 
 	/**
@@ -93,6 +93,27 @@ public class Token
 
 	protected double nval;
 
+	/**
+	 * Source characters of a string value that has not been materialized yet
+	 */
+	private char[] source;
+
+	/**
+	 * Index of the first character of the string value in the source
+	 */
+	private int offset;
+
+	/**
+	 * Length of the string value in the source
+	 */
+	private int count;
+
+	/**
+	 * Whether this token is the canonical instance of its value in the
+	 * {@link TokenTable}
+	 */
+	boolean canonical = false;
+
 	// ========================= CONSTRUCTORS ==============================
 
 	/**
@@ -153,6 +174,29 @@ public class Token
 		this.nval = nval;
 	}
 
+	/**
+	 * Constructs a token whose string value is a range of a character array. The string
+	 * value is only created if it is requested by <code>sval()</code>; comparisons and
+	 * hash codes are computed directly from the array, which must not be modified.
+	 * 
+	 * @param ttype
+	 *            the type of the token, typically one of the constants this class defines
+	 * @param source
+	 *            source characters
+	 * @param offset
+	 *            index of the first character of the string value
+	 * @param count
+	 *            length of the string value
+	 */
+	public Token(TokenType ttype, char[] source, int offset, int count)
+	{
+		this.ttype = ttype;
+		this.source = source;
+		this.offset = offset;
+		this.count = count;
+		this.nval = 0;
+	}
+
 	// ========================= IMPLEMENTATION: Object ====================
 
 	/**
@@ -182,7 +226,20 @@ public class Token
 
 		// Mandatory fields used in equals()
 		result = HashCodeUtil.hash(result, ttype);
-		result = HashCodeUtil.hash(result, sval);
+		if (source == null)
+		{
+			result = HashCodeUtil.hash(result, sval);
+		}
+		else
+		{
+			// Same as the hash code of the materialized string value
+			int h = 0;
+			for (int i = offset; i < offset + count; i++)
+			{
+				h = 31 * h + source[i];
+			}
+			result = HashCodeUtil.hash(result, h);
+		}
 
 		// Optional fields that are likely to be different for different
 		// instances
@@ -221,11 +278,7 @@ public class Token
 		{
 			return nval == t.nval;
 		}
-		if (sval == null || t.sval == null)
-		{
-			return false;
-		}
-		return sval.equals(t.sval);
+		return svalEquals(t, false);
 	}
 
 	// ========================= METHODS ===================================
@@ -262,11 +315,7 @@ public class Token
 		{
 			return nval == t.nval;
 		}
-		if (sval == null || t.sval == null)
-		{
-			return false;
-		}
-		return sval.equalsIgnoreCase(t.sval);
+		return svalEquals(t, true);
 	}
 
 	/**
@@ -336,7 +385,13 @@ public class Token
 	 */
 	public String sval()
 	{
-		return sval;
+		String s = sval;
+		if ((s == null) && (source != null))
+		{
+			s = new String(source, offset, count);
+			sval = s;
+		}
+		return s;
 	}
 
 	/**
@@ -364,13 +419,97 @@ public class Token
 		{
 			return EOF;
 		}
-		if (sval != null)
+		if (hasSval())
 		{
-			return sval;
+			return sval();
 		}
 		return ttype;
 	}
 
+	/**
+	 * Returns true if this token has a string value.
+	 * 
+	 * @return true if this token has a string value, materialized or not
+	 */
+	boolean hasSval()
+	{
+		return (sval != null) || (source != null);
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Compare the string value of this token with another token's without materializing
+	 * either of them.
+	 * 
+	 * @param t
+	 *            token to compare with
+	 * @param ignoreCase
+	 *            if true, disregard case as <code>String.equalsIgnoreCase()</code> does
+	 * @return true if both tokens have equal string values
+	 */
+	private boolean svalEquals(Token t, boolean ignoreCase)
+	{
+		if (source == null && t.source == null)
+		{
+			if (sval == null || t.sval == null)
+			{
+				return false;
+			}
+			return ignoreCase ? sval.equalsIgnoreCase(t.sval) : sval.equals(t.sval);
+		}
+		if ((source == null && sval == null) || (t.source == null && t.sval == null))
+		{
+			return false;
+		}
+		int length = svalLength();
+		if (length != t.svalLength())
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			char c1 = svalCharAt(i);
+			char c2 = t.svalCharAt(i);
+			if (c1 == c2)
+			{
+				continue;
+			}
+			if (!ignoreCase)
+			{
+				return false;
+			}
+			char u1 = Character.toUpperCase(c1);
+			char u2 = Character.toUpperCase(c2);
+			if ((u1 != u2)
+					&& (Character.toLowerCase(u1) != Character.toLowerCase(u2)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the length of the (possibly unmaterialized) string value
+	 */
+	private int svalLength()
+	{
+		return (source == null) ? sval.length() : count;
+	}
+
+	/**
+	 * @param i
+	 *            character index
+	 * @return a character of the (possibly unmaterialized) string value
+	 */
+	private char svalCharAt(int i)
+	{
+		return (source == null) ? sval.charAt(i) : source[offset + i];
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
 	/**
 	 * @return Returns the ttype.
 	 */
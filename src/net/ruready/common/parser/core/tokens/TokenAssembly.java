@@ -127,6 +127,19 @@ public class TokenAssembly extends Assembly
 		return tokenString.length();
 	}
 
+	/**
+	 * Returns true if this assembly has unconsumed elements. Does not require the token
+	 * string to know its length, so a {@link LazyTokenString} is only tokenized up to the
+	 * next element.
+	 * 
+	 * @return true, if this assembly has unconsumed elements
+	 */
+	@Override
+	public boolean hasMoreElements()
+	{
+		return tokenString.hasTokenAt(elementsConsumed());
+	}
+
 	/**
 	 * Shows the next object in the assembly, without removing it
 	 * 
@@ -135,7 +148,7 @@ public class TokenAssembly extends Assembly
 	@Override
 	public Object peek()
 	{
-		if (index < length())
+		if (tokenString.hasTokenAt(index))
 		{
 			return tokenString.tokenAt(index);
 		}
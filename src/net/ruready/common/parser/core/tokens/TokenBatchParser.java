@@ -0,0 +1,112 @@
+/*****************************************************************************************
+ * Source File: TokenBatchParser.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.util.concurrent.ForkJoinPool;
+
+import net.ruready.common.parser.core.entity.Assembly;
+import net.ruready.common.parser.core.manager.BatchParser;
+import net.ruready.common.parser.core.manager.Parser;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A batch parser of token assemblies. Each thread tokenizes its inputs with its own
+ * tokenizer, created once by {@link #createTokenizer()} and reused for every input the
+ * thread parses. Override <code>createTokenizer()</code> to parse with a customized
+ * tokenizer:
+ *
+ * <pre>
+ * BatchParser batch = new TokenBatchParser(grammar)
+ * {
+ * 	protected Tokenizer createTokenizer()
+ * 	{
+ * 		return LineReaderCompiler.tokenizer();
+ * 	}
+ * };
+ * List&lt;Match&gt; results = batch.parse(lines);
+ * </pre>
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class TokenBatchParser extends BatchParser
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(TokenBatchParser.class);
+
+	// ========================= FIELDS ====================================
+
+	// Per-thread tokenizers
+	private final ThreadLocal<Tokenizer> tokenizers = new ThreadLocal<Tokenizer>()
+	{
+		@Override
+		protected Tokenizer initialValue()
+		{
+			return createTokenizer();
+		}
+	};
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a token batch parser that uses a shared default pool.
+	 *
+	 * @param parser
+	 *            grammar; frozen by this constructor
+	 */
+	public TokenBatchParser(Parser parser)
+	{
+		super(parser);
+	}
+
+	/**
+	 * Create a token batch parser.
+	 *
+	 * @param parser
+	 *            grammar; frozen by this constructor
+	 * @param pool
+	 *            threads to parse with
+	 */
+	public TokenBatchParser(Parser parser, ForkJoinPool pool)
+	{
+		super(parser, pool);
+	}
+
+	// ========================= IMPLEMENTATION: BatchParser ===============
+
+	/**
+	 * Tokenize an input with the calling thread's tokenizer.
+	 *
+	 * @param input
+	 *            input string
+	 * @return token assembly of the input
+	 * @see net.ruready.common.parser.core.manager.BatchParser#createAssembly(java.lang.String)
+	 */
+	@Override
+	protected Assembly createAssembly(String input)
+	{
+		Tokenizer tokenizer = tokenizers.get();
+		tokenizer.setSource(input);
+		return new TokenAssembly(tokenizer);
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Create the tokenizer of a thread. Called once by each thread that parses inputs.
+	 *
+	 * @return a new tokenizer
+	 */
+	protected Tokenizer createTokenizer()
+	{
+		return new Tokenizer();
+	}
+}
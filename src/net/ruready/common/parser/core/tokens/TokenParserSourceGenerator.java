@@ -0,0 +1,123 @@
+/*****************************************************************************************
+ * Source File: TokenParserSourceGenerator.java
+ ****************************************************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.io.File;
+import java.io.IOException;
+
+import net.ruready.common.parser.core.manager.ParserSourceGenerator;
+import net.ruready.common.parser.core.manager.Terminal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Generates recursive-descent parsers of token grammars. Inlines the checks of
+ * <code>Literal</code>, <code>Symbol</code>, <code>Word</code>, <code>Num</code> and
+ * <code>QuotedString</code> terminals (but not of their subclasses, e.g.
+ * <code>CaselessLiteral</code>, which are matched by calling their own
+ * <code>match()</code>).
+ * <p>
+ * Also the build-time entry point that regenerates the parsers of grammar compilers:
+ *
+ * <pre>
+ * java TokenParserSourceGenerator &lt;source directory&gt; \
+ *     &lt;compiler class&gt; &lt;generated class&gt; [&lt;compiler class&gt; &lt;generated class&gt; ...]
+ * </pre>
+ *
+ * where each compiler class implements <code>AbstractCompiler</code> and has a
+ * no-argument constructor.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Sep 8, 2007
+ */
+public class TokenParserSourceGenerator extends ParserSourceGenerator
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(TokenParserSourceGenerator.class);
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a generator.
+	 *
+	 * @param qualifiedClassName
+	 *            fully qualified name of the class to generate
+	 */
+	public TokenParserSourceGenerator(String qualifiedClassName)
+	{
+		super(qualifiedClassName);
+	}
+
+	// ========================= IMPLEMENTATION: ParserSourceGenerator =====
+
+	/**
+	 * Inline the checks of the standard token terminals.
+	 *
+	 * @see net.ruready.common.parser.core.manager.ParserSourceGenerator#qualifies(net.ruready.common.parser.core.manager.Terminal,
+	 *      java.lang.String, java.lang.String)
+	 */
+	@Override
+	protected String qualifies(Terminal t, String element, String constant)
+	{
+		Class<?> type = t.getClass();
+		if (((type == Literal.class) || (type == Symbol.class)) && (constant != null))
+		{
+			return "(" + element + " == " + constant + ") || " + constant + ".equals("
+					+ element + ")";
+		}
+		String test = null;
+		if (type == Word.class)
+		{
+			test = "isWord";
+		}
+		else if (type == Num.class)
+		{
+			test = "isNumber";
+		}
+		else if (type == QuotedString.class)
+		{
+			test = "isQuotedString";
+		}
+		if (test == null)
+		{
+			return super.qualifies(t, element, constant);
+		}
+		addImport(Token.class.getName());
+		return "((Token) " + element + ")." + test + "()";
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Regenerate the parsers of grammar compilers.
+	 *
+	 * @param args
+	 *            source directory, followed by pairs of compiler class and generated
+	 *            class names
+	 * @throws IOException
+	 *             if a file could not be written
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if ((args.length < 3) || (args.length % 2 == 0))
+		{
+			System.err.println("Usage: TokenParserSourceGenerator <source directory> "
+					+ "<compiler class> <generated class> ...");
+			System.exit(1);
+		}
+		File sourceDirectory = new File(args[0]);
+		for (int i = 1; i < args.length; i += 2)
+		{
+			File file = new TokenParserSourceGenerator(args[i + 1]).write(
+					compile(args[i]), sourceDirectory);
+			System.out.println("Generated " + file);
+		}
+	}
+}
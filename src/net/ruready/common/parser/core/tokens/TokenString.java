@@ -91,6 +91,19 @@ public class TokenString
 		return tokens.length;
 	}
 
+	/**
+	 * Returns true if this tokenString has a token at the specified index, i.e. if the
+	 * index is smaller than the length of this tokenString.
+	 * 
+	 * @param index
+	 *            the index of the desired token
+	 * @return true, if there is a token at the specified index
+	 */
+	public boolean hasTokenAt(int i)
+	{
+		return i < tokens.length;
+	}
+
 	/**
 	 * Returns the token at the specified index.
 	 * 
@@ -112,11 +125,11 @@ public class TokenString
 	public String toString()
 	{
 		StringBuffer buf = new StringBuffer();
-		for (int i = 0; i < tokens.length; i++) {
+		for (int i = 0; i < length(); i++) {
 			if (i > 0) {
 				buf.append(" ");
 			}
-			buf.append(tokens[i]);
+			buf.append(tokenAt(i));
 		}
 		return buf.toString();
 	}
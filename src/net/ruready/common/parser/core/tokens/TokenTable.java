@@ -0,0 +1,158 @@
+/*******************************************************
+ * Source File: TokenTable.java
+ *******************************************************/
+package net.ruready.common.parser.core.tokens;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ruready.common.misc.Utility;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A global table of canonical word and symbol tokens. Terminals (<code>Literal</code>,
+ * <code>Symbol</code>) and <code>SymbolState.add()</code> intern the tokens of
+ * keywords and symbols; tokenizers look up each word and symbol they read, and hand out
+ * the canonical instance when there is one instead of a fresh token and string. Equal
+ * tokens read from different inputs are then the same object, and a terminal can compare
+ * them by identity.
+ * <p>
+ * Canonical tokens are never removed, so two distinct canonical tokens are never equal.
+ * The table is bounded: once it is full, tokens are no longer interned, and terminals
+ * fall back to <code>Token.equals()</code>. The table is thread-safe.
+ *
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Aug 27, 2007
+ */
+public final class TokenTable implements Utility
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * A logger that helps identify this class' printouts.
+	 */
+	@SuppressWarnings("unused")
+	private static final Log logger = LogFactory.getLog(TokenTable.class);
+
+	/**
+	 * Maximum number of canonical tokens.
+	 */
+	public static final int CAPACITY = 4096;
+
+	/**
+	 * Canonical tokens, each mapped to itself.
+	 */
+	private static final ConcurrentHashMap<Token, Token> TABLE =
+			new ConcurrentHashMap<Token, Token>();
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * <p>
+	 * Hide constructor in utility class.
+	 * </p>
+	 */
+	private TokenTable()
+	{
+
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Return the canonical token equal to a token, making a canonical copy of the token
+	 * if there is none yet. Only word, symbol and quoted-string tokens of the class
+	 * <code>Token</code> itself are interned; other tokens are returned as is, as are
+	 * all tokens once the table is full.
+	 *
+	 * @param t
+	 *            token
+	 * @return canonical token equal to <code>t</code>, or <code>t</code>
+	 */
+	public static Token intern(Token t)
+	{
+		if (!internable(t))
+		{
+			return t;
+		}
+		Token canonical = TABLE.get(t);
+		if (canonical != null)
+		{
+			return canonical;
+		}
+		if (TABLE.size() >= CAPACITY)
+		{
+			return t;
+		}
+		// Copy the token so that the table does not keep the token's source array alive
+		canonical = new Token(t.ttype(), t.sval(), 0);
+		canonical.canonical = true;
+		Token existing = TABLE.putIfAbsent(canonical, canonical);
+		return (existing == null) ? canonical : existing;
+	}
+
+	/**
+	 * Return the canonical token equal to a token, if there is one; otherwise, return the
+	 * token itself. Does not change the table.
+	 *
+	 * @param t
+	 *            token
+	 * @return canonical token equal to <code>t</code>, or <code>t</code>
+	 */
+	public static Token canonical(Token t)
+	{
+		Token canonical = lookup(t);
+		return (canonical == null) ? t : canonical;
+	}
+
+	/**
+	 * Return the canonical token equal to a token, if there is one.
+	 *
+	 * @param t
+	 *            token
+	 * @return canonical token equal to <code>t</code>, or <code>null</code>
+	 */
+	public static Token lookup(Token t)
+	{
+		return internable(t) ? TABLE.get(t) : null;
+	}
+
+	/**
+	 * Returns true if a token is the canonical instance of its value.
+	 *
+	 * @param t
+	 *            token
+	 * @return true if <code>t</code> is canonical
+	 */
+	public static boolean isCanonical(Token t)
+	{
+		return t.canonical;
+	}
+
+	/**
+	 * @return the number of canonical tokens
+	 */
+	public static int size()
+	{
+		return TABLE.size();
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * @param t
+	 *            token
+	 * @return true if <code>t</code> may be interned
+	 */
+	private static boolean internable(Token t)
+	{
+		if ((t == null) || (t.getClass() != Token.class) || !t.hasSval())
+		{
+			return false;
+		}
+		TokenType ttype = t.ttype();
+		return (ttype == Token.TT_WORD) || (ttype == Token.TT_SYMBOL)
+				|| (ttype == Token.TT_QUOTED);
+	}
+}
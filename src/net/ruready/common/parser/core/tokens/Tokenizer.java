@@ -99,6 +99,12 @@ public class Tokenizer
 	 */
 	private PushbackReader reader;
 
+	/**
+	 * The reader, if it reads from a character array that can be scanned directly;
+	 * otherwise, null
+	 */
+	private CharArrayPushbackReader arrayReader;
+
 	/**
 	 * The state lookup table
 	 */
@@ -233,6 +239,10 @@ public class Tokenizer
 	 */
 	public final Token nextToken() throws IOException
 	{
+		if (arrayReader != null)
+		{
+			return nextArrayToken();
+		}
 		boolean done = false;
 		while (!done)
 		{
@@ -260,6 +270,19 @@ public class Tokenizer
 		return Token.EOF;
 	}
 
+	/**
+	 * Return the array index of the next character that this tokenizer will read from a
+	 * character array source (see {@link #setSource(char[], int, int)}). After a token
+	 * has been returned, this is the index just past the token.
+	 * 
+	 * @return index of the next character to read, or -1 if the source is not a
+	 *         character array
+	 */
+	public final int getPosition()
+	{
+		return (arrayReader == null) ? -1 : arrayReader.position();
+	}
+
 	/**
 	 * Return the state this tokenizer uses to build numbers.
 	 * 
@@ -313,6 +336,53 @@ public class Tokenizer
 	public final void setReader(PushbackReader r)
 	{
 		this.reader = r;
+		this.arrayReader = (r instanceof CharArrayPushbackReader) ? (CharArrayPushbackReader) r
+				: null;
+	}
+
+	/**
+	 * Set a range of a character array to read from. The tokenizer scans the array
+	 * directly: whitespace, words, numbers and symbols are recognized without going
+	 * through a reader, and word tokens refer to the array instead of copying their string
+	 * values.
+	 * Produces the same tokens as <code>setString()</code> on the same characters. The
+	 * array is not copied and must not be modified while the tokens are in use.
+	 * 
+	 * @param chars
+	 *            characters to read from
+	 * @param offset
+	 *            index of the first character to read
+	 * @param length
+	 *            number of characters to read
+	 */
+	public final void setSource(char[] chars, int offset, int length)
+	{
+		setReader(new CharArrayPushbackReader(chars, offset, length));
+	}
+
+	/**
+	 * Set a character array to read from.
+	 * 
+	 * @param chars
+	 *            characters to read from
+	 * @see #setSource(char[], int, int)
+	 */
+	public final void setSource(char[] chars)
+	{
+		setSource(chars, 0, chars.length);
+	}
+
+	/**
+	 * Set a character sequence to read from. The characters are copied once into an
+	 * array that the tokenizer scans directly.
+	 * 
+	 * @param s
+	 *            characters to read from
+	 * @see #setSource(char[], int, int)
+	 */
+	public final void setSource(CharSequence s)
+	{
+		setSource(s.toString().toCharArray());
 	}
 
 	/**
@@ -340,6 +410,182 @@ public class Tokenizer
 		setReader(new PushbackReader(new StringReader(s), symbolMax));
 	}
 
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Return the next token of a character array reader. Whitespace, words, numbers and
+	 * symbols whose states are this tokenizer's own default states are scanned directly
+	 * from the array; all other characters are delegated to their states as in
+	 * <code>nextToken()</code>.
+	 * 
+	 * @return the next token.
+	 * @exception IOException
+	 *                if there is any problem reading
+	 */
+	private Token nextArrayToken() throws IOException
+	{
+		final CharArrayPushbackReader r = arrayReader;
+		final char[] buf = r.buf;
+		final int limit = r.limit;
+		while (true)
+		{
+			int c;
+			if (r.hasPushback())
+			{
+				// A state unread characters out of order; read them normally
+				c = r.read();
+			}
+			else
+			{
+				int pos = r.pos;
+				if (pos >= limit)
+				{
+					return Token.EOF;
+				}
+				c = buf[pos];
+				r.pos = pos + 1;
+				if (c < characterState.length)
+				{
+					TokenizerState state = characterState[c];
+					if (state == whitespaceState)
+					{
+						r.pos = skipWhitespace(buf, pos + 1, limit);
+						continue;
+					}
+					if (state == wordState)
+					{
+						int end = scanWord(buf, pos + 1, limit);
+						r.pos = end;
+						return TokenTable.canonical(new Token(Token.TT_WORD, buf, pos, end
+								- pos));
+					}
+					if (state == numberState)
+					{
+						Token token = scanNumber(r, pos);
+						if (token != null)
+						{
+							return token;
+						}
+					}
+					if (state == symbolState)
+					{
+						String symbol = symbolState.nextSymbol(buf, pos, limit);
+						r.pos = pos + symbol.length();
+						return TokenTable.canonical(new Token(Token.TT_SYMBOL, symbol, 0));
+					}
+				}
+			}
+
+			if (c < 0 || c >= characterState.length)
+			{
+				return Token.EOF;
+			}
+			Token token = characterState[c].nextToken(r, c, this);
+			if (token != Token.NULL)
+			{
+				return token;
+			}
+		}
+	}
+
+	/**
+	 * Skip whitespace characters, as <code>WhitespaceState</code> does.
+	 * 
+	 * @param buf
+	 *            characters
+	 * @param i
+	 *            index of the first character to examine
+	 * @param limit
+	 *            index after the last character
+	 * @return index of the first non-whitespace character
+	 */
+	private int skipWhitespace(char[] buf, int i, int limit)
+	{
+		final boolean[] whitespaceChar = whitespaceState.whitespaceChar;
+		while ((i < limit) && (buf[i] < whitespaceChar.length) && whitespaceChar[buf[i]])
+		{
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Scan the characters of a word after its first character, as
+	 * <code>WordState</code> does.
+	 * 
+	 * @param buf
+	 *            characters
+	 * @param i
+	 *            index of the second character of the word
+	 * @param limit
+	 *            index after the last character
+	 * @return index after the last character of the word
+	 */
+	private int scanWord(char[] buf, int i, int limit)
+	{
+		final boolean[] wordChar = wordState.wordChar;
+		while ((i < limit) && (buf[i] < wordChar.length) && wordChar[buf[i]])
+		{
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Scan a number, as <code>NumberState</code> does. If the characters do not contain
+	 * a digit, <code>NumberState</code> falls back to a symbol; this is left to the state
+	 * itself.
+	 * 
+	 * @param r
+	 *            character array reader, positioned after the number's first character
+	 * @param pos
+	 *            index of the number's first character
+	 * @return number token, or null if no digit was found (nothing is consumed)
+	 */
+	private Token scanNumber(CharArrayPushbackReader r, int pos)
+	{
+		final char[] buf = r.buf;
+		final int limit = r.limit;
+		int i = pos;
+		boolean negative = false;
+		boolean gotAdigit = false;
+		double value = 0;
+		if (buf[i] == '-')
+		{
+			negative = true;
+			i++;
+		}
+		while ((i < limit) && ('0' <= buf[i]) && (buf[i] <= '9'))
+		{
+			gotAdigit = true;
+			value = value * 10 + (buf[i] - '0');
+			i++;
+		}
+		if ((i < limit) && (buf[i] == '.'))
+		{
+			i++;
+			double multBy = 1.0;
+			double fraction = 0;
+			while ((i < limit) && ('0' <= buf[i]) && (buf[i] <= '9'))
+			{
+				gotAdigit = true;
+				multBy *= 0.1;
+				fraction = fraction + multBy * (buf[i] - '0');
+				i++;
+			}
+			value += fraction;
+		}
+		if (!gotAdigit)
+		{
+			return null;
+		}
+		r.pos = i;
+		return new Token(Token.TT_NUMBER, CommonNames.MISC.EMPTY_STRING, negative ? -value
+				: value);
+	}
+
+	// ========================= GETTERS & SETTERS =========================
+
 	/**
 	 * Return the state this tokenizer uses to recognize (and ignore) comments.
 	 * 
@@ -3,10 +3,11 @@
  ****************************************************************************************/
 package net.ruready.common.parser.core.tokens;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.manager.RandomInputGenerator;
 import net.ruready.common.parser.core.manager.Terminal;
 
 /*
@@ -24,6 +25,32 @@ import net.ruready.common.parser.core.manager.Terminal;
 public class Word extends Terminal
 {
 
+	/**
+	 * A Word is interchangeable with any other Word with the same settings.
+	 * 
+	 * @param other
+	 *            another terminal
+	 * @return true if this terminal and <code>other</code> are interchangeable
+	 * @see net.ruready.common.parser.core.manager.Terminal#isEquivalent(net.ruready.common.parser.core.manager.Terminal)
+	 */
+	@Override
+	public boolean isEquivalent(Terminal other)
+	{
+		return (this == other) || ((getClass() == Word.class) && hasSameSettings(other));
+	}
+
+	/**
+	 * A word terminal accepts only word tokens.
+	 * 
+	 * @return <code>Token.TT_WORD</code>
+	 * @see net.ruready.common.parser.core.manager.Terminal#getElementType()
+	 */
+	@Override
+	protected Object getElementType()
+	{
+		return Token.TT_WORD;
+	}
+
 	/**
 	 * Returns true if an assembly's next element is a word.
 	 * 
@@ -39,28 +66,27 @@ public class Word extends Terminal
 	}
 
 	/**
-	 * Create a set with one random word (with 3 to 7 characters).
+	 * Emit one random word (with 3 to 7 characters).
 	 * 
-	 * @param maxDepth
+	 * @param generator
 	 * @param depth
-	 * @return
-	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(int, int)
+	 * @see net.ruready.common.parser.core.manager.Terminal#randomExpansion(net.ruready.common.parser.core.manager.RandomInputGenerator,
+	 *      int)
 	 */
 	@Override
-	public List<?> randomExpansion(int maxDepth, int depth)
+	protected void randomExpansion(RandomInputGenerator generator, int depth)
 	{
-		int n = (int) (5.0 * Math.random()) + 3;
+		Random random = generator.getRandom();
+		int n = random.nextInt(5) + 3;
 
 		char[] letters = new char[n];
 		for (int i = 0; i < n; i++)
 		{
-			int c = (int) (26.0 * Math.random()) + 'a';
+			int c = random.nextInt(26) + 'a';
 			letters[i] = (char) c;
 		}
 
-		List<String> v = new ArrayList<String>();
-		v.add(new String(letters));
-		return v;
+		generator.emit(new String(letters));
 	}
 
 	/**
@@ -116,6 +116,12 @@ public class WordState extends TokenizerState
 		{
 			r.unread(c);
 		}
+		// Hand out the canonical token of a keyword without creating a string
+		Token canonical = TokenTable.lookup(new Token(Token.TT_WORD, charbuf, 0, i));
+		if (canonical != null)
+		{
+			return canonical;
+		}
 		String sval = String.copyValueOf(charbuf, 0, i);
 		return new Token(Token.TT_WORD, sval, 0);
 	}
@@ -110,6 +110,27 @@ public interface CommonNames
 			 */
 			static final String PREFIX = "error.";
 		}
+
+		// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+		// Parser core library syntax error keys
+		// %%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+		public interface PARSER_EXCEPTION
+		{
+			/**
+			 * A parse ran out of its step or time budget.
+			 */
+			static final String BUDGET_EXCEEDED = "error.ParserException.budgetExceeded";
+
+			/**
+			 * A parse was cancelled.
+			 */
+			static final String CANCELLED = "error.ParserException.cancelled";
+
+			/**
+			 * An element did not match any of the terminals expected at its position.
+			 */
+			static final String UNEXPECTED_ELEMENT = "error.ParserException.unexpectedElement";
+		}
 	}
 
 	// -----------------------------------------------------------------------
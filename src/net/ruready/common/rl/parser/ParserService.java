@@ -8,6 +8,12 @@ import net.ruready.common.discrete.Identifiable;
 /**
  * A naming interface for all publicly exposed parser services. This
  * includes commonly used processors in this package.
+ * <p>
+ * Services that parse the same inputs repeatedly may keep a
+ * <code>net.ruready.common.parser.core.manager.ParseResultCache</code> in front of
+ * their frozen grammars; services that re-parse an input after each small edit (e.g. on
+ * every keystroke) may keep a
+ * <code>net.ruready.common.parser.core.tokens.IncrementalParser</code> per input.
  * 
  * @author Nava L. Livne <i>&lt;nlivne@aoce.utah.edu&gt;</i> Academic Outreach and
  *         Continuing Education (AOCE) 1901 East South Campus Dr., Room 2197-E
@@ -0,0 +1,288 @@
+/*****************************************************************************************
+ * Source File: PersistentStack.java
+ ****************************************************************************************/
+package net.ruready.common.stack;
+
+import java.util.ArrayList;
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.ruready.common.misc.Immutable;
+
+/**
+ * An immutable, singly-linked LIFO stack. <code>push()</code> and <code>pop()</code>
+ * return new stacks that share their tail with the original, so taking a copy of a stack
+ * is free and forking it is O(1). Stacks are typically obtained from {@link #empty()}.
+ * <p>
+ * Iteration runs from the top of the stack to its bottom; {@link #toArray()},
+ * {@link #toList()} and {@link #toString()} list elements from the bottom to the top, in
+ * the same order as {@link GenericStack}.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9399<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without permission
+ * from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ *
+ * @immutable
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Oct 5, 2007
+ */
+public final class PersistentStack<E> implements Iterable<E>, Immutable
+{
+	// ========================= CONSTANTS =================================
+
+	/**
+	 * The empty stack. Shared by all element types.
+	 */
+	private static final PersistentStack<Object> EMPTY = new PersistentStack<Object>(null,
+			null);
+
+	// ========================= FIELDS ====================================
+
+	// Top element
+	private final E head;
+
+	// The rest of the stack; null for the empty stack
+	private final PersistentStack<E> tail;
+
+	// Number of elements
+	private final int size;
+
+	// Hash code, computed from the head and the tail's hash code
+	private final int hashCode;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * @param head
+	 *            top element
+	 * @param tail
+	 *            the rest of the stack
+	 */
+	private PersistentStack(E head, PersistentStack<E> tail)
+	{
+		super();
+		this.head = head;
+		this.tail = tail;
+		this.size = (tail == null) ? 0 : (tail.size + 1);
+		this.hashCode = (tail == null) ? 1 : (31 * tail.hashCode + ((head == null) ? 0
+				: head.hashCode()));
+	}
+
+	/**
+	 * Return the empty stack.
+	 *
+	 * @param <E>
+	 *            element type
+	 * @return the empty stack
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentStack<E> empty()
+	{
+		return (PersistentStack<E>) EMPTY;
+	}
+
+	// ========================= IMPLEMENTATION: Object ====================
+
+	/**
+	 * Prints the elements from the bottom to the top of the stack.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		return toList().toString();
+	}
+
+	/**
+	 * Two stacks are equal if they hold equal elements in the same order.
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if ((obj == null) || (obj.getClass() != this.getClass()))
+		{
+			return false;
+		}
+		PersistentStack<?> other = (PersistentStack<?>) obj;
+		if (size != other.size)
+		{
+			return false;
+		}
+		PersistentStack<?> a = this;
+		PersistentStack<?> b = other;
+		// Stop as soon as the two stacks share their tail
+		while (a != b)
+		{
+			if ((a.head == null) ? (b.head != null) : !a.head.equals(b.head))
+			{
+				return false;
+			}
+			a = a.tail;
+			b = b.tail;
+		}
+		return true;
+	}
+
+	/**
+	 * Computed once, when the stack is pushed, from the hash codes of its elements at
+	 * that time; stack elements should therefore not change their hash codes.
+	 *
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	// ========================= IMPLEMENTATION: Iterable<E> ===============
+
+	/**
+	 * Iterate over the elements from the top to the bottom of the stack.
+	 *
+	 * @see java.lang.Iterable#iterator()
+	 */
+	public Iterator<E> iterator()
+	{
+		return new Iterator<E>()
+		{
+			private PersistentStack<E> current = PersistentStack.this;
+
+			public boolean hasNext()
+			{
+				return (current.tail != null);
+			}
+
+			public E next()
+			{
+				if (current.tail == null)
+				{
+					throw new NoSuchElementException();
+				}
+				E element = current.head;
+				current = current.tail;
+				return element;
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException("PersistentStack is immutable");
+			}
+		};
+	}
+
+	// ========================= METHODS ===================================
+
+	/**
+	 * Return a stack with an item on top of this stack. This stack is not changed.
+	 *
+	 * @param item
+	 *            the item to be pushed
+	 * @return the new stack
+	 */
+	public PersistentStack<E> push(E item)
+	{
+		return new PersistentStack<E>(item, this);
+	}
+
+	/**
+	 * Return this stack without its top element. This stack is not changed.
+	 *
+	 * @return the rest of the stack
+	 * @exception EmptyStackException
+	 *                if this stack is empty
+	 */
+	public PersistentStack<E> pop()
+	{
+		if (tail == null)
+		{
+			throw new EmptyStackException();
+		}
+		return tail;
+	}
+
+	/**
+	 * Looks at the object at the top of this stack.
+	 *
+	 * @return the top element
+	 * @exception EmptyStackException
+	 *                if this stack is empty
+	 */
+	public E peek()
+	{
+		if (tail == null)
+		{
+			throw new EmptyStackException();
+		}
+		return head;
+	}
+
+	/**
+	 * @return <code>true</code> if and only if this stack contains no items
+	 */
+	public boolean isEmpty()
+	{
+		return (tail == null);
+	}
+
+	/**
+	 * @return the number of elements in this stack
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the elements of this stack from the bottom to the top.
+	 *
+	 * @return an array of the stack elements
+	 */
+	public Object[] toArray()
+	{
+		Object[] array = new Object[size];
+		int i = size;
+		for (PersistentStack<E> s = this; s.tail != null; s = s.tail)
+		{
+			array[--i] = s.head;
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the elements of this stack from the bottom to the top.
+	 *
+	 * @return a new mutable list of the stack elements
+	 */
+	@SuppressWarnings("unchecked")
+	public List<E> toList()
+	{
+		List<E> list = new ArrayList<E>(size);
+		for (Object element : toArray())
+		{
+			list.add((E) element);
+		}
+		return list;
+	}
+}
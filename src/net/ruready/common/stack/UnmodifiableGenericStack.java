@@ -0,0 +1,252 @@
+/*****************************************************************************************
+ * Source File: UnmodifiableGenericStack.java
+ ****************************************************************************************/
+package net.ruready.common.stack;
+
+import java.util.Collection;
+
+/**
+ * A read-only {@link GenericStack}. It is filled once upon construction; every method
+ * that would change it throws an <code>UnsupportedOperationException</code>, so code
+ * that mistakes it for a live, writable stack fails loudly instead of silently changing
+ * a copy. {@link #clone()} returns an ordinary, modifiable stack with the same elements.
+ * <p>
+ * -------------------------------------------------------------------------<br>
+ * (c) 2006-2007 Continuing Education, University of Utah<br>
+ * All copyrights reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * <p>
+ * This file is part of the RUReady Program software.<br>
+ * Contact: Nava L. Livne <code>&lt;nlivne@aoce.utah.edu&gt;</code><br>
+ * Academic Outreach and Continuing Education (AOCE)<br>
+ * 1901 East South Campus Dr., Room 2197-E<br>
+ * University of Utah, Salt Lake City, UT 84112-9359<br>
+ * U.S.A.<br>
+ * Day Phone: 1-801-587-5835, Fax: 1-801-585-5414<br>
+ * <br>
+ * Please contact these numbers immediately if you receive this file without permission
+ * from the authors. Thank you.<br>
+ * -------------------------------------------------------------------------
+ *
+ * @immutable
+ * @author Oren E. Livne <code>&lt;olivne@aoce.utah.edu&gt;</code>
+ * @version Oct 5, 2007
+ */
+public final class UnmodifiableGenericStack<E> extends GenericStack<E>
+{
+	// ========================= CONSTANTS =================================
+
+	private static final long serialVersionUID = 6470395342380781205L;
+
+	// ========================= CONSTRUCTORS ==============================
+
+	/**
+	 * Create a read-only stack.
+	 *
+	 * @param elements
+	 *            stack elements, from the bottom to the top of the stack
+	 */
+	public UnmodifiableGenericStack(Object[] elements)
+	{
+		super();
+		for (Object element : elements)
+		{
+			@SuppressWarnings("unchecked")
+			E e = (E) element;
+			super.addElement(e);
+		}
+	}
+
+	// ========================= IMPLEMENTATION: GenericStack ==============
+
+	/**
+	 * @see net.ruready.common.stack.GenericStack#push(java.lang.Object)
+	 */
+	@Override
+	public E push(E item)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see net.ruready.common.stack.GenericStack#pop()
+	 */
+	@Override
+	public synchronized E pop()
+	{
+		throw readOnly();
+	}
+
+	// ========================= IMPLEMENTATION: Vector ====================
+
+	/**
+	 * @see java.util.Vector#add(java.lang.Object)
+	 */
+	@Override
+	public synchronized boolean add(E e)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#add(int, java.lang.Object)
+	 */
+	@Override
+	public void add(int index, E element)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#addAll(java.util.Collection)
+	 */
+	@Override
+	public synchronized boolean addAll(Collection<? extends E> c)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#addAll(int, java.util.Collection)
+	 */
+	@Override
+	public synchronized boolean addAll(int index, Collection<? extends E> c)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#addElement(java.lang.Object)
+	 */
+	@Override
+	public synchronized void addElement(E obj)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#insertElementAt(java.lang.Object, int)
+	 */
+	@Override
+	public synchronized void insertElementAt(E obj, int index)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#set(int, java.lang.Object)
+	 */
+	@Override
+	public synchronized E set(int index, E element)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#setElementAt(java.lang.Object, int)
+	 */
+	@Override
+	public synchronized void setElementAt(E obj, int index)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#setSize(int)
+	 */
+	@Override
+	public synchronized void setSize(int newSize)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#remove(int)
+	 */
+	@Override
+	public synchronized E remove(int index)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#remove(java.lang.Object)
+	 */
+	@Override
+	public boolean remove(Object o)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#removeElement(java.lang.Object)
+	 */
+	@Override
+	public synchronized boolean removeElement(Object obj)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#removeElementAt(int)
+	 */
+	@Override
+	public synchronized void removeElementAt(int index)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#removeAllElements()
+	 */
+	@Override
+	public synchronized void removeAllElements()
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#removeAll(java.util.Collection)
+	 */
+	@Override
+	public synchronized boolean removeAll(Collection<?> c)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#retainAll(java.util.Collection)
+	 */
+	@Override
+	public synchronized boolean retainAll(Collection<?> c)
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#clear()
+	 */
+	@Override
+	public void clear()
+	{
+		throw readOnly();
+	}
+
+	/**
+	 * @see java.util.Vector#removeRange(int, int)
+	 */
+	@Override
+	protected synchronized void removeRange(int fromIndex, int toIndex)
+	{
+		throw readOnly();
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * @return the exception thrown by every method that would change this stack
+	 */
+	private static UnsupportedOperationException readOnly()
+	{
+		return new UnsupportedOperationException("UnmodifiableGenericStack is read-only");
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Source File: TestFileReaderParallelTest.java
+ ******************************************************************************/
+package net.ruready.common.junit.exports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ruready.common.exception.ApplicationException;
+import net.ruready.common.exception.SystemException;
+import net.ruready.common.junit.entity.TestInput;
+import net.ruready.common.junit.entity.TestOutput;
+import net.ruready.common.junit.manager.CompiledTestSuite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that running a test file on a pool of threads reports the same results as
+ * running it on the calling thread.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c)
+ *         2006-07 Continuing Education , University of Utah . All copyrights
+ *         reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Oct 16, 2007
+ */
+public class TestFileReaderParallelTest
+{
+	// ========================= CONSTANTS =================================
+
+	// Number of test cases in the data file
+	private static final int NUM_TESTS = 2000;
+
+	// Every FAILURE_PERIOD-th test case fails
+	private static final int FAILURE_PERIOD = 7;
+
+	// ========================= FIELDS ====================================
+
+	// Data file
+	private File file;
+
+	// ========================= SETUP & TEARDOWN ==========================
+
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile("TestFileReaderParallel", ".dat");
+	}
+
+	@After
+	public void tearDown()
+	{
+		file.delete();
+		new File(file.getPath() + CompiledTestSuite.SUFFIX).delete();
+	}
+
+	// ========================= TESTS =====================================
+
+	/**
+	 * Sequential and parallel runs of a file without a stop-on-first-error parameter
+	 * report the same results.
+	 */
+	@Test
+	public void parallelMatchesSequential() throws Exception
+	{
+		writeTests(-1);
+		assertSameResults(false);
+		assertSameResults(true);
+	}
+
+	/**
+	 * Sequential and parallel runs stop at the same failing test case.
+	 */
+	@Test
+	public void parallelStopsWhereSequentialStops() throws Exception
+	{
+		writeTests(NUM_TESTS / 2);
+		assertSameResults(false);
+		assertSameResults(true);
+	}
+
+	/**
+	 * A reader that keeps per-test state in fields refuses to run on several threads.
+	 */
+	@Test
+	public void defaultReaderRefusesThreads() throws Exception
+	{
+		writeTests(-1);
+		DefaultTestFileReader reader = new DefaultTestFileReader(file.getPath())
+		{
+			@Override
+			protected void parseInputString(String inputStr)
+			{
+			}
+
+			@Override
+			protected void parseOutputString(String outputStr)
+			{
+			}
+
+			@Override
+			protected String encodeTestOutput(TestOutput testOutput)
+			{
+				return null;
+			}
+
+			@Override
+			protected void runTest(TestInput aTestInput)
+			{
+			}
+		};
+		reader.setNumThreads(1);
+		try {
+			reader.setNumThreads(8);
+			fail("DefaultTestFileReader accepted 8 threads");
+		}
+		catch (SystemException e) {
+			assertEquals(1, reader.getNumThreads());
+		}
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Write the data file: each test case's input is a word and a number, and its
+	 * expected output is the number, except for every <code>FAILURE_PERIOD</code>-th
+	 * test case.
+	 *
+	 * @param stopAt
+	 *            index of the test case before which stop-on-first-error is turned on,
+	 *            or -1 to leave it off
+	 */
+	private void writeTests(int stopAt) throws IOException
+	{
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try {
+			out.println("// Generated by " + getClass().getName());
+			for (int i = 0; i < NUM_TESTS; i++) {
+				if (i == stopAt) {
+					out.println("$ stopOnFirstError = true");
+				}
+				out.println("value " + i);
+				out.println((i % FAILURE_PERIOD == FAILURE_PERIOD - 1) ? (i + 1) : i);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Run the data file on one thread and on several, and compare the results and the
+	 * line number each test case saw.
+	 *
+	 * @param precompiled
+	 *            read the file from a compiled suite
+	 */
+	private void assertSameResults(boolean precompiled) throws ApplicationException
+	{
+		Map<String, Integer> sequentialLines = new ConcurrentHashMap<String, Integer>();
+		Map<String, Integer> parallelLines = new ConcurrentHashMap<String, Integer>();
+		TestFileReader sequential = run(1, precompiled, sequentialLines);
+		TestFileReader parallel = run(8, precompiled, parallelLines);
+		assertEquals(sequential.getNumTests(), parallel.getNumTests());
+		assertEquals(sequential.getNumErrors(), parallel.getNumErrors());
+		assertEquals(sequential.getNumLinesRead(), parallel.getNumLinesRead());
+		assertEquals(sequentialLines, parallelLines);
+	}
+
+	/**
+	 * Run the data file.
+	 *
+	 * @param numThreads
+	 *            number of threads that run test cases
+	 * @param precompiled
+	 *            read the file from a compiled suite
+	 * @param lineNumbers
+	 *            filled with the line number of each test case, keyed by its input
+	 * @return reader holding the results of the run
+	 */
+	private TestFileReader run(int numThreads, boolean precompiled,
+			final Map<String, Integer> lineNumbers) throws ApplicationException
+	{
+		TestFileReader reader = new TestFileReader(file.getPath())
+		{
+			@Override
+			protected boolean assertEquals(String inputStr, String outputStr)
+			{
+				lineNumbers.put(inputStr, getTestLineNumber());
+				String number = inputStr.substring(inputStr.lastIndexOf(' ') + 1);
+				return number.equals(outputStr);
+			}
+
+			@Override
+			protected boolean isThreadSafe()
+			{
+				return true;
+			}
+		};
+		reader.setNumThreads(numThreads);
+		reader.setPrecompiled(precompiled);
+		reader.test();
+		return reader;
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Source File: PrettyParserArenaTest.java
+ ******************************************************************************/
+package net.ruready.common.parser.core.pretty;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import net.ruready.common.parser.core.manager.Alternation;
+import net.ruready.common.parser.core.manager.Empty;
+import net.ruready.common.parser.core.manager.Parser;
+import net.ruready.common.parser.core.manager.Repetition;
+import net.ruready.common.parser.core.manager.Sequence;
+import net.ruready.common.parser.core.tokens.Literal;
+import net.ruready.common.parser.core.tokens.TokenAssembly;
+
+import org.junit.Test;
+
+/**
+ * Checks that the parse trees a pretty parser builds in an arena one at a time are the
+ * trees it builds on the heap, and that looking for the next tree does not invalidate
+ * the last one.
+ *
+ * @author Oren E. Livne <i>&lt;olivne@aoce.utah.edu&gt;</i> AOCE, Room 2197-E,
+ *         University of Utah University of Utah, Salt Lake City, UT 84112 (c)
+ *         2006-07 Continuing Education , University of Utah . All copyrights
+ *         reserved. U.S. Patent Pending DOCKET NO. 00846 25702.PROV
+ * @version Oct 16, 2007
+ */
+public class PrettyParserArenaTest
+{
+	// ========================= TESTS =====================================
+
+	/**
+	 * An optional word followed by a repetition of the word.
+	 */
+	@Test
+	public void optionalThenRepetition()
+	{
+		assertSameTrees(optionalThenRepetitionGrammar(), "a a");
+		assertSameTrees(optionalThenRepetitionGrammar(), "a a a a");
+	}
+
+	/**
+	 * A repetition of one or two words followed by an end word.
+	 */
+	@Test
+	public void repetitionOfAlternatives()
+	{
+		assertSameTrees(repetitionOfAlternativesGrammar(), "a a a a a a b");
+	}
+
+	// ========================= PRIVATE METHODS ===========================
+
+	/**
+	 * Enumerate the trees of an input in an arena, calling <code>hasNext()</code> before
+	 * printing each tree, and compare them with the trees enumerated on the heap.
+	 *
+	 * @param grammar
+	 *            ambiguous grammar
+	 * @param input
+	 *            input string
+	 */
+	private void assertSameTrees(Parser grammar, String input)
+	{
+		List<String> heapTrees = new ArrayList<String>();
+		for (Iterator<String> it = new PrettyParser(grammar)
+				.parseTreeIterator(new TokenAssembly(input)); it.hasNext();)
+		{
+			heapTrees.add(it.next());
+		}
+
+		List<String> arenaTrees = new ArrayList<String>();
+		Iterator<ComponentNode> it = new PrettyParser(grammar, new ParseTreeArena())
+				.treeIterator(new TokenAssembly(input));
+		while (it.hasNext())
+		{
+			ComponentNode tree = it.next();
+			it.hasNext();
+			arenaTrees.add(tree.toStringWithoutLabels());
+		}
+		assertEquals(heapTrees, arenaTrees);
+		assertEquals(true, heapTrees.size() > 1);
+	}
+
+	/**
+	 * @return a grammar that matches an optional "a" followed by any number of "a"s
+	 */
+	private static Parser optionalThenRepetitionGrammar()
+	{
+		Alternation opt = new Alternation("opt");
+		opt.add(new Literal("a"));
+		opt.add(new Empty());
+		Sequence top = new Sequence("top");
+		top.add(opt);
+		top.add(new Repetition(new Literal("a")));
+		return top;
+	}
+
+	/**
+	 * @return a grammar that matches any number of "a" or "a a", followed by "b"
+	 */
+	private static Parser repetitionOfAlternativesGrammar()
+	{
+		Sequence pair = new Sequence();
+		pair.add(new Literal("a"));
+		pair.add(new Literal("a"));
+		Alternation alt = new Alternation();
+		alt.add(new Literal("a"));
+		alt.add(pair);
+		Sequence top = new Sequence();
+		top.add(new Repetition(alt));
+		top.add(new Literal("b"));
+		return top;
+	}
+}